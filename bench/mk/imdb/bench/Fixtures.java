@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import mk.imdb.core.IMDbConstants;
+import mk.imdb.core.IMDbTransport;
+import mk.imdb.core.IMDbTransportResponse;
+
+/**
+ * Recorded imdbapi.org responses used by the benchmarks, and an offline transport that serves them.
+ * 
+ * @author Mirko Polato
+ *
+ */
+final class Fixtures {
+
+	private Fixtures() {}
+	
+	/**
+	 * Single movie, simple verbosity.
+	 */
+	static final String MOVIE_SIMPLE = "movie_simple";
+	
+	/**
+	 * Single movie, full verbosity of plot, aliases and release dates.
+	 */
+	static final String MOVIE_FULL = "movie_full";
+	
+	/**
+	 * A 5 hits page of a search by title, simple verbosity.
+	 */
+	static final String TITLE_PAGE = "title_page";
+	
+	/**
+	 * Loads the given fixture.
+	 * 
+	 * @param name The fixture name
+	 * @return The fixture content in UTF-8
+	 */
+	static byte[] bytes(String name) {
+		try (InputStream in = Fixtures.class.getResourceAsStream("fixtures/" + name + ".json")) {
+			if (in == null) throw new IllegalArgumentException("Unknown fixture: " + name);
+			
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for (int n; (n = in.read(buffer)) != -1; ) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Loads the given fixture as a string.
+	 * 
+	 * @param name The fixture name
+	 * @return The fixture content
+	 */
+	static String string(String name) {
+		return new String(bytes(name), StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Creates a transport that never touches the network: the searches by id are answered with the 
+	 * given movie fixture, the searches by title with the title page.
+	 * 
+	 * @param movie The movie fixture name
+	 * @return The offline transport
+	 */
+	static IMDbTransport transport(String movie) {
+		final byte[] byId = bytes(movie);
+		final byte[] byTitle = bytes(TITLE_PAGE);
+		
+		return (url, headers, timeout) -> {
+			byte[] body = url.getQuery().startsWith(IMDbConstants.ID + "=") ? byId : byTitle;
+			return new IMDbTransportResponse(200, null, new ByteArrayInputStream(body));
+		};
+	}
+	
+}
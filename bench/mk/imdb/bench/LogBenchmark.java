@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import mk.imdb.utils.Log;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of {@link Log} on the calling threads, writing to a discarding stream.
+ * 
+ * @author Mirko Polato
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class LogBenchmark {
+
+	private PrintStream previous;
+	private Exception exception;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		previous = Log.getDefaultStream();
+		Log.setDefaultStream(new PrintStream(OutputStream.nullOutputStream()));
+		exception = new java.net.SocketTimeoutException("Read timed out");
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		Log.setActive(true);
+		Log.setDefaultStream(previous);
+	}
+	
+	@Benchmark
+	public void printText() {
+		Log.setActive(true);
+		Log.print("Search by title: Inglourious Basterds");
+	}
+	
+	@Benchmark
+	public void printThrowable() {
+		Log.setActive(true);
+		Log.print(exception);
+	}
+	
+	@Benchmark
+	public void printFilteredSupplier() {
+		Log.setActive(true);
+		Log.print(Log.Level.DEBUG, () -> "Search by title: " + exception.getMessage());
+	}
+	
+	@Benchmark
+	public void printInactive() {
+		Log.setActive(false);
+		Log.print("Search by title: Inglourious Basterds");
+	}
+	
+}
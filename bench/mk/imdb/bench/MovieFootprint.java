@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mk.imdb.entity.IMDbMovie;
+import mk.imdb.utils.Log;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+
+/**
+ * Estimates the retained heap of a resident catalogue of movies, which the throughput benchmarks
+ * cannot measure: it keeps the given number of movies of each fixture alive and prints the heap
+ * growth per movie, with and without the origin JSON object and in lazy mode.
+ * <p>
+ * Usage: <code>java mk.imdb.bench.MovieFootprint [movies]</code> (run it with a fixed heap, e.g. -Xms1g -Xmx1g).
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class MovieFootprint {
+
+	private MovieFootprint() {}
+	
+	public static void main(String[] args) {
+		int count = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+		Log.setActive(false);
+		
+		for (String fixture : new String[] { Fixtures.MOVIE_SIMPLE, Fixtures.MOVIE_FULL }) {
+			String json = Fixtures.string(fixture);
+			
+			measure(fixture + " (origin JSON retained)", json, count, true, false);
+			measure(fixture + " (origin JSON dropped)", json, count, false, false);
+			measure(fixture + " (lazy, not accessed)", json, count, false, true);
+		}
+		
+		IMDbMovie.setRetainOriginJSON(true);
+		IMDbMovie.setLazyDecoding(false);
+		Log.setActive(true);
+	}
+	
+	private static void measure(String label, String json, int count, boolean retain, boolean lazy) {
+		IMDbMovie.setRetainOriginJSON(retain);
+		IMDbMovie.setLazyDecoding(lazy);
+		
+		// Warm up the dictionary and the classes.
+		new IMDbMovie((JSONObject) JSONSerializer.toJSON(json));
+		
+		long before = usedHeap();
+		List<IMDbMovie> movies = new ArrayList<IMDbMovie>(count);
+		for (int i = 0; i < count; i++) {
+			movies.add(new IMDbMovie((JSONObject) JSONSerializer.toJSON(json)));
+		}
+		long after = usedHeap();
+		
+		System.out.printf("%-45s %,10d bytes/movie%n", label, (after - before) / movies.size());
+	}
+	
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+}
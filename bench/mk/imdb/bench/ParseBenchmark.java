@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import mk.imdb.entity.IMDbMovie;
+import mk.imdb.entity.IMDbMovieDecoder;
+import mk.imdb.exception.IMDbResponseException;
+import mk.imdb.io.IMDbMovieReader;
+import mk.imdb.io.IMDbMovieWriter;
+import mk.imdb.utils.Log;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding of a movie: json-lib parsing, the JSON constructor of {@link IMDbMovie} (eager and lazy)
+ * the streaming {@link IMDbMovieDecoder} and the binary records of {@link IMDbMovieReader}.
+ * 
+ * @author Mirko Polato
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+	@Param({ Fixtures.MOVIE_SIMPLE, Fixtures.MOVIE_FULL })
+	public String fixture;
+	
+	private String json;
+	private byte[] bytes;
+	private JSONObject tree;
+	private byte[] page;
+	private byte[] record;
+	private IMDbMovie movie;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		json = Fixtures.string(fixture);
+		bytes = json.getBytes(StandardCharsets.UTF_8);
+		tree = (JSONObject) JSONSerializer.toJSON(json);
+		page = Fixtures.bytes(Fixtures.TITLE_PAGE);
+		movie = new IMDbMovie(tree);
+		record = IMDbMovieWriter.encode(movie);
+		
+		// The simple verbosity payloads go through the logged fallbacks of the JSON constructor.
+		Log.setActive(false);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		IMDbMovie.setLazyDecoding(false);
+		Log.setActive(true);
+	}
+	
+	/**
+	 * json-lib parsing only.
+	 */
+	@Benchmark
+	public Object jsonTree() {
+		return JSONSerializer.toJSON(json);
+	}
+	
+	/**
+	 * Construction of the movie from an already parsed tree.
+	 */
+	@Benchmark
+	public IMDbMovie movieFromTree() {
+		IMDbMovie.setLazyDecoding(false);
+		return new IMDbMovie(tree);
+	}
+	
+	/**
+	 * Parsing and construction of the movie, as done by the response objects.
+	 */
+	@Benchmark
+	public IMDbMovie movieFromString() {
+		IMDbMovie.setLazyDecoding(false);
+		return new IMDbMovie((JSONObject) JSONSerializer.toJSON(json));
+	}
+	
+	/**
+	 * Lazy construction of the movie from an already parsed tree, reading only the listing fields.
+	 */
+	@Benchmark
+	public String lazyMovieListing() {
+		IMDbMovie.setLazyDecoding(true);
+		IMDbMovie movie = new IMDbMovie(tree);
+		return movie.getId() + movie.getTitle() + movie.getRating();
+	}
+	
+	/**
+	 * Streaming decoding of the movie from the response bytes.
+	 */
+	@Benchmark
+	public IMDbMovie streamingMovie() throws IOException, IMDbResponseException {
+		return IMDbMovieDecoder.MOVIE.handle(new ByteArrayInputStream(bytes));
+	}
+	
+	/**
+	 * Streaming decoding of a 5 hits title page.
+	 */
+	@Benchmark
+	public List<IMDbMovie> streamingTitlePage() throws IOException, IMDbResponseException {
+		return IMDbMovieDecoder.MOVIES.handle(new ByteArrayInputStream(page));
+	}
+	
+	/**
+	 * Decoding of the movie from its binary record.
+	 */
+	@Benchmark
+	public IMDbMovie binaryMovie() throws IOException {
+		return IMDbMovieReader.decode(ByteBuffer.wrap(record));
+	}
+	
+	/**
+	 * Encoding of the movie as a binary record.
+	 */
+	@Benchmark
+	public byte[] binaryRecord() {
+		return IMDbMovieWriter.encode(movie);
+	}
+	
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import mk.imdb.core.IMDbConstants;
+import mk.imdb.response.IMDbResponseArray;
+import mk.imdb.response.IMDbResponseObject;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Wrapping of the parsed JSON trees into the response objects.
+ * 
+ * @author Mirko Polato
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseBenchmark {
+
+	private JSONObject movie;
+	private JSONObject page;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		movie = (JSONObject) JSONSerializer.toJSON(Fixtures.string(Fixtures.MOVIE_FULL));
+		
+		JSONArray hits = (JSONArray) JSONSerializer.toJSON(Fixtures.string(Fixtures.TITLE_PAGE));
+		page = new JSONObject();
+		page.element(IMDbConstants.TOTAL_RESULTS, hits.size());
+		page.element(IMDbConstants.RESULT, hits);
+	}
+	
+	@Benchmark
+	public IMDbResponseObject responseObject() {
+		return new IMDbResponseObject(movie);
+	}
+	
+	@Benchmark
+	public IMDbResponseArray responseArray() {
+		return new IMDbResponseArray(page);
+	}
+	
+}
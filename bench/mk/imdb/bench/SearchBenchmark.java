@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import mk.imdb.core.IMDbAPI;
+import mk.imdb.core.IMDbSearchByIdParameters;
+import mk.imdb.core.IMDbSearchByTitleParameters;
+import mk.imdb.core.IMDbTransport;
+import mk.imdb.entity.IMDbMovie;
+import mk.imdb.exception.IMDbResponseException;
+import mk.imdb.response.IMDbResponseArray;
+import mk.imdb.response.IMDbResponseObject;
+import mk.imdb.utils.Log;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End to end searches through {@link IMDbAPI} and {@link IMDbMovie}, served by the offline transport.
+ * 
+ * @author Mirko Polato
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+	private IMDbTransport previous;
+	private IMDbSearchByIdParameters byId;
+	private IMDbSearchByTitleParameters byTitle;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		previous = IMDbAPI.getTransport();
+		IMDbAPI.setTransport(Fixtures.transport(Fixtures.MOVIE_FULL));
+		
+		byId = new IMDbSearchByIdParameters("tt0361748");
+		byTitle = new IMDbSearchByTitleParameters("Inglourious Basterds");
+		
+		Log.setActive(false);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		IMDbAPI.setTransport(previous);
+		Log.setActive(true);
+	}
+	
+	@Benchmark
+	public IMDbResponseObject searchMovieById() {
+		return IMDbAPI.searchMovieById(byId);
+	}
+	
+	@Benchmark
+	public IMDbResponseArray searchMovieByTitle() {
+		return IMDbAPI.searchMovieByTitle(byTitle);
+	}
+	
+	@Benchmark
+	public IMDbMovie decodeById() throws IMDbResponseException {
+		return IMDbMovie.decodeById(byId);
+	}
+	
+	@Benchmark
+	public List<IMDbMovie> decodeByTitle() throws IMDbResponseException {
+		return IMDbMovie.decodeByTitle(byTitle);
+	}
+	
+}
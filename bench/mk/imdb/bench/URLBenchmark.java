@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.bench;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import mk.imdb.core.IMDbConstants;
+import mk.imdb.core.IMDbSearchByIdParameters;
+import mk.imdb.core.IMDbSearchByTitleParameters;
+import mk.imdb.core.IMDbURLCreator;
+import mk.imdb.core.IMDbVerbosity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building of the query URLs by {@link IMDbURLCreator} and of the parameters (with their precomputed key), 
+ * against the former string concatenation (which did not encode the values) as a baseline.
+ * 
+ * @author Mirko Polato
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class URLBenchmark {
+
+	private IMDbSearchByIdParameters byId;
+	private IMDbSearchByTitleParameters byTitle;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		byId = IMDbSearchByIdParameters.builder("tt0361748").plot(IMDbVerbosity.FULL).build();
+		byTitle = IMDbSearchByTitleParameters.builder("Am\u00E9lie & Inglourious Basterds").year(2009).offset(5).build();
+	}
+	
+	@Benchmark
+	public URL searchMovieByIdUrl() throws MalformedURLException {
+		return IMDbURLCreator.searchMovieByIdUrl(byId);
+	}
+	
+	@Benchmark
+	public URL searchMovieByTitleUrl() throws MalformedURLException {
+		return IMDbURLCreator.searchMovieByTitleUrl(byTitle);
+	}
+	
+	@Benchmark
+	public IMDbSearchByTitleParameters buildSearchByTitleParameters() {
+		return byTitle.toBuilder().offset(10).build();
+	}
+	
+	@Benchmark
+	public URL concatenatedSearchMovieByTitleUrl() throws MalformedURLException {
+		return new URL(concatenatedSearchMovieByTitleKey());
+	}
+	
+	@Benchmark
+	public String concatenatedSearchMovieByTitleKey() {
+		String year = "";
+		if (byTitle.isYearSet()) {
+			year = param(pair(IMDbConstants.YEAR_ENABLED, "1")) + 
+				   param(pair(IMDbConstants.YEAR, byTitle.getYear().toString()));
+		}
+		
+		return IMDbConstants.BASE_URL + 
+			   pair(IMDbConstants.TITLE, byTitle.getTitle()) + 
+			   param(pair(IMDbConstants.PLOT, byTitle.getPlot().getValue())) + 
+			   param(pair(IMDbConstants.EPISODE, (byTitle.isEpisode()) ? "1" : "0")) +
+			   param(pair(IMDbConstants.AKA, byTitle.getAka().getValue())) + 
+			   param(pair(IMDbConstants.RELEASE, byTitle.getRelease().getValue())) + 
+			   year +
+			   param(pair(IMDbConstants.MOVIE_TYPE, byTitle.getType().getValue())) + 
+			   param(pair(IMDbConstants.OFFSET, Integer.toString(byTitle.getOffset()))) + 
+			   param(pair(IMDbConstants.LIMIT, Integer.toString(byTitle.getLimit())));
+	}
+	
+	private static String pair(String prop, String value) {
+		return prop + "=" + value;
+	}
+	
+	private static String param(String par) {
+		return "&" + par;
+	}
+	
+}
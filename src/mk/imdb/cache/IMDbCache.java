@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.cache;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Interface of the response caches used by {@link mk.imdb.core.IMDbAPI}.
+ * <p>
+ * Entries are keyed by the canonical request URL and hold the raw response body with its validators. 
+ * Only successful responses are stored; an expired entry with validators is revalidated with a conditional 
+ * request, and stored again with a new expiry when the server answers 304 Not Modified. Implementations 
+ * must be thread safe.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public interface IMDbCache {
+
+	/**
+	 * Gets the entry stored under the given key. The entry is returned even if it is expired, 
+	 * the caller decides whether it can be used; an expired entry counts as a miss.
+	 * 
+	 * @param key The request key
+	 * @return The entry, or null if there is no entry for the key
+	 */
+	IMDbCacheEntry get(String key);
+	
+	/**
+	 * Stores the given entry, replacing the previous one.
+	 * 
+	 * @param key The request key
+	 * @param entry The entry
+	 */
+	void put(String key, IMDbCacheEntry entry);
+	
+	/**
+	 * Removes the entry stored under the given key.
+	 * 
+	 * @param key The request key
+	 */
+	void invalidate(String key);
+	
+	/**
+	 * Removes all the entries.
+	 */
+	void clear();
+	
+	/**
+	 * Gets the time to live of the new entries.
+	 * 
+	 * @return The time to live in milliseconds
+	 */
+	long getTimeToLive();
+	
+	/**
+	 * Gets a snapshot of the cache statistics.
+	 * 
+	 * @return The statistics
+	 */
+	IMDbCacheStats getStats();
+	
+	/**
+	 * Performs the given action on each entry, expired or not, e.g. to snapshot the cache 
+	 * (see {@link mk.imdb.io.IMDbSnapshot}). The entries put or removed meanwhile may be missed. 
+	 * The default implementation visits nothing: the caches that cannot list their entries are not snapshotted.
+	 * 
+	 * @param action The action, called with the key and the entry
+	 */
+	default void forEach(BiConsumer<? super String, ? super IMDbCacheEntry> action) {}
+	
+}
@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.cache;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import mk.imdb.utils.ByteBufferInputStream;
+
+/**
+ * Class that represents a cached response body, with the validators (ETag and Last-Modified) 
+ * used to revalidate it with a conditional request once it is expired.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class IMDbCacheEntry {
+
+	/**
+	 * The response body (read only).
+	 */
+	private final ByteBuffer body;
+	
+	/**
+	 * When the response was stored (milliseconds since the epoch).
+	 */
+	private final long storedAt;
+	
+	/**
+	 * When the entry expires (milliseconds since the epoch).
+	 */
+	private final long expiresAt;
+	
+	/**
+	 * The entity tag of the response (null if none).
+	 */
+	private final String etag;
+	
+	/**
+	 * The last modification date of the response, as sent by the server (null if none).
+	 */
+	private final String lastModified;
+	
+	/**
+	 * Creates a new entry without validators.
+	 * 
+	 * @param body The response body (UTF-8 encoded)
+	 * @param storedAt When the response was stored
+	 * @param expiresAt When the entry expires
+	 */
+	public IMDbCacheEntry(ByteBuffer body, long storedAt, long expiresAt) {
+		this(body, storedAt, expiresAt, null, null);
+	}
+	
+	/**
+	 * Creates a new entry without validators.
+	 * 
+	 * @param body The response body (UTF-8 encoded)
+	 * @param storedAt When the response was stored
+	 * @param expiresAt When the entry expires
+	 */
+	public IMDbCacheEntry(byte[] body, long storedAt, long expiresAt) {
+		this(ByteBuffer.wrap(body), storedAt, expiresAt, null, null);
+	}
+	
+	/**
+	 * Creates a new entry.
+	 * 
+	 * @param body The response body (UTF-8 encoded)
+	 * @param storedAt When the response was stored
+	 * @param expiresAt When the entry expires
+	 * @param etag The ETag header of the response (may be null)
+	 * @param lastModified The Last-Modified header of the response (may be null)
+	 */
+	public IMDbCacheEntry(ByteBuffer body, long storedAt, long expiresAt, String etag, String lastModified) {
+		this.body = body.asReadOnlyBuffer();
+		this.storedAt = storedAt;
+		this.expiresAt = expiresAt;
+		this.etag = emptyToNull(etag);
+		this.lastModified = emptyToNull(lastModified);
+	}
+	
+	/**
+	 * Creates a new entry.
+	 * 
+	 * @param body The response body (UTF-8 encoded)
+	 * @param storedAt When the response was stored
+	 * @param expiresAt When the entry expires
+	 * @param etag The ETag header of the response (may be null)
+	 * @param lastModified The Last-Modified header of the response (may be null)
+	 */
+	public IMDbCacheEntry(byte[] body, long storedAt, long expiresAt, String etag, String lastModified) {
+		this(ByteBuffer.wrap(body), storedAt, expiresAt, etag, lastModified);
+	}
+	
+	/**
+	 * Creates the entry that replaces this one after the server confirmed it is still valid (HTTP 304). 
+	 * The body is shared; the validators sent with the confirmation replace the stored ones.
+	 * 
+	 * @param storedAt When the entry was revalidated
+	 * @param expiresAt When the revalidated entry expires
+	 * @param etag The ETag header of the confirmation (null keeps the current one)
+	 * @param lastModified The Last-Modified header of the confirmation (null keeps the current one)
+	 * @return The revalidated entry
+	 */
+	public IMDbCacheEntry revalidate(long storedAt, long expiresAt, String etag, String lastModified) {
+		return new IMDbCacheEntry(body, storedAt, expiresAt, (etag != null) ? etag : this.etag, 
+								  (lastModified != null) ? lastModified : this.lastModified);
+	}
+	
+	/**
+	 * Normalizes a missing header value.
+	 * 
+	 * @param value The header value
+	 * @return The value, or null if it is null or empty
+	 */
+	private static String emptyToNull(String value) {
+		return (value == null || value.isEmpty()) ? null : value;
+	}
+	
+	//region Getters
+	
+	/**
+	 * Gets the response body.
+	 * 
+	 * @return A read only view of the body
+	 */
+	public ByteBuffer getBody() {
+		return body.duplicate();
+	}
+	
+	/**
+	 * Opens a stream over the response body.
+	 * 
+	 * @return The body stream
+	 */
+	public InputStream openBody() {
+		return new ByteBufferInputStream(body.duplicate());
+	}
+	
+	/**
+	 * Decodes the response body.
+	 * 
+	 * @return The body string
+	 */
+	public String getBodyAsString() {
+		return StandardCharsets.UTF_8.decode(body.duplicate()).toString();
+	}
+	
+	/**
+	 * Gets the body size.
+	 * 
+	 * @return The size in bytes
+	 */
+	public int size() {
+		return body.remaining();
+	}
+	
+	/**
+	 * Gets when the response was stored.
+	 * 
+	 * @return The milliseconds since the epoch
+	 */
+	public long getStoredAt() {
+		return storedAt;
+	}
+	
+	/**
+	 * Gets when the entry expires.
+	 * 
+	 * @return The milliseconds since the epoch
+	 */
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+	
+	/**
+	 * Gets whether the entry is expired at the given time.
+	 * 
+	 * @param now The current time in milliseconds
+	 * @return Whether the entry is expired
+	 */
+	public boolean isExpired(long now) {
+		return now >= expiresAt;
+	}
+	
+	/**
+	 * Gets the entity tag of the response.
+	 * 
+	 * @return The ETag header, or null
+	 */
+	public String getETag() {
+		return etag;
+	}
+	
+	/**
+	 * Gets the last modification date of the response.
+	 * 
+	 * @return The Last-Modified header, or null
+	 */
+	public String getLastModified() {
+		return lastModified;
+	}
+	
+	/**
+	 * Checks whether the entry can be revalidated with a conditional request.
+	 * 
+	 * @return Whether the entry has an ETag or a Last-Modified date
+	 */
+	public boolean hasValidators() {
+		return etag != null || lastModified != null;
+	}
+	
+	//endregion
+	
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.cache;
+
+/**
+ * Immutable snapshot of the statistics of a cache.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class IMDbCacheStats {
+
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final long entries;
+	private final long bytes;
+	
+	/**
+	 * Creates a new snapshot.
+	 * 
+	 * @param hits The number of lookups that found a fresh entry
+	 * @param misses The number of lookups that found no entry or an expired one
+	 * @param evictions The number of entries evicted to respect the size bound
+	 * @param entries The current number of entries
+	 * @param bytes The approximate current size in bytes
+	 */
+	public IMDbCacheStats(long hits, long misses, long evictions, long entries, long bytes) {
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.entries = entries;
+		this.bytes = bytes;
+	}
+	
+	//region Getters
+	
+	public long getHits() {
+		return hits;
+	}
+	
+	public long getMisses() {
+		return misses;
+	}
+	
+	public long getEvictions() {
+		return evictions;
+	}
+	
+	public long getEntries() {
+		return entries;
+	}
+	
+	public long getBytes() {
+		return bytes;
+	}
+	
+	/**
+	 * Gets the ratio between the hits and the lookups.
+	 * 
+	 * @return The hit rate (0 if there were no lookups)
+	 */
+	public double getHitRate() {
+		long lookups = hits + misses;
+		return (lookups == 0) ? 0 : (double) hits / lookups;
+	}
+	
+	//endregion
+	
+	@Override
+	public String toString() {
+		return "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", entries=" + entries + ", bytes=" + bytes;
+	}
+	
+}
@@ -0,0 +1,601 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import mk.imdb.utils.Log;
+import mk.imdb.utils.Log.Level;
+
+/**
+ * Persistent {@link IMDbCache} backed by an append-only, memory-mapped segment file.
+ * <p>
+ * Every put (and every invalidation, as a tombstone) is appended to the segment; an in-memory index maps 
+ * each key to its latest record. The bodies returned by {@link #get(String)} are read-only views of the 
+ * mapped segment, so hits are served without copying. Each record carries a CRC32 checksum: when the file 
+ * is opened, it is scanned and truncated after the last intact record, so a crash in the middle of an append 
+ * loses at most that record. The superseded records are dropped by a background compaction, which rewrites 
+ * the live records to a new file and atomically replaces the segment.
+ * <p>
+ * File layout: a 16 bytes header (magic, version, reserved) followed by the records. A record is 
+ * <code>[payload length:int][crc32:int][stored at:long][expires at:long][key length:short][key]
+ * [etag length:short][etag][last modified length:short][last modified][body length:int][body]</code>, 
+ * where a body length of -1 marks a tombstone and an empty validator is a missing one. A segment is 
+ * limited to 2 GB. The segments of version 1, whose records have no validators, are upgraded when opened.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbDiskCache implements IMDbCache, Closeable {
+
+	//region Constants
+	
+	private static final int MAGIC = 0x4D4B4943; // "MKIC"
+	private static final int VERSION = 2;
+	private static final int VERSION_1 = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int RECORD_HEADER_SIZE = 8;
+	private static final int INITIAL_CAPACITY = 1 << 20;
+	private static final int TOMBSTONE = -1;
+	
+	/**
+	 * The fraction of dead bytes that triggers a background compaction.
+	 */
+	private static final double COMPACTION_RATIO = 0.5;
+	
+	/**
+	 * The minimum number of dead bytes that triggers a background compaction.
+	 */
+	private static final long COMPACTION_MIN_BYTES = 1 << 20;
+	
+	//endregion
+	
+	//region Fields
+	
+	/**
+	 * The segment file.
+	 */
+	private final Path path;
+	
+	/**
+	 * The time to live of the entries in milliseconds.
+	 */
+	private final long ttl;
+	
+	/**
+	 * The location of the latest record of each key.
+	 */
+	private final Map<String, Location> index = new ConcurrentHashMap<String, Location>();
+	
+	/**
+	 * Guards the segment: gets share it, appends and compactions own it.
+	 */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	/**
+	 * The compaction scheduler.
+	 */
+	private final ScheduledExecutorService compactor;
+	
+	private FileChannel channel;
+	private MappedByteBuffer segment;
+	private int writePos;
+	private long deadBytes;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	
+	//endregion
+	
+	/**
+	 * Opens (or creates) the cache stored in the given file, recovering its records.
+	 * 
+	 * @param path The segment file
+	 * @param ttl The time to live of the entries in milliseconds
+	 * @throws IOException Throws if the file cannot be opened or it is not a cache segment
+	 */
+	public IMDbDiskCache(Path path, long ttl) throws IOException {
+		this.path = path;
+		this.ttl = Math.max(0, ttl);
+		
+		Files.deleteIfExists(compactionPath());
+		open();
+		
+		compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "mkimdb-cache-compactor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		compactor.scheduleWithFixedDelay(() -> {
+			try {
+				if (needsCompaction()) compact();
+			} catch (IOException e) {
+				Log.print(e);
+			}
+		}, 30, 30, TimeUnit.SECONDS);
+	}
+	
+	//region IMDbCache
+	
+	@Override
+	public IMDbCacheEntry get(String key) {
+		lock.readLock().lock();
+		try {
+			Location location = index.get(key);
+			if (location == null) {
+				misses.increment();
+				return null;
+			}
+			
+			if (location.expiresAt <= System.currentTimeMillis()) misses.increment();
+			else hits.increment();
+			
+			return entry(location);
+			
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The entries are collected under the read lock and visited after releasing it, so the action can 
+	 * use the cache; their bodies are views of the segment, as for {@link #get(String)}.
+	 */
+	@Override
+	public void forEach(BiConsumer<? super String, ? super IMDbCacheEntry> action) {
+		List<Map.Entry<String, IMDbCacheEntry>> entries;
+		lock.readLock().lock();
+		try {
+			entries = new ArrayList<Map.Entry<String, IMDbCacheEntry>>(index.size());
+			for (Map.Entry<String, Location> entry : index.entrySet()) {
+				entries.add(new AbstractMap.SimpleImmutableEntry<String, IMDbCacheEntry>(entry.getKey(), entry(entry.getValue())));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		
+		for (Map.Entry<String, IMDbCacheEntry> entry : entries) {
+			action.accept(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public void put(String key, IMDbCacheEntry entry) {
+		lock.writeLock().lock();
+		try {
+			append(key, entry);
+		} catch (IOException e) {
+			Log.print(e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void invalidate(String key) {
+		lock.writeLock().lock();
+		try {
+			if (index.containsKey(key)) append(key, null);
+		} catch (IOException e) {
+			Log.print(e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			evictions.add(index.size());
+			index.clear();
+			rewrite();
+		} catch (IOException e) {
+			Log.print(e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public long getTimeToLive() {
+		return ttl;
+	}
+
+	@Override
+	public IMDbCacheStats getStats() {
+		lock.readLock().lock();
+		try {
+			return new IMDbCacheStats(hits.sum(), misses.sum(), evictions.sum(), index.size(), writePos - HEADER_SIZE - deadBytes);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	//endregion
+	
+	//region Segment management
+	
+	/**
+	 * Rewrites the live records to a new segment, dropping the superseded ones and the tombstones.
+	 * 
+	 * @throws IOException Throws if the new segment cannot be written
+	 */
+	public void compact() throws IOException {
+		lock.writeLock().lock();
+		try {
+			rewrite();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Forces the appended records to the storage device.
+	 */
+	public void flush() {
+		lock.writeLock().lock();
+		try {
+			segment.force();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Stops the compaction, flushes and closes the segment.
+	 */
+	@Override
+	public void close() throws IOException {
+		compactor.shutdownNow();
+		lock.writeLock().lock();
+		try {
+			segment.force();
+			channel.truncate(writePos);
+			channel.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	private boolean needsCompaction() {
+		lock.readLock().lock();
+		try {
+			return deadBytes >= COMPACTION_MIN_BYTES && deadBytes >= writePos * COMPACTION_RATIO;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	private Path compactionPath() {
+		return Paths.get(path.toString() + ".compact");
+	}
+	
+	/**
+	 * Opens the segment and rebuilds the index, truncating the file after the last intact record.
+	 */
+	private void open() throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		
+		long size = channel.size();
+		if (size > Integer.MAX_VALUE) throw new IOException("Cache segment too large: " + path);
+		segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_CAPACITY, size));
+		
+		if (size == 0) {
+			segment.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, 0L);
+			writePos = HEADER_SIZE;
+			deadBytes = 0;
+			return;
+		}
+		
+		int version = (size < HEADER_SIZE) ? 0 : segment.getInt(4);
+		if (size < HEADER_SIZE || segment.getInt(0) != MAGIC || (version != VERSION && version != VERSION_1)) {
+			channel.close();
+			throw new IOException("Not a cache segment: " + path);
+		}
+		
+		index.clear();
+		writePos = HEADER_SIZE;
+		deadBytes = 0;
+		
+		CRC32 crc = new CRC32();
+		for (int pos = HEADER_SIZE; pos + RECORD_HEADER_SIZE <= size;) {
+			int length = segment.getInt(pos);
+			if (length <= 0 || pos + RECORD_HEADER_SIZE + (long) length > size) break;
+			
+			ByteBuffer payload = segment.duplicate();
+			payload.limit(pos + RECORD_HEADER_SIZE + length).position(pos + RECORD_HEADER_SIZE);
+			crc.reset();
+			crc.update(payload);
+			if ((int) crc.getValue() != segment.getInt(pos + 4)) break;
+			
+			index(pos, length, version);
+			pos += RECORD_HEADER_SIZE + length;
+			writePos = pos;
+		}
+		
+		if (writePos < size) {
+			// A segment not closed cleanly keeps the zeros the file was grown with: only the bytes before them are lost.
+			final long discarded = writtenEnd(writePos, (int) size) - writePos;
+			if (discarded > 0) {
+				Log.print(Level.WARN, () -> "Cache segment " + path + ": discarded " + discarded + " bytes after the last intact record.");
+			}
+			segment.put(writePos, (byte) 0);
+		}
+		
+		if (version == VERSION_1) upgrade();
+	}
+	
+	/**
+	 * Gets the end of the written bytes of the segment, skipping the trailing zeros.
+	 * 
+	 * @param from The position where to stop
+	 * @param size The size of the file
+	 * @return The position after the last non-zero byte, or the given start if there is none
+	 */
+	private int writtenEnd(int from, int size) {
+		int end = size;
+		while (end - 8 >= from && segment.getLong(end - 8) == 0) end -= 8;
+		while (end > from && segment.get(end - 1) == 0) end--;
+		return end;
+	}
+	
+	/**
+	 * Rewrites the indexed records of a version 1 segment in the current format, and replaces the segment.
+	 */
+	private void upgrade() throws IOException {
+		Map<String, IMDbCacheEntry> live = new HashMap<String, IMDbCacheEntry>();
+		for (Map.Entry<String, Location> entry : index.entrySet()) {
+			Location location = entry.getValue();
+			ByteBuffer body = segment.duplicate();
+			body.limit(location.bodyOffset + location.bodyLength).position(location.bodyOffset);
+			live.put(entry.getKey(), new IMDbCacheEntry(body.slice(), location.storedAt, location.expiresAt));
+		}
+		
+		segment.force();
+		channel.close();
+		
+		Path target = compactionPath();
+		Files.deleteIfExists(target);
+		channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_CAPACITY);
+		segment.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, 0L);
+		writePos = HEADER_SIZE;
+		deadBytes = 0;
+		index.clear();
+		
+		for (Map.Entry<String, IMDbCacheEntry> entry : live.entrySet()) {
+			append(entry.getKey(), entry.getValue());
+		}
+		segment.force();
+		channel.truncate(writePos);
+		channel.close();
+		
+		Files.move(target, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		Log.print(Level.INFO, () -> "Cache segment " + path + ": upgraded to version " + VERSION + ".");
+		open();
+	}
+	
+	/**
+	 * Updates the index with the record at the given position, written in the given format version.
+	 */
+	private void index(int pos, int length, int version) {
+		int p = pos + RECORD_HEADER_SIZE;
+		long storedAt = segment.getLong(p);
+		long expiresAt = segment.getLong(p + 8);
+		
+		int q = p + 16;
+		String key = readString(q);
+		q += 2 + (segment.getShort(q) & 0xFFFF);
+		
+		String etag = null;
+		String lastModified = null;
+		if (version != VERSION_1) {
+			etag = readString(q);
+			q += 2 + (segment.getShort(q) & 0xFFFF);
+			lastModified = readString(q);
+			q += 2 + (segment.getShort(q) & 0xFFFF);
+		}
+		
+		int bodyLength = segment.getInt(q);
+		int recordSize = RECORD_HEADER_SIZE + length;
+		
+		Location old;
+		if (bodyLength == TOMBSTONE) {
+			old = index.remove(key);
+			deadBytes += recordSize;
+		} else {
+			old = index.put(key, new Location(q + 4, bodyLength, storedAt, expiresAt, etag, lastModified, recordSize));
+		}
+		if (old != null) deadBytes += old.recordSize;
+	}
+	
+	/**
+	 * Makes the entry of a record, with its body as a view of the segment. The caller holds the lock.
+	 */
+	private IMDbCacheEntry entry(Location location) {
+		ByteBuffer body = segment.duplicate();
+		body.limit(location.bodyOffset + location.bodyLength).position(location.bodyOffset);
+		return new IMDbCacheEntry(body.slice(), location.storedAt, location.expiresAt, location.etag, location.lastModified);
+	}
+	
+	/**
+	 * Reads a string stored as [length:short][UTF-8 bytes] at the given position.
+	 * 
+	 * @return The string, or null if it is empty
+	 */
+	private String readString(int pos) {
+		int length = segment.getShort(pos) & 0xFFFF;
+		if (length == 0) return null;
+		
+		byte[] bytes = new byte[length];
+		ByteBuffer buffer = segment.duplicate();
+		buffer.position(pos + 2);
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Appends a record (a tombstone when the entry is null). The caller holds the write lock.
+	 */
+	private void append(String key, IMDbCacheEntry entry) throws IOException {
+		byte[] keyBytes = bytes(key, "Cache key too long: ");
+		byte[] etag = (entry == null) ? new byte[0] : bytes(entry.getETag(), "ETag too long: ");
+		byte[] lastModified = (entry == null) ? new byte[0] : bytes(entry.getLastModified(), "Last-Modified too long: ");
+		ByteBuffer body = (entry == null) ? null : entry.getBody();
+		
+		int bodyLength = (body == null) ? 0 : body.remaining();
+		long length = 26L + keyBytes.length + etag.length + lastModified.length + bodyLength;
+		ensureCapacity(writePos + RECORD_HEADER_SIZE + length);
+		
+		int p = writePos + RECORD_HEADER_SIZE;
+		ByteBuffer out = segment.duplicate();
+		out.position(p);
+		out.putLong((entry == null) ? 0 : entry.getStoredAt()).putLong((entry == null) ? 0 : entry.getExpiresAt());
+		out.putShort((short) keyBytes.length).put(keyBytes);
+		out.putShort((short) etag.length).put(etag);
+		out.putShort((short) lastModified.length).put(lastModified);
+		out.putInt((body == null) ? TOMBSTONE : bodyLength);
+		if (body != null) out.put(body);
+		
+		ByteBuffer payload = segment.duplicate();
+		payload.limit(p + (int) length).position(p);
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		
+		segment.putInt(writePos + 4, (int) crc.getValue());
+		segment.putInt(writePos, (int) length);
+		
+		int pos = writePos;
+		writePos += RECORD_HEADER_SIZE + (int) length;
+		if (writePos < segment.capacity()) segment.put(writePos, (byte) 0);
+		
+		index(pos, (int) length, VERSION);
+	}
+	
+	/**
+	 * Encodes a string of a record.
+	 * 
+	 * @param value The string (null is stored as empty)
+	 * @param error The message if the string is too long
+	 * @return The UTF-8 bytes
+	 * @throws IOException Throws if the string does not fit in a record field
+	 */
+	private static byte[] bytes(String value, String error) throws IOException {
+		if (value == null) return new byte[0];
+		
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > 0xFFFF) throw new IOException(error + value);
+		return bytes;
+	}
+	
+	/**
+	 * Grows the file and remaps it. The views handed out before stay valid on the old mapping.
+	 */
+	private void ensureCapacity(long required) throws IOException {
+		if (required <= segment.capacity()) return;
+		if (required > Integer.MAX_VALUE) throw new IOException("Cache segment full: " + path);
+		
+		long capacity = Math.min(Integer.MAX_VALUE, Math.max(required, 2L * segment.capacity()));
+		segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+	}
+	
+	/**
+	 * Writes the live records to a new file and replaces the segment with it. The caller holds the write lock.
+	 */
+	private void rewrite() throws IOException {
+		Path target = compactionPath();
+		Map<String, Location> live = new HashMap<String, Location>(index);
+		
+		try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putLong(0L);
+			header.flip();
+			while (header.hasRemaining()) out.write(header);
+			
+			for (Location location : live.values()) {
+				ByteBuffer record = segment.duplicate();
+				int start = location.bodyOffset + location.bodyLength - location.recordSize;
+				record.limit(start + location.recordSize).position(start);
+				while (record.hasRemaining()) out.write(record);
+			}
+			out.force(true);
+		}
+		
+		segment.force();
+		channel.close();
+		Files.move(target, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		open();
+	}
+	
+	/**
+	 * The location of a record in the segment.
+	 */
+	private static final class Location {
+		
+		private final int bodyOffset;
+		private final int bodyLength;
+		private final long storedAt;
+		private final long expiresAt;
+		private final String etag;
+		private final String lastModified;
+		private final int recordSize;
+		
+		private Location(int bodyOffset, int bodyLength, long storedAt, long expiresAt, String etag, String lastModified, int recordSize) {
+			this.bodyOffset = bodyOffset;
+			this.bodyLength = bodyLength;
+			this.storedAt = storedAt;
+			this.expiresAt = expiresAt;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.recordSize = recordSize;
+		}
+	}
+	
+	//endregion
+	
+}
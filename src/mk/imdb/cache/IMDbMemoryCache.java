@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.cache;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.concurrent.atomic.LongAdder;
+
+import mk.imdb.utils.Segments;
+
+/**
+ * Bounded in-memory {@link IMDbCache}.
+ * <p>
+ * The keys are spread over up to 16 lock-striped segments (fewer for small bounds), each one an access ordered map 
+ * that evicts its least recently used entries when it exceeds its share of the bounds. The bounds are 
+ * therefore approximate: the cache never holds more than the given entries and bytes, but it may evict 
+ * before reaching them when the keys are unevenly spread. The size of an entry is estimated as its body 
+ * length, plus two bytes per key character, plus a fixed overhead.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbMemoryCache implements IMDbCache {
+
+	//region Fields
+	
+	/**
+	 * Maximum number of segments (power of two).
+	 */
+	private static final int SEGMENTS = 16;
+	
+	/**
+	 * Estimated overhead of an entry in bytes (map node, entry and buffer headers).
+	 */
+	private static final int ENTRY_OVERHEAD = 128;
+	
+	/**
+	 * The segments.
+	 */
+	private final Segment[] segments;
+	
+	/**
+	 * The time to live of the entries in milliseconds.
+	 */
+	private final long ttl;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	
+	//endregion
+	
+	/**
+	 * Creates a new cache bounded by the number of entries.
+	 * 
+	 * @param maxEntries The maximum number of entries
+	 * @param ttl The time to live of the entries in milliseconds
+	 */
+	public IMDbMemoryCache(int maxEntries, long ttl) {
+		this(maxEntries, Long.MAX_VALUE, ttl);
+	}
+	
+	/**
+	 * Creates a new cache bounded by the number of entries and by their approximate size.
+	 * 
+	 * @param maxEntries The maximum number of entries
+	 * @param maxBytes The maximum size in bytes
+	 * @param ttl The time to live of the entries in milliseconds
+	 */
+	public IMDbMemoryCache(int maxEntries, long maxBytes, long ttl) {
+		this.ttl = Math.max(0, ttl);
+		
+		maxEntries = Math.max(1, maxEntries);
+		segments = new Segment[Segments.count(maxEntries, SEGMENTS)];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = new Segment((int) Segments.share(maxEntries, segments.length, i), Segments.share(maxBytes, segments.length, i));
+		}
+	}
+	
+	//region IMDbCache
+	
+	@Override
+	public IMDbCacheEntry get(String key) {
+		IMDbCacheEntry entry = segment(key).get(key);
+		
+		if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return entry;
+	}
+
+	@Override
+	public void put(String key, IMDbCacheEntry entry) {
+		evictions.add(segment(key).put(key, entry));
+	}
+
+	@Override
+	public void invalidate(String key) {
+		segment(key).remove(key);
+	}
+
+	@Override
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+	
+	@Override
+	public long getTimeToLive() {
+		return ttl;
+	}
+
+	@Override
+	public IMDbCacheStats getStats() {
+		long entries = 0, bytes = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				entries += segment.map.size();
+				bytes += segment.bytes;
+			}
+		}
+		return new IMDbCacheStats(hits.sum(), misses.sum(), evictions.sum(), entries, bytes);
+	}
+	
+	/**
+	 * Performs the given action on each entry. Each segment is copied under its lock, 
+	 * the action is called outside it, without changing the eviction order.
+	 */
+	@Override
+	public void forEach(BiConsumer<? super String, ? super IMDbCacheEntry> action) {
+		for (Segment segment : segments) {
+			List<Map.Entry<String, IMDbCacheEntry>> entries;
+			synchronized (segment) {
+				entries = new ArrayList<Map.Entry<String, IMDbCacheEntry>>(segment.map.size());
+				for (Map.Entry<String, IMDbCacheEntry> entry : segment.map.entrySet()) {
+					entries.add(new AbstractMap.SimpleImmutableEntry<String, IMDbCacheEntry>(entry));
+				}
+			}
+			
+			for (Map.Entry<String, IMDbCacheEntry> entry : entries) {
+				action.accept(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+	
+	//endregion
+	
+	//region Utilities
+	
+	private Segment segment(String key) {
+		return segments[Segments.index(key.hashCode(), segments.length)];
+	}
+	
+	private static long weight(String key, IMDbCacheEntry entry) {
+		return ENTRY_OVERHEAD + 2L * key.length() + entry.size();
+	}
+	
+	/**
+	 * A lock-protected LRU map.
+	 */
+	private static final class Segment {
+		
+		private final LinkedHashMap<String, IMDbCacheEntry> map = new LinkedHashMap<String, IMDbCacheEntry>(16, 0.75f, true);
+		private final int maxEntries;
+		private final long maxBytes;
+		private long bytes = 0;
+		
+		private Segment(int maxEntries, long maxBytes) {
+			this.maxEntries = maxEntries;
+			this.maxBytes = maxBytes;
+		}
+		
+		private synchronized IMDbCacheEntry get(String key) {
+			return map.get(key);
+		}
+		
+		/**
+		 * Stores the entry and returns the number of evicted ones.
+		 */
+		private synchronized int put(String key, IMDbCacheEntry entry) {
+			IMDbCacheEntry old = map.put(key, entry);
+			if (old != null) bytes -= weight(key, old);
+			bytes += weight(key, entry);
+			
+			int evicted = 0;
+			Iterator<Map.Entry<String, IMDbCacheEntry>> it = map.entrySet().iterator();
+			while ((map.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+				Map.Entry<String, IMDbCacheEntry> eldest = it.next();
+				bytes -= weight(eldest.getKey(), eldest.getValue());
+				it.remove();
+				evicted++;
+			}
+			return evicted;
+		}
+		
+		private synchronized void remove(String key) {
+			IMDbCacheEntry old = map.remove(key);
+			if (old != null) bytes -= weight(key, old);
+		}
+		
+		private synchronized void clear() {
+			map.clear();
+			bytes = 0;
+		}
+	}
+	
+	//endregion
+	
+}
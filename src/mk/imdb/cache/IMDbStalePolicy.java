@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.cache;
+
+/**
+ * Enumeration of the policies that decide when an expired cache entry can be served.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public enum IMDbStalePolicy {
+
+	/**
+	 * Expired entries are never served.
+	 */
+	NEVER,
+	
+	/**
+	 * Expired entries are served when the server cannot be reached or answers with an error.
+	 */
+	ON_ERROR,
+	
+	/**
+	 * Expired entries are served at once, while a background request revalidates them 
+	 * (stale-while-revalidate); they are also served when the server cannot be reached.
+	 */
+	WHILE_REVALIDATE;
+	
+}
@@ -20,17 +20,53 @@
 
 package mk.imdb.core;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
+import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import mk.imdb.cache.IMDbCache;
+import mk.imdb.cache.IMDbCacheEntry;
+import mk.imdb.cache.IMDbStalePolicy;
+import mk.imdb.entity.IMDbMovie;
+import mk.imdb.exception.IMDbResponseException;
+import mk.imdb.index.IMDbTitleIndex;
+import mk.imdb.io.IMDbSnapshot;
+import mk.imdb.metrics.IMDbMetrics;
+import mk.imdb.metrics.IMDbOperation;
 import mk.imdb.response.IMDbResponseArray;
 import mk.imdb.response.IMDbResponseObject;
 import mk.imdb.response.IMDbStatus;
+import mk.imdb.utils.CountingInputStream;
+import mk.imdb.utils.JSONPullParser;
 import mk.imdb.utils.Log;
+import mk.imdb.utils.Log.Level;
+import mk.imdb.utils.Parallel;
 import net.sf.json.JSONObject;
 import net.sf.json.JSONSerializer;
 
@@ -45,7 +81,7 @@ public final class IMDbAPI {
 	//region Timeout
 	
 	/**
-	 * Timeout in milliseconds.
+	 * Read timeout in milliseconds. The connect timeout is a property of the transport.
 	 */
 	private static int timeout = 20000; // 20 seconds
 	
@@ -58,49 +94,1010 @@ public final class IMDbAPI {
 		timeout = limit;
 	}
 	
+	//endregion
+	
+	//region Retry
+	
+	/**
+	 * The retry policy of the failed requests.
+	 */
+	private static volatile IMDbRetryPolicy retryPolicy = IMDbRetryPolicy.NONE;
+	
+	/**
+	 * Gets the retry policy of the failed requests.
+	 * 
+	 * @return The retry policy
+	 */
+	public static IMDbRetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+	
+	/**
+	 * Sets the retry policy of the failed requests. If the given policy is null 
+	 * the default one ({@link IMDbRetryPolicy#NONE}, no retries) is restored.
+	 * 
+	 * @param policy The new retry policy
+	 */
+	public static void setRetryPolicy(IMDbRetryPolicy policy) {
+		retryPolicy = (policy != null) ? policy : IMDbRetryPolicy.NONE;
+	}
+	
+	//endregion
+	
+	//region Rate limiting
+	
+	/**
+	 * The rate limiter of the requests (null for none).
+	 */
+	private static volatile IMDbRateLimiter rateLimiter = null;
+	
+	/**
+	 * The maximum wait for a permit in milliseconds (negative to wait as long as needed).
+	 */
+	private static volatile long rateLimitMaxWait = -1;
+	
+	/**
+	 * Gets the rate limiter of the requests.
+	 * 
+	 * @return The rate limiter, or null
+	 */
+	public static IMDbRateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+	
+	/**
+	 * Gets the maximum wait for a permit of the rate limiter.
+	 * 
+	 * @return The maximum wait in milliseconds (negative if unbounded)
+	 */
+	public static long getRateLimitMaxWait() {
+		return rateLimitMaxWait;
+	}
+	
+	/**
+	 * Sets the rate limiter applied before each request (retries included), shared by all the callers. 
+	 * The requests wait for their permit as long as needed, within the deadline of the retry policy if any.
+	 * 
+	 * @param limiter The new rate limiter, or null to disable the rate limiting
+	 */
+	public static void setRateLimiter(IMDbRateLimiter limiter) {
+		setRateLimiter(limiter, -1);
+	}
+	
+	/**
+	 * Sets the rate limiter applied before each request (retries included), shared by all the callers. 
+	 * The requests that cannot get a permit within the given time fail with {@link IMDbStatus#RATE_LIMITED}.
+	 * 
+	 * @param limiter The new rate limiter, or null to disable the rate limiting
+	 * @param maxWait The maximum wait for a permit in milliseconds (0 never waits, negative waits as long as needed)
+	 */
+	public static void setRateLimiter(IMDbRateLimiter limiter, long maxWait) {
+		rateLimitMaxWait = maxWait;
+		rateLimiter = limiter;
+	}
+	
+	/**
+	 * Acquires a permit from the rate limiter, if any. The wait is cut to the time left before the deadline of the call.
+	 * 
+	 * @param deadline The deadline of the call in milliseconds since the epoch (0 for none)
+	 * @throws IMDbStatusException Throws if the permit is not available within the maximum wait 
+	 * ({@link IMDbStatus#RATE_LIMITED}) or before the deadline ({@link IMDbStatus#TIMEOUT})
+	 */
+	private static void acquirePermit(long deadline) throws IMDbStatusException {
+		if (deadline != 0 && System.currentTimeMillis() >= deadline) throw new IMDbStatusException(IMDbStatus.TIMEOUT);
+		
+		IMDbRateLimiter limiter = rateLimiter;
+		if (limiter == null) return;
+		
+		long maxWait = rateLimitMaxWait;
+		long left = (deadline != 0) ? Math.max(0, deadline - System.currentTimeMillis()) : -1;
+		boolean bounded = left >= 0 && (maxWait < 0 || left < maxWait);
+		if (bounded) maxWait = left;
+		
+		long waited = (maxWait < 0) ? limiter.acquire() : limiter.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+		if (waited < 0) {
+			if (bounded) throw new IMDbStatusException(IMDbStatus.TIMEOUT);
+			
+			IMDbMetrics.rateLimited();
+			throw new IMDbStatusException(IMDbStatus.RATE_LIMITED);
+		}
+		IMDbMetrics.permitWait(waited);
+	}
+	
+	//endregion
+	
+	//region Circuit breaker
+	
+	/**
+	 * The circuit breaker of the requests (null for none).
+	 */
+	private static volatile IMDbCircuitBreaker circuitBreaker = null;
+	
+	/**
+	 * Gets the circuit breaker of the requests.
+	 * 
+	 * @return The circuit breaker, or null
+	 */
+	public static IMDbCircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+	
+	/**
+	 * Sets the circuit breaker of the requests, shared by all the callers. Every attempt (retries included) 
+	 * asks the breaker first: while it is open the calls fail at once with {@link IMDbStatus#CIRCUIT_OPEN}, 
+	 * or serve the stale cached body if the stale policy allows it.
+	 * 
+	 * @param breaker The new circuit breaker, or null to disable it
+	 */
+	public static void setCircuitBreaker(IMDbCircuitBreaker breaker) {
+		circuitBreaker = breaker;
+	}
+	
+	/**
+	 * Asks the circuit breaker, if any, the permission to send a request.
+	 * 
+	 * @param breaker The circuit breaker (may be null)
+	 * @return The permit (0 without a breaker), or {@link IMDbCircuitBreaker#REJECTED} if the request cannot be sent
+	 */
+	private static long admit(IMDbCircuitBreaker breaker) {
+		if (breaker == null) return 0;
+		
+		long permit = breaker.tryAcquire();
+		if (permit == IMDbCircuitBreaker.REJECTED) IMDbMetrics.circuitRejected();
+		return permit;
+	}
+	
+	//endregion
+	
+	//region Paging
+	
+	/**
+	 * The number of results retrieved by each page request of a full search.
+	 */
+	static final int PAGE_SIZE = 5;
+	
+	/**
+	 * The maximum number of page requests of a full search that run at the same time.
+	 */
+	private static volatile int pageParallelism = 4;
+	
+	/**
+	 * Gets the maximum number of page requests of a full search that run at the same time.
+	 * 
+	 * @return The page parallelism
+	 */
+	public static int getPageParallelism() {
+		return pageParallelism;
+	}
+	
+	/**
+	 * Sets the maximum number of page requests of a full search that run at the same time.
+	 * 
+	 * @param parallelism The new page parallelism (at least 1)
+	 */
+	public static void setPageParallelism(int parallelism) {
+		if (parallelism < 1) parallelism = 1;
+		pageParallelism = parallelism;
+	}
+	
+	//endregion
+	
+	//region Coalescing
+	
+	/**
+	 * The coalescer of the identical requests in flight.
+	 */
+	private static final IMDbSingleFlight singleFlight = new IMDbSingleFlight();
+	
+	/**
+	 * Whether identical requests in flight are coalesced.
+	 */
+	private static volatile boolean coalescing = false;
+	
+	/**
+	 * Gets whether identical requests in flight are coalesced.
+	 * 
+	 * @return Whether coalescing is enabled
+	 */
+	public static boolean isCoalescing() {
+		return coalescing;
+	}
+	
+	/**
+	 * Sets whether identical requests in flight are coalesced. When enabled, concurrent searches that 
+	 * produce the same URL share a single HTTP call, and every caller gets the same response object 
+	 * (which must therefore be treated as read only).
+	 * 
+	 * @param enabled Whether coalescing is enabled
+	 */
+	public static void setCoalescing(boolean enabled) {
+		coalescing = enabled;
+	}
+	
+	/**
+	 * Gets the number of searches served by an identical request already in flight.
+	 * 
+	 * @return The number of coalesced calls
+	 */
+	public static long getCoalescedCalls() {
+		return singleFlight.getCoalescedCalls();
+	}
+	
+	/**
+	 * Runs the given call, sharing it with the identical ones in flight when coalescing is enabled.
+	 * 
+	 * @param kind What the call produces (calls of the same kind for the same URL are identical)
+	 * @param url The query URL
+	 * @param call The call
+	 * @return The result
+	 * @throws E Throws if the call fails
+	 */
+	private static <T, E extends Exception> T coalesce(Object kind, URL url, IMDbSingleFlight.Call<T, E> call) throws E {
+		if (!coalescing) return call.call();
+		return singleFlight.execute(new AbstractMap.SimpleImmutableEntry<Object, String>(kind, url.toString()), call);
+	}
+	
 	//endregion
 
-	//region Utilities
+	//region Transport
 	
 	/**
-	 * Makes an HTTP request (GET) and gets back the result as a string.
+	 * The transport used to make the HTTP requests.
+	 */
+	private static volatile IMDbTransport transport = new IMDbHttpTransport();
+	
+	/**
+	 * The headers sent with every request.
+	 */
+	private static final Map<String, String> HEADERS = Collections.singletonMap("User-Agent", IMDbConstants.USER_AGENT);
+	
+	/**
+	 * The status code of a conditional request whose cached entry is still valid.
+	 */
+	private static final int HTTP_NOT_MODIFIED = 304;
+	
+	/**
+	 * The status code of a request rejected because the client sends too many requests.
+	 */
+	private static final int HTTP_TOO_MANY_REQUESTS = 429;
+	
+	/**
+	 * Gets the transport used to make the HTTP requests.
+	 * 
+	 * @return The transport
+	 */
+	public static IMDbTransport getTransport() {
+		return transport;
+	}
+	
+	/**
+	 * Sets the transport used to make the HTTP requests.
+	 * If the given transport is null a new default one ({@link IMDbHttpTransport}) is created.
+	 * 
+	 * @param trans The new transport
+	 */
+	public static void setTransport(IMDbTransport trans) {
+		transport = (trans != null) ? trans : new IMDbHttpTransport();
+	}
+	
+	//endregion
+	
+	//region Cache
+	
+	/**
+	 * The response cache (null when caching is disabled).
+	 */
+	private static volatile IMDbCache cache = null;
+	
+	/**
+	 * The policy that decides when an expired cache entry can be served.
+	 */
+	private static volatile IMDbStalePolicy stalePolicy = IMDbStalePolicy.NEVER;
+	
+	/**
+	 * The keys whose entries are being revalidated in background.
+	 */
+	private static final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * Gets the response cache.
+	 * 
+	 * @return The cache, or null if caching is disabled
+	 */
+	public static IMDbCache getCache() {
+		return cache;
+	}
+	
+	/**
+	 * Sets the response cache. Only successful responses are stored, keyed by the request URL. 
+	 * The expired entries with an ETag or a Last-Modified date are revalidated with a conditional request.
+	 * 
+	 * @param c The new cache, or null to disable caching
+	 */
+	public static void setCache(IMDbCache c) {
+		cache = c;
+	}
+	
+	/**
+	 * Gets the policy that decides when an expired cache entry can be served.
+	 * 
+	 * @return The stale policy
+	 */
+	public static IMDbStalePolicy getStalePolicy() {
+		return stalePolicy;
+	}
+	
+	/**
+	 * Sets the policy that decides when an expired cache entry can be served.
+	 * 
+	 * @param policy The new stale policy (null means {@link IMDbStalePolicy#NEVER})
+	 */
+	public static void setStalePolicy(IMDbStalePolicy policy) {
+		stalePolicy = (policy != null) ? policy : IMDbStalePolicy.NEVER;
+	}
+	
+	/**
+	 * Gets the entry cached for the given key, even if it is expired.
+	 * 
+	 * @param c The cache (may be null)
+	 * @param key The request key
+	 * @return The entry, or null
+	 */
+	private static IMDbCacheEntry lookup(IMDbCache c, String key) {
+		return (c != null) ? c.get(key) : null;
+	}
+	
+	/**
+	 * Checks whether the given entry can be served without contacting the server.
+	 * 
+	 * @param entry The entry (may be null)
+	 * @return Whether the entry is fresh
+	 */
+	private static boolean isFresh(IMDbCacheEntry entry) {
+		return entry != null && !entry.isExpired(System.currentTimeMillis());
+	}
+	
+	/**
+	 * Checks whether the given expired entry can be served after a failed request.
+	 * 
+	 * @param entry The entry (may be null)
+	 * @return Whether the stale entry can be served
+	 */
+	private static boolean servesStale(IMDbCacheEntry entry) {
+		if (entry != null && stalePolicy != IMDbStalePolicy.NEVER) {
+			Log.print("Serving a stale cached response.");
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Checks whether the given expired entry can be served at once, and if so starts its background revalidation.
 	 * 
 	 * @param url The query URL
-	 * @return The result string
+	 * @param entry The entry (may be null)
+	 * @return Whether the stale entry can be served
 	 */
-	public static String makeApiCallGet(URL url) {
-		StringBuilder result = new StringBuilder();
+	private static boolean servesWhileRevalidating(URL url, IMDbCacheEntry entry) {
+		if (entry == null || stalePolicy != IMDbStalePolicy.WHILE_REVALIDATE) return false;
+		
+		refreshAsync(url);
+		return true;
+	}
+	
+	/**
+	 * Revalidates the cached entry of a URL on the executor, unless it is already being revalidated.
+	 * 
+	 * @param url The query URL
+	 */
+	private static void refreshAsync(final URL url) {
+		final String key = url.toString();
+		if (!refreshing.add(key)) return;
+		
 		try {
-			HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-			conn.setRequestMethod("GET");
-			conn.setReadTimeout(timeout);
-			conn.setRequestProperty("User-Agent", "Mozilla/5.0 (Windows; U; Windows NT 6.1; en-GB;     rv:1.9.2.13) Gecko/20101203 Firefox/3.6.13 (.NET CLR 3.5.30729)");
-			BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), "UTF-8"));
-			for (String line = null; (line = reader.readLine()) != null;) {
-			    result.append(line).append("\n");
+			executor.execute(() -> {
+				try {
+					refresh(url);
+				} finally {
+					refreshing.remove(key);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			refreshing.remove(key);
+			Log.print(Level.WARN, e);
+		}
+	}
+	
+	/**
+	 * Revalidates the cached entry of a URL with a conditional request (or fetches it again without validators), 
+	 * unless it is fresh. The body is not decoded.
+	 * 
+	 * @param url The query URL
+	 */
+	private static void refresh(URL url) {
+		try {
+			callAndHandle(url, body -> null, true);
+		} catch (IMDbResponseException e) {
+			Log.print(Level.DEBUG, () -> "Revalidation of " + url + " failed: " + e.getStatus());
+		}
+	}
+	
+	/**
+	 * Stores a response body with its validators, unless it reports an error status.
+	 * 
+	 * @param c The cache (may be null)
+	 * @param key The request key
+	 * @param response The response
+	 * @param body The response body
+	 * @param status The status reported by the body
+	 */
+	private static void store(IMDbCache c, String key, IMDbTransportResponse response, byte[] body, IMDbStatus status) {
+		if (c == null || status != IMDbStatus.NONE) return;
+		
+		long now = System.currentTimeMillis();
+		c.put(key, new IMDbCacheEntry(body, now, now + c.getTimeToLive(), response.getHeader("ETag"), response.getHeader("Last-Modified")));
+	}
+	
+	/**
+	 * Stores again an expired entry the server confirmed with a 304 Not Modified, with a new expiry. 
+	 * The body is neither downloaded nor checked again.
+	 * 
+	 * @param c The cache
+	 * @param key The request key
+	 * @param entry The expired entry
+	 * @param response The 304 response
+	 * @return The revalidated entry
+	 */
+	private static IMDbCacheEntry revalidate(IMDbCache c, String key, IMDbCacheEntry entry, IMDbTransportResponse response) {
+		long now = System.currentTimeMillis();
+		IMDbCacheEntry revalidated = entry.revalidate(now, now + c.getTimeToLive(), response.getHeader("ETag"), response.getHeader("Last-Modified"));
+		c.put(key, revalidated);
+		IMDbMetrics.notModified();
+		return revalidated;
+	}
+	
+	/**
+	 * Gets the headers of a request: the conditional ones are added when an expired 
+	 * entry with validators is cached.
+	 * 
+	 * @param entry The cached entry (may be null)
+	 * @return The request headers
+	 */
+	private static Map<String, String> headers(IMDbCacheEntry entry) {
+		if (entry == null || !entry.hasValidators()) return HEADERS;
+		
+		Map<String, String> headers = new HashMap<String, String>(HEADERS);
+		if (entry.getETag() != null) headers.put("If-None-Match", entry.getETag());
+		if (entry.getLastModified() != null) headers.put("If-Modified-Since", entry.getLastModified());
+		return headers;
+	}
+	
+	/**
+	 * Gets the status reported by a response body (UNKNOWN_ERROR if it is not valid JSON).
+	 * Only the top level properties are inspected.
+	 * 
+	 * @param body The response body
+	 * @return The status, NONE if the body is not an error
+	 */
+	private static IMDbStatus bodyStatus(byte[] body) {
+		try {
+			JSONPullParser parser = new JSONPullParser(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+			if (parser.peek() != JSONPullParser.Token.BEGIN_OBJECT) {
+				parser.skipValue();
+				return IMDbStatus.NONE;
+			}
+			
+			parser.beginObject();
+			while (parser.hasNext()) {
+				if (parser.nextName().equals(IMDbConstants.STATUS_CODE) && parser.peek() == JSONPullParser.Token.NUMBER) {
+					int code = parser.nextInt();
+					return (code > IMDbStatus.NONE.getCode()) ? IMDbStatus.getStatusByCode(code) : IMDbStatus.NONE;
+				}
+				parser.skipValue();
+			}
+			return IMDbStatus.NONE;
+			
+		} catch (IOException e) {
+			return IMDbStatus.UNKNOWN_ERROR;
+		}
+	}
+	
+	//endregion
+
+	//region Snapshots
+	
+	/**
+	 * The file written periodically and at shutdown (null when disabled).
+	 */
+	private static volatile Path snapshotFile = null;
+	
+	/**
+	 * The periodic snapshot task (null if none).
+	 */
+	private static ScheduledFuture<?> snapshotTask = null;
+	
+	/**
+	 * The scheduler of the periodic snapshots (created on first use).
+	 */
+	private static ScheduledExecutorService snapshotScheduler = null;
+	
+	/**
+	 * Whether the shutdown snapshot hook is installed.
+	 */
+	private static boolean snapshotHook = false;
+	
+	/**
+	 * Serializes the configuration of the snapshots and their writing.
+	 */
+	private static final Object snapshotLock = new Object();
+	
+	/**
+	 * Gets the file written periodically and at shutdown.
+	 * 
+	 * @return The snapshot file, or null if disabled
+	 */
+	public static Path getSnapshotFile() {
+		return snapshotFile;
+	}
+	
+	/**
+	 * Sets the file where the cached responses and the movies of the title index are saved when the JVM 
+	 * shuts down and, if a period is given, periodically; see {@link #saveSnapshot(Path)}. It is disabled by default.
+	 * 
+	 * @param file The snapshot file, or null to disable the snapshots
+	 * @param period The time between two snapshots in milliseconds, 0 to save only at shutdown
+	 */
+	public static void setSnapshotFile(Path file, long period) {
+		synchronized (snapshotLock) {
+			if (snapshotTask != null) {
+				snapshotTask.cancel(false);
+				snapshotTask = null;
+			}
+			
+			snapshotFile = file;
+			if (file == null) return;
+			
+			if (!snapshotHook) {
+				Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+					saveSnapshotQuietly(snapshotFile);
+					// The log is written by a background thread, that may not get to run again before the exit.
+					Log.flush();
+				}, "mkimdb-snapshot-hook"));
+				snapshotHook = true;
 			}
-			reader.close();
 			
-		} catch (SocketTimeoutException ste) {
-			Log.print(ste);
+			if (period > 0) {
+				if (snapshotScheduler == null) {
+					snapshotScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+						Thread thread = new Thread(r, "mkimdb-snapshot");
+						thread.setDaemon(true);
+						return thread;
+					});
+				}
+				snapshotTask = snapshotScheduler.scheduleWithFixedDelay(() -> saveSnapshotQuietly(file), period, period, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+	
+	/**
+	 * Saves the entries of the response cache (see {@link IMDbCache#forEach(java.util.function.BiConsumer)}) and the 
+	 * movies of the title index (see {@link IMDbMovie#setTitleIndex(IMDbTitleIndex)}) to a snapshot file, 
+	 * atomically replacing it.
+	 * 
+	 * @param file The snapshot file
+	 * @throws IOException Throws if the file cannot be written
+	 */
+	public static void saveSnapshot(Path file) throws IOException {
+		IMDbTitleIndex index = IMDbMovie.getTitleIndex();
+		List<IMDbMovie> movies = (index != null) ? index.getMovies() : Collections.<IMDbMovie>emptyList();
+		
+		synchronized (snapshotLock) {
+			long start = System.nanoTime();
+			long size = IMDbSnapshot.write(file, cache, movies);
+			Log.print(Level.INFO, () -> "Snapshot " + file + ": " + size + " bytes written in " 
+					+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+		}
+	}
+	
+	/**
+	 * Saves a snapshot, logging the failures.
+	 * 
+	 * @param file The snapshot file (may be null)
+	 */
+	private static void saveSnapshotQuietly(Path file) {
+		if (file == null) return;
+		
+		try {
+			saveSnapshot(file);
+		} catch (IOException | RuntimeException e) {
+			Log.print(e);
+		}
+	}
+	
+	/**
+	 * Warms up the library from a snapshot file, typically at startup, before the first search.
+	 * <p>
+	 * The file is memory-mapped and its cached responses are stored in the response cache, if set, without 
+	 * copying their bodies, so the searches are answered from the snapshot at once. The expired entries are then 
+	 * revalidated one at a time on the executor (conditional requests when they have validators); with the 
+	 * {@link IMDbStalePolicy#WHILE_REVALIDATE} stale policy they are served meanwhile. If a title index is set, 
+	 * the movies of the snapshot are decoded and indexed on the executor too. If the executor rejects these 
+	 * tasks they are skipped: the expired entries are then revalidated when requested, and the movies are 
+	 * indexed as they are read from the snapshot.
+	 * 
+	 * @param file The snapshot file
+	 * @return The snapshot, for its movies (decoded on demand), or null if the file does not exist or cannot be read
+	 */
+	public static IMDbSnapshot loadSnapshot(Path file) {
+		final IMDbSnapshot snapshot;
+		try {
+			snapshot = IMDbSnapshot.open(file);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			Log.print(e);
+			return null;
+		}
+		
+		IMDbCache c = cache;
+		if (c != null) {
+			snapshot.restore(c);
 			
-			JSONObject json = new JSONObject();
-			json.put(IMDbConstants.STATUS_CODE, IMDbStatus.TIMEOUT);
+			long now = System.currentTimeMillis();
+			final List<URL> expired = new ArrayList<URL>();
+			for (Map.Entry<String, IMDbCacheEntry> entry : snapshot.getEntries().entrySet()) {
+				if (!entry.getValue().isExpired(now)) continue;
+				
+				try {
+					expired.add(new URL(entry.getKey()));
+				} catch (MalformedURLException e) {
+					Log.print(Level.WARN, e);
+				}
+			}
 			
-			result.setLength(0);
-			result.append(json.toString());
+			if (!expired.isEmpty()) {
+				try {
+					executor.execute(() -> {
+						for (URL url : expired) {
+							String key = url.toString();
+							if (!refreshing.add(key)) continue;
+							try {
+								refresh(url);
+							} finally {
+								refreshing.remove(key);
+							}
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					// The expired entries are revalidated when requested instead.
+					Log.print(Level.WARN, e);
+				}
+			}
+		}
+		
+		if (IMDbMovie.getTitleIndex() != null && snapshot.getMovieCount() > 0) {
+			try {
+				executor.execute(() -> snapshot.preload());
+			} catch (RejectedExecutionException e) {
+				// The movies are then indexed only as they are read from the snapshot.
+				Log.print(Level.WARN, e);
+			}
+		}
+		
+		Log.print(Level.INFO, () -> "Snapshot " + file + ": " + snapshot.getEntries().size() + " cached responses, " 
+				+ snapshot.getMovieCount() + " movies.");
+		return snapshot;
+	}
+	
+	//endregion
+
+	//region Executor
+	
+	/**
+	 * The executor used by the asynchronous search methods.
+	 */
+	private static volatile Executor executor = defaultExecutor();
+	
+	/**
+	 * Gets the executor used by the asynchronous search methods.
+	 * 
+	 * @return The executor
+	 */
+	public static Executor getExecutor() {
+		return executor;
+	}
+	
+	/**
+	 * Sets the executor used by the asynchronous search methods. 
+	 * If the given executor is null the default one is restored.
+	 * 
+	 * @param exec The new executor
+	 */
+	public static void setExecutor(Executor exec) {
+		executor = (exec != null) ? exec : defaultExecutor();
+	}
+	
+	/**
+	 * Creates the default executor: one virtual thread per task when the running JVM
+	 * supports them (Java 21+), otherwise a cached pool of daemon threads.
+	 * 
+	 * @return The default executor
+	 */
+	private static Executor defaultExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
 			
 		} catch (Exception e) {
+			final AtomicInteger count = new AtomicInteger();
+			return Executors.newCachedThreadPool(r -> {
+				Thread thread = new Thread(r, "mkimdb-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+	
+	//endregion
+
+	//region Utilities
+	
+	/**
+	 * Handler that reads the body as a string, failing with the error status the body reports.
+	 */
+	private static final IMDbResponseHandler<String> BODY = new IMDbResponseHandler<String>() {
+		@Override
+		public String handle(InputStream body) throws IOException, IMDbResponseException {
+			byte[] bytes = readBody(body);
+			IMDbStatus status = bodyStatus(bytes);
+			if (status != IMDbStatus.NONE) throw new IMDbResponseException(status);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+	
+	/**
+	 * Makes an HTTP request (GET) and gets back the result as a string.
+	 * When a cache is set, a fresh cached body is returned without contacting the server.
+	 * 
+	 * @param url The query URL
+	 * @return The result string (a JSON object with the error status if the request fails)
+	 */
+	public static String makeApiCallGet(URL url) {
+		IMDbStatus status;
+		try {
+			return callAndHandle(url, BODY, false);
+			
+		} catch (IMDbResponseException e) {
+			status = e.getStatus();
+			
+		} catch (RuntimeException e) {
 			Log.print(e);
+			status = IMDbStatus.UNKNOWN_ERROR;
+		}
+		
+		JSONObject json = new JSONObject();
+		json.put(IMDbConstants.STATUS_CODE, status.getCode());
+		
+		return json.toString();
+	}
+	
+	/**
+	 * Makes an HTTP request (GET) and decodes the result straight from the connection stream, 
+	 * without materializing the body as a string. When a cache is set, the body is read 
+	 * once as bytes so that it can be stored, and a fresh cached body is decoded without 
+	 * contacting the server.
+	 * 
+	 * @param url The query URL
+	 * @param handler The body decoder
+	 * @return The decoded result
+	 * @throws IMDbResponseException Throws if the request fails or the body reports an error status
+	 */
+	public static <T> T makeApiCallGet(final URL url, final IMDbResponseHandler<T> handler) throws IMDbResponseException {
+		return coalesce(handler, url, () -> callAndHandle(url, handler, false));
+	}
+	
+	/**
+	 * Makes an HTTP request (GET) and decodes the result, see {@link #makeApiCallGet(URL, IMDbResponseHandler)}.
+	 * This is the only place where the requests are sent: it serves the cache, retries, checks the circuit breaker 
+	 * and records the metrics. A runtime exception thrown by the handler (or the transport) counts as an 
+	 * UNKNOWN_ERROR attempt and is rethrown.
+	 * 
+	 * @param url The query URL
+	 * @param handler The body decoder
+	 * @param revalidating Whether the call is a background revalidation, that must reach the server
+	 * @return The decoded result
+	 * @throws IMDbResponseException Throws if the request fails or the body reports an error status
+	 */
+	private static <T> T callAndHandle(URL url, IMDbResponseHandler<T> handler, boolean revalidating) throws IMDbResponseException {
+		IMDbCache c = cache;
+		String key = url.toString();
+		IMDbCacheEntry entry = lookup(c, key);
+		
+		if (isFresh(entry) || (!revalidating && servesWhileRevalidating(url, entry))) {
+			IMDbMetrics.cachedCall();
+			try {
+				return decode(handler, entry.openBody());
+			} catch (IOException e) {
+				Log.print(e);
+				return handleStale(handler, entry, IMDbStatus.UNKNOWN_ERROR);
+			}
+		}
+		
+		IMDbRetryPolicy policy = retryPolicy;
+		IMDbOperation operation = IMDbOperation.of(url);
+		long startedAt = System.currentTimeMillis();
+		
+		IMDbCircuitBreaker breaker = circuitBreaker;
+		
+		for (int attempt = 1; ; attempt++) {
+			long permit = admit(breaker);
+			if (permit == IMDbCircuitBreaker.REJECTED) return handleStale(handler, entry, IMDbStatus.CIRCUIT_OPEN);
+			
+			long start = IMDbMetrics.startRequest();
+			IMDbStatus status = IMDbStatus.NONE;
+			IMDbResponseException failure = null;
+			CountingInputStream stream = null;
+			long received = 0;
 			
-			JSONObject json = new JSONObject();
-			json.put(IMDbConstants.STATUS_CODE, IMDbStatus.UNKNOWN_ERROR.getCode());
+			try (IMDbTransportResponse response = open(url, entry, policy.attemptTimeout(timeout, startedAt), policy.callDeadline(startedAt))) {
+				if (response.getStatusCode() == HTTP_NOT_MODIFIED) {
+					return decode(handler, revalidate(c, key, entry, response).openBody());
+				}
+				
+				if (c == null) {
+					stream = new CountingInputStream(response.getBody());
+					return decode(handler, stream);
+				}
+				
+				byte[] body = readBody(response.getBody());
+				received = body.length;
+				store(c, key, response, body, bodyStatus(body));
+				return decode(handler, new ByteArrayInputStream(body));
+				
+			} catch (IMDbResponseException e) {
+				status = e.getStatus();
+				failure = e;
+				
+			} catch (SocketTimeoutException ste) {
+				status = IMDbStatus.TIMEOUT;
+				Log.print(Level.WARN, ste);
+				
+			} catch (IMDbStatusException e) {
+				status = e.getStatus();
+				
+			} catch (IOException e) {
+				status = IMDbStatus.UNKNOWN_ERROR;
+				Log.print(e);
+				
+			} catch (RuntimeException e) {
+				status = IMDbStatus.UNKNOWN_ERROR;
+				throw e;
+				
+			} finally {
+				IMDbMetrics.finishRequest(operation, start, status, (stream != null) ? stream.getCount() : received);
+				if (breaker != null) breaker.record(permit, status);
+			}
 			
-			result.setLength(0);
-			result.append(json.toString());
+			if (!retry(policy, attempt, status, startedAt, operation)) {
+				if (failure != null) throw failure;
+				return handleStale(handler, entry, status);
+			}
+		}
+	}
+	
+	/**
+	 * Waits before the next attempt of a failed request, if the retry policy allows it.
+	 * 
+	 * @param policy The retry policy
+	 * @param attempt The number of attempts done so far
+	 * @param status The status of the last attempt
+	 * @param startedAt The time the call started, in milliseconds
+	 * @param operation The operation, for the metrics
+	 * @return Whether the request has to be sent again
+	 */
+	private static boolean retry(IMDbRetryPolicy policy, int attempt, IMDbStatus status, long startedAt, IMDbOperation operation) {
+		long delay = policy.nextDelay(attempt, status, startedAt);
+		if (delay == -2) IMDbMetrics.retryRejected();
+		if (delay < 0) return false;
+		
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		
+		IMDbMetrics.retry(operation);
+		return true;
+	}
+	
+	/**
+	 * Decodes a body, measuring the decode time.
+	 * 
+	 * @param handler The body decoder
+	 * @param body The body stream
+	 * @return The decoded result
+	 * @throws IOException Throws if the body cannot be read
+	 * @throws IMDbResponseException Throws if the body reports an error status
+	 */
+	private static <T> T decode(IMDbResponseHandler<T> handler, InputStream body) throws IOException, IMDbResponseException {
+		// The string bodies are decoded (and measured) by the callers.
+		if (handler == BODY) return handler.handle(body);
+		
+		long start = IMDbMetrics.start();
+		try {
+			return handler.handle(body);
+		} finally {
+			IMDbMetrics.finishDecode(start);
+		}
+	}
+	
+	/**
+	 * Decodes an expired cached body after a failed request, if the stale policy allows it.
+	 * 
+	 * @param handler The body decoder
+	 * @param entry The cached entry (may be null)
+	 * @param status The status of the failed request
+	 * @return The decoded result
+	 * @throws IMDbResponseException Throws the given status if the stale body cannot be served
+	 */
+	private static <T> T handleStale(IMDbResponseHandler<T> handler, IMDbCacheEntry entry, IMDbStatus status) throws IMDbResponseException {
+		if (!servesStale(entry)) throw new IMDbResponseException(status);
+		
+		try {
+			return handler.handle(entry.openBody());
+		} catch (IOException e) {
+			Log.print(e);
+			throw new IMDbResponseException(status);
+		}
+	}
+	
+	/**
+	 * Reads the whole response body.
+	 * 
+	 * @param body The body stream
+	 * @return The body bytes
+	 * @throws IOException Throws if the stream cannot be read
+	 */
+	private static byte[] readBody(InputStream body) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+		byte[] buffer = new byte[4096];
+		for (int read; (read = body.read(buffer)) != -1;) {
+			bytes.write(buffer, 0, read);
 		}
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Sends the request through the current transport, once the rate limiter allows it. 
+	 * The request is conditional when the expired cached entry has validators.
+	 * 
+	 * @param url The query URL
+	 * @param entry The expired cached entry (may be null)
+	 * @param readTimeout The read timeout in milliseconds
+	 * @param deadline The deadline of the call in milliseconds since the epoch (0 for none), that bounds the 
+	 * wait for the rate limiter and the transport waits too
+	 * @return The successful response, or a 304 Not Modified for a conditional request
+	 * @throws IOException Throws if the request fails or the server answers with an HTTP error 
+	 * ({@link IMDbStatusException} with {@link IMDbStatus#CLIENT_ERROR} for a client error other than 429)
+	 */
+	private static IMDbTransportResponse open(URL url, IMDbCacheEntry entry, int readTimeout, long deadline) throws IOException {
+		acquirePermit(deadline);
 		
-		return result.toString();
+		Map<String, String> headers = headers(entry);
+		IMDbTransportResponse response = transport.get(url, headers, readTimeout, deadline);
+		int code = response.getStatusCode();
+		if (code >= 400 && code < 500 && code != HTTP_TOO_MANY_REQUESTS) {
+			// The request itself is wrong: sending it again would not help, and the server is working.
+			response.close();
+			Log.print(Level.WARN, () -> "Server returned HTTP response code: " + code + " for URL: " + url);
+			throw new IMDbStatusException(IMDbStatus.CLIENT_ERROR);
+		}
+		if (code >= 400 || (code == HTTP_NOT_MODIFIED && headers == HEADERS)) {
+			response.close();
+			throw new IOException("Server returned HTTP response code: " + response.getStatusCode() + " for URL: " + url);
+		}
+		return response;
 	}
 
 	/**
@@ -110,7 +1107,12 @@ public final class IMDbAPI {
 	 * @return The JSONObject
 	 */
 	private static JSONObject toJSON(String strJson) {
-		return (JSONObject) JSONSerializer.toJSON(strJson);
+		long start = IMDbMetrics.start();
+		try {
+			return (JSONObject) JSONSerializer.toJSON(strJson);
+		} finally {
+			IMDbMetrics.finishDecode(start);
+		}
 	}
 	
 	//endregion
@@ -125,7 +1127,8 @@ public final class IMDbAPI {
 	 */
 	public static IMDbResponseObject searchMovieById(IMDbSearchByIdParameters params) {
 		try {
-			return new IMDbResponseObject(toJSON(makeApiCallGet(IMDbURLCreator.searchMovieByIdUrl(params))));
+			final URL url = IMDbURLCreator.searchMovieByIdUrl(params);
+			return coalesce(IMDbResponseObject.class, url, () -> new IMDbResponseObject(toJSON(makeApiCallGet(url))));
 			
 		} catch (MalformedURLException e) {
 			Log.print(e);
@@ -142,7 +1145,7 @@ public final class IMDbAPI {
 	 */
 	public static IMDbResponseArray searchMovieByTitle(IMDbSearchByTitleParameters params) {
 		try {
-			return new IMDbResponseArray(toJSON(makeApiCallGet(IMDbURLCreator.searchMovieByTitleUrl(params))));
+			return searchPage(IMDbURLCreator.searchMovieByTitleUrl(params));
 			
 		} catch (MalformedURLException e) {
 			Log.print(e);
@@ -153,23 +1156,48 @@ public final class IMDbAPI {
 	
 	/**
 	 * Searches for movies by title. Gets all the results.
+	 * <p>
+	 * Once the first page is retrieved the remaining ones are fetched concurrently by the executor and
+	 * the calling thread, at most {@link #getPageParallelism()} at a time, and merged in offset order. The pages that 
+	 * cannot be retrieved are skipped and reported by {@link IMDbResponseArray#getFailedOffsets()}.
 	 * 
 	 * @param params The list of parameters (Limit and Offset parameters will be ignored).
 	 * @return The IMDb API (imdbapi.org) response object.
 	 */
 	public static IMDbResponseArray fullSearchMovieByTitle(IMDbSearchByTitleParameters params) {
+		long start = IMDbMetrics.start();
+		IMDbResponseArray result = fullSearch(params);
+		IMDbMetrics.finishOperation(IMDbOperation.FULL_SEARCH, start, result.getStatus());
+		return result;
+	}
+	
+	/**
+	 * Searches for movies by title, see {@link #fullSearchMovieByTitle(IMDbSearchByTitleParameters)}.
+	 * 
+	 * @param params The list of parameters
+	 * @return The IMDb API (imdbapi.org) response object.
+	 */
+	private static IMDbResponseArray fullSearch(IMDbSearchByTitleParameters params) {
 		try {
 			
-			params.setLimit(5);
-			params.setOffset(0);
+			IMDbResponseArray result = new IMDbResponseArray(toJSON(makeApiCallGet(IMDbURLCreator.searchMovieByTitleUrl(params.withPage(0, PAGE_SIZE)))));
+			
+			final List<URL> urls = new ArrayList<URL>();
+			for (int p = 1; p * PAGE_SIZE < result.getResults(); p++) {
+				urls.add(IMDbURLCreator.searchMovieByTitleUrl(params.withPage(p * PAGE_SIZE, PAGE_SIZE)));
+			}
 			
-			IMDbResponseArray result = new IMDbResponseArray(toJSON(makeApiCallGet(IMDbURLCreator.searchMovieByTitleUrl(params))));
+			final IMDbResponseArray[] pages = new IMDbResponseArray[urls.size()];
+			Parallel.forEach(pages.length, pageParallelism, executor, p -> pages[p] = searchPage(urls.get(p)));
 			
-			for (int p = 1; p * 5 < result.getResults(); p++) {
-				params.setOffset(p * 5);
-				IMDbResponseArray page = new IMDbResponseArray(toJSON(makeApiCallGet(IMDbURLCreator.searchMovieByTitleUrl(params))));
-				for (Object obj : page.getData()) {
-					result.addData((JSONObject) obj);
+			for (int p = 0; p < pages.length; p++) {
+				IMDbResponseArray data = pages[p];
+				if (data == null || data.hasError()) {
+					result.addFailedOffset((p + 1) * PAGE_SIZE);
+				} else {
+					for (JSONObject obj : data.getData()) {
+						result.addData(obj);
+					}
 				}
 			}
 			
@@ -182,6 +1210,68 @@ public final class IMDbAPI {
 		}
 	}
 	
+	/**
+	 * Fetches a page of results.
+	 * 
+	 * @param url The page URL
+	 * @return The page
+	 */
+	static IMDbResponseArray searchPage(final URL url) {
+		return coalesce(IMDbResponseArray.class, url, () -> new IMDbResponseArray(toJSON(makeApiCallGet(url))));
+	}
+	
+	/**
+	 * Searches for movies by title, lazily iterating over all the results.
+	 * <p>
+	 * Only the first page is fetched by this method; while the results of a page are consumed, 
+	 * the following pages (up to the given number) are fetched in background on the executor.
+	 * 
+	 * @param params The list of parameters (Limit and Offset parameters will be ignored).
+	 * @param prefetch The number of pages fetched ahead of the consumer (0 fetches each page on demand)
+	 * @return The iterator over the results
+	 * @throws MalformedURLException Throws if the URL has an invalid form
+	 */
+	public static IMDbPageIterator iterateMovieByTitle(IMDbSearchByTitleParameters params, int prefetch) throws MalformedURLException {
+		return new IMDbPageIterator(params, prefetch);
+	}
+	
+	//endregion
+	
+	//region Asynchronous search
+	
+	/**
+	 * Searches for movie by ID without blocking the calling thread.
+	 * The call runs on the executor set through {@link #setExecutor(Executor)}.
+	 * 
+	 * @param params The list of parameters
+	 * @return The future IMDb API (imdbapi.org) response object.
+	 */
+	public static CompletableFuture<IMDbResponseObject> searchMovieByIdAsync(final IMDbSearchByIdParameters params) {
+		return CompletableFuture.supplyAsync(() -> searchMovieById(params), executor);
+	}
+	
+	/**
+	 * Searches for movies by title without blocking the calling thread.
+	 * The call runs on the executor set through {@link #setExecutor(Executor)}.
+	 * 
+	 * @param params The list of parameters
+	 * @return The future IMDb API (imdbapi.org) response object.
+	 */
+	public static CompletableFuture<IMDbResponseArray> searchMovieByTitleAsync(final IMDbSearchByTitleParameters params) {
+		return CompletableFuture.supplyAsync(() -> searchMovieByTitle(params), executor);
+	}
+	
+	/**
+	 * Searches for movies by title without blocking the calling thread. Gets all the results.
+	 * The call runs on the executor set through {@link #setExecutor(Executor)}.
+	 * 
+	 * @param params The list of parameters (Limit and Offset parameters will be ignored).
+	 * @return The future IMDb API (imdbapi.org) response object.
+	 */
+	public static CompletableFuture<IMDbResponseArray> fullSearchMovieByTitleAsync(final IMDbSearchByTitleParameters params) {
+		return CompletableFuture.supplyAsync(() -> fullSearchMovieByTitle(params), executor);
+	}
+	
 	//endregion
 	
 }
@@ -0,0 +1,415 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.core;
+
+import mk.imdb.response.IMDbStatus;
+import mk.imdb.utils.Log;
+
+/**
+ * Circuit breaker around the requests (see {@link IMDbAPI#setCircuitBreaker(IMDbCircuitBreaker)}).
+ * <p>
+ * While closed, the breaker records the outcome of the last requests in a sliding window; when at least the 
+ * minimum number of calls have been recorded and the rate of failures (see {@link #isFailure(IMDbStatus)}) 
+ * reaches the threshold, the breaker opens. While open, the requests fail at once with 
+ * {@link IMDbStatus#CIRCUIT_OPEN} instead of waiting for the timeout. After the open duration the breaker 
+ * turns half-open and lets a limited number of probe requests through: if all of them succeed the breaker 
+ * closes, at the first failure it opens again.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbCircuitBreaker {
+
+	/**
+	 * The states of the breaker.
+	 */
+	public enum State {
+		
+		/**
+		 * The requests are sent and their outcome recorded.
+		 */
+		CLOSED,
+		
+		/**
+		 * The requests fail at once.
+		 */
+		OPEN,
+		
+		/**
+		 * A limited number of probe requests are sent.
+		 */
+		HALF_OPEN
+	}
+	
+	/**
+	 * Callback notified of the state transitions of the breaker.
+	 */
+	public interface Listener {
+		
+		/**
+		 * Called on every state transition, by the thread that caused it and while holding the breaker lock, 
+		 * so it should return quickly.
+		 * 
+		 * @param breaker The circuit breaker
+		 * @param from The previous state
+		 * @param to The new state
+		 */
+		void stateChanged(IMDbCircuitBreaker breaker, State from, State to);
+	}
+	
+	//region Fields
+	
+	/**
+	 * The permit of a rejected request (see {@link #tryAcquire()}).
+	 */
+	public static final long REJECTED = -1;
+	
+	/**
+	 * The outcomes of the last calls (true for failures), as a ring.
+	 */
+	private final boolean[] window;
+	
+	/**
+	 * The minimum number of recorded calls before the failure rate is evaluated.
+	 */
+	private final int minimumCalls;
+	
+	/**
+	 * The failure rate that opens the breaker, between 0 and 1.
+	 */
+	private final double failureRateThreshold;
+	
+	/**
+	 * The time the breaker stays open, in milliseconds.
+	 */
+	private final long openDuration;
+	
+	/**
+	 * The number of probe requests let through while half-open.
+	 */
+	private final int probes;
+	
+	/**
+	 * The current state.
+	 */
+	private volatile State state = State.CLOSED;
+	
+	/**
+	 * The position of the next outcome in the window.
+	 */
+	private int position;
+	
+	/**
+	 * The number of outcomes in the window.
+	 */
+	private int calls;
+	
+	/**
+	 * The number of failures in the window.
+	 */
+	private int failures;
+	
+	/**
+	 * The time the breaker turns half-open (System.nanoTime based).
+	 */
+	private long openUntil;
+	
+	/**
+	 * The probe requests in flight while half-open.
+	 */
+	private int probesInFlight;
+	
+	/**
+	 * The successful probe requests while half-open.
+	 */
+	private int probesSucceeded;
+	
+	/**
+	 * The number of state transitions, that tags the permits.
+	 */
+	private long epoch;
+	
+	/**
+	 * The state transition listener.
+	 */
+	private volatile Listener listener = null;
+	
+	//endregion
+	
+	/**
+	 * Creates a new breaker that evaluates the failure rate once the window is full and closes again after one successful probe.
+	 * 
+	 * @param windowSize The number of calls in the sliding window
+	 * @param failureRateThreshold The failure rate that opens the breaker, between 0 and 1
+	 * @param openDuration The time the breaker stays open, in milliseconds
+	 */
+	public IMDbCircuitBreaker(int windowSize, double failureRateThreshold, long openDuration) {
+		this(windowSize, windowSize, failureRateThreshold, openDuration, 1);
+	}
+	
+	/**
+	 * Creates a new breaker.
+	 * 
+	 * @param windowSize The number of calls in the sliding window
+	 * @param minimumCalls The minimum number of recorded calls before the failure rate is evaluated
+	 * @param failureRateThreshold The failure rate that opens the breaker, between 0 and 1
+	 * @param openDuration The time the breaker stays open, in milliseconds
+	 * @param probes The number of successful probe requests needed to close the breaker again
+	 */
+	public IMDbCircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openDuration, int probes) {
+		if (windowSize < 1) throw new IllegalArgumentException("The window size must be positive: " + windowSize);
+		if (!(failureRateThreshold > 0 && failureRateThreshold <= 1)) throw new IllegalArgumentException("The failure rate threshold must be in (0, 1]: " + failureRateThreshold);
+		
+		this.window = new boolean[windowSize];
+		this.minimumCalls = Math.max(1, Math.min(minimumCalls, windowSize));
+		this.failureRateThreshold = failureRateThreshold;
+		this.openDuration = Math.max(0, openDuration);
+		this.probes = Math.max(1, probes);
+	}
+	
+	//region Getters/Setters
+	
+	/**
+	 * Gets the current state. An open breaker reports {@link State#OPEN} until a request 
+	 * finds the open duration elapsed and turns it half-open.
+	 * 
+	 * @return The state
+	 */
+	public State getState() {
+		return state;
+	}
+	
+	/**
+	 * Gets the failure rate of the calls in the window.
+	 * 
+	 * @return The failure rate, between 0 and 1 (0 if no call was recorded)
+	 */
+	public synchronized double getFailureRate() {
+		return (calls == 0) ? 0 : (double) failures / calls;
+	}
+	
+	/**
+	 * Gets the state transition listener.
+	 * 
+	 * @return The listener, or null
+	 */
+	public Listener getListener() {
+		return listener;
+	}
+	
+	/**
+	 * Sets the state transition listener.
+	 * 
+	 * @param listener The new listener, or null
+	 */
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+	
+	//endregion
+	
+	//region Calls
+	
+	/**
+	 * Asks the permission to send a request. Every permitted request must be followed by 
+	 * {@link #onSuccess(long)}, {@link #onFailure(long)} or {@link #release(long)} with the returned permit.
+	 * <p>
+	 * The permit tells the state the request was admitted in: the outcome of a request admitted before 
+	 * the last state transition (e.g. a slow request admitted while closed that completes while half-open) 
+	 * is ignored, and only the requests admitted as probes count as probes.
+	 * 
+	 * @return The permit, or {@link #REJECTED} if the request cannot be sent
+	 */
+	public synchronized long tryAcquire() {
+		switch (state) {
+		case CLOSED:
+			return epoch << 1;
+			
+		case OPEN:
+			if (System.nanoTime() - openUntil < 0) return REJECTED;
+			transition(State.HALF_OPEN);
+			return tryProbe();
+			
+		default:
+			return tryProbe();
+		}
+	}
+	
+	/**
+	 * Admits a probe request in the half-open state, unless all the probes are already admitted.
+	 * 
+	 * @return The probe permit, or {@link #REJECTED}
+	 */
+	private long tryProbe() {
+		if (probesInFlight + probesSucceeded >= probes) return REJECTED;
+		probesInFlight++;
+		return (epoch << 1) | 1;
+	}
+	
+	/**
+	 * Checks whether a permit was given in the current state.
+	 * 
+	 * @param permit The permit
+	 * @return Whether the permit is current
+	 */
+	private boolean isCurrent(long permit) {
+		return permit != REJECTED && (permit >>> 1) == epoch;
+	}
+	
+	/**
+	 * Checks whether a current permit was given to a probe.
+	 * 
+	 * @param permit The permit
+	 * @return Whether the permit is a current probe
+	 */
+	private boolean isProbe(long permit) {
+		return isCurrent(permit) && (permit & 1) != 0 && state == State.HALF_OPEN;
+	}
+	
+	/**
+	 * Records a successful request.
+	 * 
+	 * @param permit The permit of the request
+	 */
+	public synchronized void onSuccess(long permit) {
+		if (!isCurrent(permit)) return;
+		
+		if (state == State.CLOSED) {
+			add(false);
+		} else if (isProbe(permit)) {
+			probesInFlight = Math.max(0, probesInFlight - 1);
+			if (++probesSucceeded >= probes) transition(State.CLOSED);
+		}
+	}
+	
+	/**
+	 * Records a failed request.
+	 * 
+	 * @param permit The permit of the request
+	 */
+	public synchronized void onFailure(long permit) {
+		if (!isCurrent(permit)) return;
+		
+		if (state == State.CLOSED) {
+			add(true);
+			if (calls >= minimumCalls && failures >= failureRateThreshold * calls) transition(State.OPEN);
+		} else if (isProbe(permit)) {
+			transition(State.OPEN);
+		}
+	}
+	
+	/**
+	 * Releases a permitted request that was not sent, without recording an outcome.
+	 * 
+	 * @param permit The permit of the request
+	 */
+	public synchronized void release(long permit) {
+		if (isProbe(permit)) probesInFlight = Math.max(0, probesInFlight - 1);
+	}
+	
+	/**
+	 * Forces the breaker back to the closed state, clearing the window.
+	 */
+	public synchronized void reset() {
+		if (state != State.CLOSED) transition(State.CLOSED);
+		else clear();
+	}
+	
+	/**
+	 * Checks whether a request status counts as a failure of the upstream. By default 
+	 * only the timeouts and the unknown errors do: a not found movie or an HTTP client error 
+	 * ({@link IMDbStatus#CLIENT_ERROR}) come from a working server.
+	 * 
+	 * @param status The request status
+	 * @return Whether the status is a failure
+	 */
+	protected boolean isFailure(IMDbStatus status) {
+		return status == IMDbStatus.TIMEOUT || status == IMDbStatus.UNKNOWN_ERROR;
+	}
+	
+	/**
+	 * Records the outcome of a permitted request from its status.
+	 * 
+	 * @param permit The permit of the request
+	 * @param status The request status
+	 */
+	void record(long permit, IMDbStatus status) {
+		if (status == IMDbStatus.RATE_LIMITED) release(permit);
+		else if (isFailure(status)) onFailure(permit);
+		else onSuccess(permit);
+	}
+	
+	/**
+	 * Adds an outcome to the window, replacing the oldest one when full.
+	 * 
+	 * @param failure Whether the call failed
+	 */
+	private void add(boolean failure) {
+		if (calls == window.length) {
+			if (window[position]) failures--;
+		} else {
+			calls++;
+		}
+		
+		window[position] = failure;
+		if (failure) failures++;
+		position = (position + 1) % window.length;
+	}
+	
+	/**
+	 * Empties the window.
+	 */
+	private void clear() {
+		position = 0;
+		calls = 0;
+		failures = 0;
+	}
+	
+	/**
+	 * Moves to a new state and notifies the listener.
+	 * 
+	 * @param to The new state
+	 */
+	private void transition(State to) {
+		State from = state;
+		state = to;
+		epoch++;
+		probesInFlight = 0;
+		probesSucceeded = 0;
+		
+		if (to == State.OPEN) openUntil = System.nanoTime() + openDuration * 1_000_000L;
+		if (to == State.CLOSED) clear();
+		
+		Log.print((to == State.OPEN) ? Log.Level.WARN : Log.Level.INFO, "Circuit breaker " + from + " -> " + to);
+		
+		Listener l = listener;
+		if (l != null) {
+			try {
+				l.stateChanged(this, from, to);
+			} catch (RuntimeException e) {
+				Log.print(e);
+			}
+		}
+	}
+	
+	//endregion
+	
+}
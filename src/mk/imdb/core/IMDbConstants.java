@@ -67,6 +67,7 @@ public final class IMDbConstants {
 	public static final String TITLE = "title";
 	public static final String TOTAL_RESULTS = "total_found";
 	public static final String TYPE = "type";
+	public static final String USER_AGENT = "MKimdb/0.9 (+https://github.com/makgyver/MKimdb)";
 	public static final String WRITERS = "writers";
 	public static final String XML = "xml";
 	public static final String YEAR = "year";
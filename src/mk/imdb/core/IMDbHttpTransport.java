@@ -0,0 +1,576 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.core;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import mk.imdb.metrics.IMDbMetrics;
+import mk.imdb.utils.CountingInputStream;
+
+/**
+ * Default {@link IMDbTransport} based on {@link HttpClient}.
+ * <p>
+ * The underlying client keeps the connections alive and reuses them across calls (HTTP/1.1 keep-alive),
+ * or multiplexes the requests over a single connection when HTTP/2 is enabled. The number of connections 
+ * in use towards a single host is bounded: a request waits for a free slot at most for the connect timeout 
+ * (and not past the deadline of the call, see {@link #get(URL, Map, int, long)}).
+ * <p>
+ * The read timeout bounds both the wait for the response headers and every read of the body: a body read that 
+ * makes no progress within it is aborted with a {@link SocketTimeoutException}, closing the stream, as for 
+ * {@link java.net.HttpURLConnection#setReadTimeout(int)}.
+ * <p>
+ * When the compression is enabled (the default) the requests advertise gzip and deflate, and the compressed 
+ * bodies are inflated as they are read, without buffering: the returned body is always the decoded one.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbHttpTransport implements IMDbTransport {
+
+	//region Fields
+	
+	/**
+	 * Default connect timeout in milliseconds.
+	 */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 5000; // 5 seconds
+	
+	/**
+	 * Default maximum number of connections per host.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 16;
+	
+	/**
+	 * The content codings accepted when the compression is enabled.
+	 */
+	private static final String ACCEPT_ENCODING = "gzip, deflate";
+	
+	/**
+	 * The size of the inflater buffers.
+	 */
+	private static final int INFLATE_BUFFER_SIZE = 8192;
+	
+	/**
+	 * The HTTP client.
+	 */
+	private final HttpClient client;
+	
+	/**
+	 * The connect timeout in milliseconds.
+	 */
+	private final int connectTimeout;
+	
+	/**
+	 * The maximum number of connections per host.
+	 */
+	private final int maxConnectionsPerHost;
+	
+	/**
+	 * Whether the compressed transfer is negotiated.
+	 */
+	private final boolean compression;
+	
+	/**
+	 * The connection slots of each host.
+	 */
+	private final ConcurrentMap<String, Semaphore> hosts = new ConcurrentHashMap<String, Semaphore>();
+	
+	/**
+	 * The timer that aborts the body reads past the read timeout.
+	 */
+	private static final ScheduledExecutorService READ_TIMER = readTimer();
+	
+	//endregion
+	
+	/**
+	 * Creates a new HTTP/1.1 transport with the default settings.
+	 */
+	public IMDbHttpTransport() {
+		this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_MAX_CONNECTIONS_PER_HOST, false);
+	}
+	
+	/**
+	 * Creates a new transport with the compression enabled.
+	 * 
+	 * @param connectTimeout The connect timeout in milliseconds
+	 * @param maxConnectionsPerHost The maximum number of connections per host
+	 * @param http2 Whether HTTP/2 should be negotiated when the server supports it
+	 */
+	public IMDbHttpTransport(int connectTimeout, int maxConnectionsPerHost, boolean http2) {
+		this(connectTimeout, maxConnectionsPerHost, http2, true);
+	}
+	
+	/**
+	 * Creates a new transport.
+	 * 
+	 * @param connectTimeout The connect timeout in milliseconds
+	 * @param maxConnectionsPerHost The maximum number of connections per host
+	 * @param http2 Whether HTTP/2 should be negotiated when the server supports it
+	 * @param compression Whether gzip and deflate should be negotiated
+	 */
+	public IMDbHttpTransport(int connectTimeout, int maxConnectionsPerHost, boolean http2, boolean compression) {
+		this.connectTimeout = Math.max(1, connectTimeout);
+		this.maxConnectionsPerHost = Math.max(1, maxConnectionsPerHost);
+		this.compression = compression;
+		this.client = HttpClient.newBuilder()
+				.version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofMillis(this.connectTimeout))
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.build();
+	}
+	
+	//region Getters
+	
+	/**
+	 * Gets the connect timeout.
+	 * 
+	 * @return The connect timeout in milliseconds
+	 */
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+	
+	/**
+	 * Gets the maximum number of connections per host.
+	 * 
+	 * @return The maximum number of connections per host
+	 */
+	public int getMaxConnectionsPerHost() {
+		return maxConnectionsPerHost;
+	}
+	
+	/**
+	 * Checks whether the compressed transfer is negotiated.
+	 * 
+	 * @return True if gzip and deflate are accepted
+	 */
+	public boolean isCompression() {
+		return compression;
+	}
+	
+	//endregion
+	
+	@Override
+	public IMDbTransportResponse get(URL url, Map<String, String> headers, int timeout) throws IOException {
+		return get(url, headers, timeout, 0);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The wait for a free connection is cut to the time left, and so is the request timeout, that 
+	 * bounds the connection and the wait for the response headers.
+	 */
+	@Override
+	public IMDbTransportResponse get(URL url, Map<String, String> headers, int timeout, long deadline) throws IOException {
+		
+		HttpRequest.Builder builder;
+		try {
+			builder = HttpRequest.newBuilder(url.toURI()).GET();
+		} catch (URISyntaxException e) {
+			throw new IOException(e);
+		}
+		
+		boolean negotiate = compression;
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			builder.header(header.getKey(), header.getValue());
+			if (header.getKey().equalsIgnoreCase("Accept-Encoding")) negotiate = false;
+		}
+		if (negotiate) builder.header("Accept-Encoding", ACCEPT_ENCODING);
+		
+		final Semaphore slots = slots(url.getHost());
+		try {
+			if (!slots.tryAcquire(Math.min(connectTimeout, IMDbTransport.timeLeft(connectTimeout, deadline)), TimeUnit.MILLISECONDS)) {
+				throw new SocketTimeoutException("No free connection towards " + url.getHost());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		
+		try {
+			int left = IMDbTransport.timeLeft(timeout, deadline);
+			if (left > 0) builder.timeout(Duration.ofMillis(left));
+			HttpResponse<InputStream> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+			
+			InputStream body = response.body();
+			if (timeout > 0) body = new TimedInputStream(body, timeout);
+			body = new ReleasingInputStream(body, slots);
+			String coding = compression ? response.headers().firstValue("Content-Encoding").orElse("").trim() : "";
+			boolean gzip = coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip");
+			boolean decoded = gzip || coding.equalsIgnoreCase("deflate");
+			if (decoded) body = new DecodingInputStream(body, gzip);
+			
+			Map<String, String> map = new HashMap<String, String>();
+			for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+				if (decoded && (header.getKey().equalsIgnoreCase("Content-Encoding") || header.getKey().equalsIgnoreCase("Content-Length"))) continue;
+				if (!header.getValue().isEmpty()) map.put(header.getKey(), header.getValue().get(0));
+			}
+			
+			return new IMDbTransportResponse(response.statusCode(), map, body);
+			
+		} catch (HttpTimeoutException e) {
+			slots.release();
+			SocketTimeoutException ste = new SocketTimeoutException(e.getMessage());
+			ste.initCause(e);
+			throw ste;
+			
+		} catch (InterruptedException e) {
+			slots.release();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+			
+		} catch (IOException | RuntimeException e) {
+			slots.release();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Gets the connection slots of the given host.
+	 * 
+	 * @param host The host name
+	 * @return The host semaphore
+	 */
+	private Semaphore slots(String host) {
+		Semaphore slots = hosts.get(host);
+		if (slots == null) {
+			Semaphore created = new Semaphore(maxConnectionsPerHost, true);
+			slots = hosts.putIfAbsent(host, created);
+			if (slots == null) slots = created;
+		}
+		return slots;
+	}
+	
+	/**
+	 * Creates the timer of the body reads: a single daemon thread, that drops the cancelled deadlines.
+	 * 
+	 * @return The timer
+	 */
+	private static ScheduledExecutorService readTimer() {
+		ScheduledThreadPoolExecutor timer = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(1, r -> {
+			Thread thread = new Thread(r, "mkimdb-read-timeout");
+			thread.setDaemon(true);
+			return thread;
+		});
+		timer.setRemoveOnCancelPolicy(true);
+		return timer;
+	}
+	
+	/**
+	 * Body stream whose reads fail with a {@link SocketTimeoutException} when they block longer than the 
+	 * read timeout: the underlying stream is closed from the timer thread, which unblocks the read. 
+	 * The reads only record when they start; a single check per stream, scheduled at the earliest time 
+	 * the read in progress could expire, compares it with the timeout.
+	 */
+	private static final class TimedInputStream extends FilterInputStream {
+		
+		/**
+		 * The start time of a read when no read is in progress.
+		 */
+		private static final long IDLE = Long.MIN_VALUE;
+		
+		/**
+		 * The read timeout in nanoseconds.
+		 */
+		private final long timeout;
+		
+		/**
+		 * The {@link System#nanoTime()} at which the read in progress started, or {@link #IDLE}.
+		 */
+		private volatile long readStart = IDLE;
+		
+		/**
+		 * Whether a read has timed out.
+		 */
+		private volatile boolean expired = false;
+		
+		/**
+		 * Whether the stream has been closed or fully read, so that the check must stop.
+		 */
+		private volatile boolean done = false;
+		
+		/**
+		 * The next check, or null before the first read.
+		 */
+		private ScheduledFuture<?> check;
+		
+		private TimedInputStream(InputStream in, int timeout) {
+			super(in);
+			this.timeout = TimeUnit.MILLISECONDS.toNanos(timeout);
+		}
+		
+		@Override
+		public int read() throws IOException {
+			begin();
+			try {
+				int b = in.read();
+				if (b == -1) end();
+				return b;
+			} catch (IOException e) {
+				throw failure(e);
+			} finally {
+				readStart = IDLE;
+			}
+		}
+		
+		@Override
+		public int read(byte[] bytes, int off, int len) throws IOException {
+			begin();
+			try {
+				int n = in.read(bytes, off, len);
+				if (n == -1) end();
+				return n;
+			} catch (IOException e) {
+				throw failure(e);
+			} finally {
+				readStart = IDLE;
+			}
+		}
+		
+		@Override
+		public void close() throws IOException {
+			stop();
+			super.close();
+		}
+		
+		/**
+		 * Marks the start of a read, scheduling the first check at the first read.
+		 * 
+		 * @throws SocketTimeoutException Throws if a previous read has timed out
+		 */
+		private void begin() throws SocketTimeoutException {
+			if (expired) throw new SocketTimeoutException("Read timed out");
+			readStart = System.nanoTime();
+			if (check == null) schedule(timeout);
+		}
+		
+		/**
+		 * Handles the end of the stream, which is reported as a timeout if the stream has been closed by the check.
+		 * 
+		 * @throws SocketTimeoutException Throws if the read has timed out
+		 */
+		private void end() throws SocketTimeoutException {
+			if (expired) throw new SocketTimeoutException("Read timed out");
+			stop();
+		}
+		
+		/**
+		 * Expires the read in progress if it has lasted the timeout, otherwise schedules the next check 
+		 * when it would expire (or a whole timeout later if no read is in progress).
+		 */
+		private void check() {
+			if (done) return;
+			
+			long started = readStart;
+			long delay = timeout;
+			if (started != IDLE) {
+				long elapsed = System.nanoTime() - started;
+				if (elapsed >= timeout) {
+					expired = true;
+					done = true;
+					try {
+						in.close();
+					} catch (IOException e) {
+						// the read fails anyway
+					}
+					return;
+				}
+				delay = timeout - elapsed;
+			}
+			schedule(delay);
+		}
+		
+		private synchronized void schedule(long delay) {
+			if (!done) check = READ_TIMER.schedule(this::check, delay, TimeUnit.NANOSECONDS);
+		}
+		
+		private synchronized void stop() {
+			done = true;
+			if (check != null) check.cancel(false);
+		}
+		
+		private IOException failure(IOException e) {
+			if (!expired || e instanceof SocketTimeoutException) return e;
+			SocketTimeoutException ste = new SocketTimeoutException("Read timed out");
+			ste.initCause(e);
+			return ste;
+		}
+	}
+	
+	/**
+	 * Body stream that frees the connection slot once closed.
+	 */
+	private static final class ReleasingInputStream extends FilterInputStream {
+		
+		/**
+		 * The host semaphore.
+		 */
+		private final Semaphore slots;
+		
+		/**
+		 * Whether the slot has already been released.
+		 */
+		private final AtomicBoolean released = new AtomicBoolean();
+		
+		private ReleasingInputStream(InputStream in, Semaphore slots) {
+			super(in);
+			this.slots = slots;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				if (released.compareAndSet(false, true)) slots.release();
+			}
+		}
+	}
+	
+	/**
+	 * Body stream that inflates a gzip or deflate coded body as it is read, and reports the 
+	 * compressed and decompressed sizes to the metrics once closed. The decoder is created at 
+	 * the first read, so an empty body (e.g. of an error response) is not an error.
+	 */
+	private static final class DecodingInputStream extends InputStream {
+		
+		/**
+		 * The compressed stream.
+		 */
+		private final CountingInputStream raw;
+		
+		/**
+		 * Whether the coding is gzip (deflate otherwise).
+		 */
+		private final boolean gzip;
+		
+		/**
+		 * The inflater of the deflate coding.
+		 */
+		private Inflater inflater;
+		
+		/**
+		 * The decompressed stream, created at the first read.
+		 */
+		private InputStream decoded;
+		
+		/**
+		 * The decompressed bytes read so far.
+		 */
+		private long count = 0;
+		
+		/**
+		 * Whether the stream has been closed.
+		 */
+		private boolean closed = false;
+		
+		private DecodingInputStream(InputStream in, boolean gzip) {
+			this.raw = new CountingInputStream(in);
+			this.gzip = gzip;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			int b = decoder().read();
+			if (b != -1) count++;
+			return b;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int off, int len) throws IOException {
+			int n = decoder().read(bytes, off, len);
+			if (n > 0) count += n;
+			return n;
+		}
+		
+		@Override
+		public int available() throws IOException {
+			return (decoded != null) ? decoded.available() : 0;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			if (closed) return;
+			closed = true;
+			
+			try {
+				if (decoded != null) decoded.close();
+				else raw.close();
+			} finally {
+				if (inflater != null) inflater.end();
+				IMDbMetrics.compressed(raw.getCount(), count);
+			}
+		}
+		
+		/**
+		 * Gets the decompressed stream, creating it at the first call.
+		 * 
+		 * @return The decompressed stream
+		 * @throws IOException Throws if the coding header cannot be read
+		 */
+		private InputStream decoder() throws IOException {
+			if (decoded != null) return decoded;
+			if (closed) throw new IOException("Stream closed");
+			
+			PushbackInputStream in = new PushbackInputStream(raw, 2);
+			int b0 = in.read();
+			if (b0 == -1) return decoded = in;
+			int b1 = in.read();
+			if (b1 != -1) in.unread(b1);
+			in.unread(b0);
+			
+			if (gzip) return decoded = new GZIPInputStream(in, INFLATE_BUFFER_SIZE);
+			
+			// "deflate" should be zlib wrapped (RFC 1950), but some servers send the raw stream
+			boolean zlib = b1 != -1 && (b0 & 0x0F) == 8 && ((b0 << 8) | b1) % 31 == 0;
+			inflater = new Inflater(!zlib);
+			return decoded = new InflaterInputStream(in, inflater, INFLATE_BUFFER_SIZE);
+		}
+	}
+	
+}
@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.core;
+
+import java.io.Closeable;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import mk.imdb.response.IMDbResponseArray;
+import mk.imdb.response.IMDbStatus;
+import mk.imdb.utils.Log;
+import net.sf.json.JSONObject;
+
+/**
+ * Iterator over all the results of a search by title, that fetches the result pages on demand.
+ * <p>
+ * The first page is fetched when the iterator is created. Then, while a page is consumed, at most 
+ * the given number of following pages are fetched in background. Nothing else is fetched once the 
+ * consumer stops asking for results, so the memory used is bounded by the prefetch window.
+ * Pages that cannot be retrieved are skipped and reported by {@link #getFailedOffsets()}.
+ * <p>
+ * Instances are not thread safe.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbPageIterator implements Iterator<JSONObject>, Closeable {
+
+	//region Fields
+	
+	/**
+	 * The search parameters.
+	 */
+	private final IMDbSearchByTitleParameters params;
+	
+	/**
+	 * The number of pages fetched ahead of the consumer.
+	 */
+	private final int prefetch;
+	
+	/**
+	 * The first page response.
+	 */
+	private final IMDbResponseArray first;
+	
+	/**
+	 * The pages being fetched, in offset order.
+	 */
+	private final Deque<Page> pending = new ArrayDeque<Page>();
+	
+	/**
+	 * The offsets of the pages that could not be retrieved.
+	 */
+	private final List<Integer> failedOffsets = new LinkedList<Integer>();
+	
+	/**
+	 * The results of the current page.
+	 */
+	private Iterator<JSONObject> current;
+	
+	/**
+	 * The offset of the next page to fetch.
+	 */
+	private int nextOffset;
+	
+	/**
+	 * Whether the iterator has been closed.
+	 */
+	private boolean closed = false;
+	
+	//endregion
+	
+	/**
+	 * Creates a new iterator and fetches the first page.
+	 * 
+	 * @param params The list of parameters (Limit and Offset parameters will be ignored).
+	 * @param prefetch The number of pages fetched ahead of the consumer
+	 * @throws MalformedURLException Throws if the URL has an invalid form
+	 */
+	IMDbPageIterator(IMDbSearchByTitleParameters params, int prefetch) throws MalformedURLException {
+		this.params = params;
+		this.prefetch = Math.max(0, prefetch);
+		
+		first = IMDbAPI.searchPage(IMDbURLCreator.searchMovieByTitleUrl(params.withPage(0, IMDbAPI.PAGE_SIZE)));
+		current = first.getData().iterator();
+		nextOffset = IMDbAPI.PAGE_SIZE;
+		
+		if (!first.hasError()) prefetch();
+	}
+	
+	//region Getters
+	
+	/**
+	 * Gets the status of the first page response.
+	 * 
+	 * @return The response status
+	 */
+	public IMDbStatus getStatus() {
+		return first.getStatus();
+	}
+	
+	/**
+	 * Gets whether the first page response is an error.
+	 * 
+	 * @return Whether the response is an error
+	 */
+	public boolean hasError() {
+		return first.hasError();
+	}
+	
+	/**
+	 * Gets the total number of results.
+	 * 
+	 * @return The total number of results
+	 */
+	public int getResults() {
+		return first.getResults();
+	}
+	
+	/**
+	 * Gets the offsets of the pages, consumed so far, that could not be retrieved.
+	 * 
+	 * @return The list of failed offsets
+	 */
+	public List<Integer> getFailedOffsets() {
+		return Collections.unmodifiableList(failedOffsets);
+	}
+	
+	//endregion
+	
+	//region Iterator
+	
+	@Override
+	public boolean hasNext() {
+		while (!current.hasNext()) {
+			if (closed || first.hasError()) return false;
+			if (pending.isEmpty() && !schedule()) return false;
+			
+			Page page = pending.poll();
+			prefetch();
+			if (page == null) continue;
+			
+			IMDbResponseArray data;
+			try {
+				data = page.future.join();
+			} catch (CompletionException e) {
+				Log.print(e.getCause());
+				data = new IMDbResponseArray(IMDbStatus.UNKNOWN_ERROR);
+			}
+			
+			if (data.hasError()) {
+				failedOffsets.add(page.offset);
+			} else {
+				current = data.getData().iterator();
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public JSONObject next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		return current.next();
+	}
+	
+	/**
+	 * Stops the iteration and cancels the pages being fetched.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		current = Collections.<JSONObject>emptyList().iterator();
+		for (Page page : pending) {
+			page.future.cancel(false);
+		}
+		pending.clear();
+	}
+	
+	//endregion
+	
+	//region Utilities
+	
+	/**
+	 * Fills the prefetch window.
+	 */
+	private void prefetch() {
+		while (pending.size() < prefetch && schedule());
+	}
+	
+	/**
+	 * Starts fetching the next page, if any.
+	 * 
+	 * @return Whether a page has been scheduled
+	 */
+	private boolean schedule() {
+		if (nextOffset >= first.getResults()) return false;
+		
+		final URL url;
+		try {
+			url = IMDbURLCreator.searchMovieByTitleUrl(params.withPage(nextOffset, IMDbAPI.PAGE_SIZE));
+		} catch (MalformedURLException e) {
+			Log.print(e);
+			failedOffsets.add(nextOffset);
+			nextOffset += IMDbAPI.PAGE_SIZE;
+			return true;
+		}
+		
+		pending.add(new Page(nextOffset, CompletableFuture.supplyAsync(() -> IMDbAPI.searchPage(url), IMDbAPI.getExecutor())));
+		nextOffset += IMDbAPI.PAGE_SIZE;
+		return true;
+	}
+	
+	/**
+	 * A page being fetched.
+	 */
+	private static final class Page {
+		
+		private final int offset;
+		private final CompletableFuture<IMDbResponseArray> future;
+		
+		private Page(int offset, CompletableFuture<IMDbResponseArray> future) {
+			this.offset = offset;
+			this.future = future;
+		}
+	}
+	
+	//endregion
+	
+}
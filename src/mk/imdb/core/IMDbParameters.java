@@ -20,56 +20,146 @@
 
 package mk.imdb.core;
 
+import java.util.Objects;
+
 /**
  * Abstract class that represents a list of parameter useful to make the API calls.
+ * <p>
+ * The parameters are immutable, so they can be shared between threads and reused across calls. They are 
+ * created with a {@link Builder}, and each instance precomputes its canonical form, the request key 
+ * (see {@link #getKey()}), on which {@link #equals(Object)} and {@link #hashCode()} are based.
  * 
  * @author Mirko Polato
  *
  */
 public abstract class IMDbParameters {
 
+	/**
+	 * Base builder of the parameters.
+	 *
+	 * @param <B> The type of the concrete builder
+	 */
+	public abstract static class Builder<B extends Builder<B>> {
+		
+		private IMDbVerbosity plot = IMDbVerbosity.SIMPLE;
+		private IMDbVerbosity aka = IMDbVerbosity.SIMPLE;
+		private IMDbVerbosity release = IMDbVerbosity.SIMPLE;
+		private boolean episode = true;
+		
+		/**
+		 * Creates a new builder with the default values.
+		 */
+		protected Builder() {}
+		
+		/**
+		 * Creates a new builder with the values of the given parameters.
+		 * 
+		 * @param other The parameters to copy
+		 */
+		protected Builder(IMDbParameters other) {
+			this.plot = other.plot;
+			this.aka = other.aka;
+			this.release = other.release;
+			this.episode = other.episode;
+		}
+		
+		/**
+		 * Sets the plot verbosity.
+		 * 
+		 * @param plot The plot verbosity
+		 * @return This builder
+		 */
+		public B plot(IMDbVerbosity plot) {
+			this.plot = Objects.requireNonNull(plot, "plot");
+			return self();
+		}
+		
+		/**
+		 * Sets the aka verbosity.
+		 * 
+		 * @param aka The aka verbosity
+		 * @return This builder
+		 */
+		public B aka(IMDbVerbosity aka) {
+			this.aka = Objects.requireNonNull(aka, "aka");
+			return self();
+		}
+		
+		/**
+		 * Sets the release verbosity.
+		 * 
+		 * @param release The release verbosity
+		 * @return This builder
+		 */
+		public B release(IMDbVerbosity release) {
+			this.release = Objects.requireNonNull(release, "release");
+			return self();
+		}
+		
+		/**
+		 * Sets if the episodes are included in the results.
+		 * 
+		 * @param episode Whether the episodes are included in the results or not
+		 * @return This builder
+		 */
+		public B episode(boolean episode) {
+			this.episode = episode;
+			return self();
+		}
+		
+		/**
+		 * Gets this builder with its concrete type.
+		 * 
+		 * @return This builder
+		 */
+		protected abstract B self();
+	}
+	
 	//region Fields
 	
 	/**
 	 * The verbosity of the plot field.
 	 */
-	private IMDbVerbosity plot = IMDbVerbosity.SIMPLE;
+	private final IMDbVerbosity plot;
 	
 	/**
 	 * The verbosity of the aka (also known as) field.
 	 */
-	private IMDbVerbosity aka = IMDbVerbosity.SIMPLE;
+	private final IMDbVerbosity aka;
 	
 	/**
 	 * The verbosity of the release field.
 	 */
-	private IMDbVerbosity release = IMDbVerbosity.SIMPLE;
+	private final IMDbVerbosity release;
 	
 	/**
 	 * When the parameter is false, "episodes" is not included in the result.
 	 */
-	private boolean episode = true;
+	private final boolean episode;
 	
 	//endregion
 	
-	//region Getters/Setters
-	
 	/**
-	 * Gets the plot verbosity.
+	 * Creates a new list of parameters from the given builder.
 	 * 
-	 * @return The plot verbosity
+	 * @param builder The builder
 	 */
-	public IMDbVerbosity getPlot() {
-		return plot;
+	protected IMDbParameters(Builder<?> builder) {
+		this.plot = builder.plot;
+		this.aka = builder.aka;
+		this.release = builder.release;
+		this.episode = builder.episode;
 	}
 	
+	//region Getters
+	
 	/**
-	 * Sets the plot verbosity.
+	 * Gets the plot verbosity.
 	 * 
-	 * @param plot The new plot verbosity
+	 * @return The plot verbosity
 	 */
-	public void setPlot(IMDbVerbosity plot) {
-		this.plot = plot;
+	public IMDbVerbosity getPlot() {
+		return plot;
 	}
 	
 	/**
@@ -81,15 +171,6 @@ public abstract class IMDbParameters {
 		return aka;
 	}
 	
-	/**
-	 * Sets the aka verbosity.
-	 * 
-	 * @param aka The new aka verbosity
-	 */
-	public void setAka(IMDbVerbosity aka) {
-		this.aka = aka;
-	}
-	
 	/**
 	 * Gets the release verbosity.
 	 * 
@@ -99,15 +180,6 @@ public abstract class IMDbParameters {
 		return release;
 	}
 	
-	/**
-	 * Sets the release verbosity.
-	 * 
-	 * @param release The new release verbosity
-	 */
-	public void setRelease(IMDbVerbosity release) {
-		this.release = release;
-	}
-	
 	/**
 	 * Gets whether the episodes are included in the results or not.
 	 * 
@@ -118,13 +190,30 @@ public abstract class IMDbParameters {
 	}
 	
 	/**
-	 * Sets if the episodes are included in the results.
+	 * Gets the canonical form of the parameters: the key of the request they describe 
+	 * (the query URL string, see {@link IMDbRequestTemplate}).
 	 * 
-	 * @param episode Whether the episodes are included in the results or not
+	 * @return The request key
 	 */
-	public void setEpisode(boolean episode) {
-		this.episode = episode;
-	}
+	public abstract String getKey();
 	
 	//endregion
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (obj == null || obj.getClass() != getClass()) return false;
+		return getKey().equals(((IMDbParameters) obj).getKey());
+	}
+	
+	@Override
+	public int hashCode() {
+		return getKey().hashCode();
+	}
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + getKey() + "]";
+	}
+	
 }
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token bucket rate limiter (see {@link IMDbAPI#setRateLimiter(IMDbRateLimiter)}): it allows a sustained 
+ * rate of permits per second, with bursts of at most the given size after an idle period.
+ * <p>
+ * The limiter is lock-free: it keeps the theoretical arrival time of the next permit (generic cell rate 
+ * algorithm) and each acquisition reserves its slot with a single compare-and-set, then waits for it 
+ * outside of any lock. The slots are assigned in reservation order, so the waiting threads are served 
+ * first come, first served, and the permits are spread evenly in time instead of released in bursts.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbRateLimiter {
+
+	//region Fields
+	
+	/**
+	 * The interval between two permits at the sustained rate, in nanoseconds.
+	 */
+	private final long interval;
+	
+	/**
+	 * The burst tolerance: how far ahead of the sustained rate the permits can be given, in nanoseconds.
+	 */
+	private final long tolerance;
+	
+	/**
+	 * The sustained rate, in permits per second.
+	 */
+	private final double rate;
+	
+	/**
+	 * The burst size.
+	 */
+	private final int burst;
+	
+	/**
+	 * The theoretical arrival time of the next permit (System.nanoTime based).
+	 */
+	private final AtomicLong next = new AtomicLong(System.nanoTime());
+	
+	//endregion
+	
+	/**
+	 * Creates a new rate limiter.
+	 * 
+	 * @param permitsPerSecond The sustained rate, in permits per second
+	 * @param burst The maximum number of permits given at once after an idle period (at least 1)
+	 */
+	public IMDbRateLimiter(double permitsPerSecond, int burst) {
+		if (!(permitsPerSecond > 0)) throw new IllegalArgumentException("The rate must be positive: " + permitsPerSecond);
+		
+		this.rate = permitsPerSecond;
+		this.burst = Math.max(1, burst);
+		this.interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+		this.tolerance = interval * (this.burst - 1);
+	}
+	
+	//region Getters
+	
+	/**
+	 * Gets the sustained rate.
+	 * 
+	 * @return The rate, in permits per second
+	 */
+	public double getRate() {
+		return rate;
+	}
+	
+	/**
+	 * Gets the burst size.
+	 * 
+	 * @return The maximum number of permits given at once
+	 */
+	public int getBurst() {
+		return burst;
+	}
+	
+	//endregion
+	
+	//region Acquisition
+	
+	/**
+	 * Acquires a permit, waiting for it if needed. The wait is not interruptible, but the 
+	 * interrupt status of the thread is preserved.
+	 * 
+	 * @return The time waited, in nanoseconds
+	 */
+	public long acquire() {
+		long wait = reserve(Long.MAX_VALUE);
+		sleep(wait);
+		return wait;
+	}
+	
+	/**
+	 * Acquires a permit only if it is available immediately.
+	 * 
+	 * @return Whether the permit was acquired
+	 */
+	public boolean tryAcquire() {
+		return reserve(0) == 0;
+	}
+	
+	/**
+	 * Acquires a permit if it becomes available within the given time, waiting for it. 
+	 * If it does not, nothing is reserved and the method returns immediately.
+	 * 
+	 * @param timeout The maximum wait
+	 * @param unit The unit of the timeout
+	 * @return The time waited in nanoseconds, or -1 if the permit was not acquired
+	 */
+	public long tryAcquire(long timeout, TimeUnit unit) {
+		long wait = reserve(unit.toNanos(Math.max(0, timeout)));
+		if (wait < 0) return -1;
+		
+		sleep(wait);
+		return wait;
+	}
+	
+	/**
+	 * Reserves the next permit, if it is available within the given time.
+	 * 
+	 * @param maxWait The maximum wait in nanoseconds
+	 * @return The wait before the reserved permit in nanoseconds, or -1 if nothing was reserved
+	 */
+	private long reserve(long maxWait) {
+		while (true) {
+			long now = System.nanoTime();
+			long tat = next.get();
+			long start = (tat - now > 0) ? tat : now;
+			long wait = Math.max(0, start - tolerance - now);
+			
+			if (wait > maxWait) return -1;
+			if (next.compareAndSet(tat, start + interval)) return wait;
+		}
+	}
+	
+	/**
+	 * Waits for the given time, ignoring the interrupts but preserving the interrupt status.
+	 * 
+	 * @param nanos The time to wait in nanoseconds
+	 */
+	private static void sleep(long nanos) {
+		boolean interrupted = false;
+		long deadline = System.nanoTime() + nanos;
+		for (long left = nanos; left > 0; left = deadline - System.nanoTime()) {
+			LockSupport.parkNanos(left);
+			if (Thread.interrupted()) interrupted = true;
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+	
+	//endregion
+	
+}
@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.core;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * Precompiled template of a query URL: a base URL followed by a fixed, ordered list of parameters.
+ * <p>
+ * The encoded "name=" prefix of each parameter is computed once, when the template is created. A request is 
+ * filled through a {@link Builder} that writes each value, percent-encoded as UTF-8 (RFC 3986, only the 
+ * unreserved characters are left as they are), straight into a thread local buffer, so no intermediate 
+ * string is created. The result is the canonical key of the request: the parameters are always in the 
+ * template order and encoded the same way, so two equal requests give the same string, which is also 
+ * the string form of the URL built from it ({@link URL#toString()}) used as the cache and coalescing key.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class IMDbRequestTemplate {
+
+	//region Fields
+	
+	/**
+	 * The hexadecimal digits of the percent-encoding.
+	 */
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+	
+	/**
+	 * The unreserved ASCII characters (RFC 3986, section 2.3).
+	 */
+	private static final boolean[] UNRESERVED = new boolean[128];
+	
+	/**
+	 * The buffers released above this capacity, so that a very long request does not keep its memory.
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 4096;
+	
+	static {
+		for (char c = 'a'; c <= 'z'; c++) UNRESERVED[c] = true;
+		for (char c = 'A'; c <= 'Z'; c++) UNRESERVED[c] = true;
+		for (char c = '0'; c <= '9'; c++) UNRESERVED[c] = true;
+		UNRESERVED['-'] = UNRESERVED['.'] = UNRESERVED['_'] = UNRESERVED['~'] = true;
+	}
+	
+	/**
+	 * The base URL, up to and including the '?'.
+	 */
+	private final String base;
+	
+	/**
+	 * The encoded "name=" prefix of each parameter.
+	 */
+	private final String[] prefixes;
+	
+	/**
+	 * The builder of each thread.
+	 */
+	private final ThreadLocal<Builder> builders = ThreadLocal.withInitial(Builder::new);
+	
+	//endregion
+	
+	/**
+	 * Creates a new template.
+	 * 
+	 * @param base The base URL, up to and including the '?' (not encoded)
+	 * @param names The names of the parameters, in order
+	 */
+	public IMDbRequestTemplate(String base, String... names) {
+		this.base = base;
+		this.prefixes = new String[names.length];
+		
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < names.length; i++) {
+			sb.setLength(0);
+			encode(sb, names[i]);
+			prefixes[i] = sb.append('=').toString();
+		}
+	}
+	
+	/**
+	 * Gets the builder of the calling thread, reset to the base URL. The builder is reused: it is 
+	 * valid until the next call of this method on the same thread.
+	 * 
+	 * @return The builder
+	 */
+	public Builder builder() {
+		Builder builder = builders.get();
+		builder.reset();
+		return builder;
+	}
+	
+	/**
+	 * Gets the number of parameters.
+	 * 
+	 * @return The number of parameters
+	 */
+	public int size() {
+		return prefixes.length;
+	}
+	
+	/**
+	 * Percent-encodes a value as UTF-8, leaving the unreserved characters as they are. 
+	 * An unpaired surrogate is encoded as the replacement character (U+FFFD).
+	 * 
+	 * @param sb The destination
+	 * @param value The value
+	 */
+	static void encode(StringBuilder sb, CharSequence value) {
+		for (int i = 0, n = value.length(); i < n; i++) {
+			char c = value.charAt(i);
+			
+			if (c < 0x80) {
+				if (UNRESERVED[c]) sb.append(c);
+				else percent(sb, c);
+				
+			} else if (c < 0x800) {
+				percent(sb, 0xC0 | (c >> 6));
+				percent(sb, 0x80 | (c & 0x3F));
+				
+			} else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, value.charAt(++i));
+				percent(sb, 0xF0 | (cp >> 18));
+				percent(sb, 0x80 | ((cp >> 12) & 0x3F));
+				percent(sb, 0x80 | ((cp >> 6) & 0x3F));
+				percent(sb, 0x80 | (cp & 0x3F));
+				
+			} else {
+				int cp = Character.isSurrogate(c) ? 0xFFFD : c;
+				percent(sb, 0xE0 | (cp >> 12));
+				percent(sb, 0x80 | ((cp >> 6) & 0x3F));
+				percent(sb, 0x80 | (cp & 0x3F));
+			}
+		}
+	}
+	
+	/**
+	 * Appends a percent-encoded byte.
+	 * 
+	 * @param sb The destination
+	 * @param b The byte
+	 */
+	private static void percent(StringBuilder sb, int b) {
+		sb.append('%').append(HEX[(b >> 4) & 0x0F]).append(HEX[b & 0x0F]);
+	}
+	
+	/**
+	 * Fills a request of the template: the values are given in the parameter order, 
+	 * each one (or a skip) exactly once.
+	 */
+	public final class Builder {
+		
+		/**
+		 * The request being built.
+		 */
+		private StringBuilder sb = new StringBuilder(256);
+		
+		/**
+		 * The index of the next parameter.
+		 */
+		private int next;
+		
+		/**
+		 * Whether no parameter has been written yet.
+		 */
+		private boolean first;
+		
+		private Builder() {
+		}
+		
+		/**
+		 * Resets the builder to the base URL.
+		 */
+		private void reset() {
+			if (sb.capacity() > MAX_RETAINED_CAPACITY) sb = new StringBuilder(256);
+			sb.setLength(0);
+			sb.append(base);
+			next = 0;
+			first = true;
+		}
+		
+		/**
+		 * Writes the prefix of the next parameter.
+		 */
+		private StringBuilder prefix() {
+			if (next >= prefixes.length) throw new IllegalStateException("All the " + prefixes.length + " parameters are already set");
+			if (!first) sb.append('&');
+			first = false;
+			return sb.append(prefixes[next++]);
+		}
+		
+		/**
+		 * Sets the next parameter.
+		 * 
+		 * @param value The value (null leaves the parameter out)
+		 * @return This builder
+		 */
+		public Builder add(CharSequence value) {
+			if (value == null) return skip();
+			
+			encode(prefix(), value);
+			return this;
+		}
+		
+		/**
+		 * Sets the next parameter.
+		 * 
+		 * @param value The value
+		 * @return This builder
+		 */
+		public Builder add(int value) {
+			prefix().append(value);
+			return this;
+		}
+		
+		/**
+		 * Sets the next parameter.
+		 * 
+		 * @param value The value (null leaves the parameter out)
+		 * @return This builder
+		 */
+		public Builder add(Integer value) {
+			if (value == null) return skip();
+			
+			return add(value.intValue());
+		}
+		
+		/**
+		 * Leaves the next parameter out.
+		 * 
+		 * @return This builder
+		 */
+		public Builder skip() {
+			if (next >= prefixes.length) throw new IllegalStateException("All the " + prefixes.length + " parameters are already set");
+			next++;
+			return this;
+		}
+		
+		/**
+		 * Gets the canonical key of the request.
+		 * 
+		 * @return The request key (the URL string)
+		 */
+		public String toKey() {
+			return sb.toString();
+		}
+		
+		/**
+		 * Gets the URL of the request.
+		 * 
+		 * @return The query URL
+		 * @throws MalformedURLException Throws if the base URL is not valid
+		 */
+		public URL toURL() throws MalformedURLException {
+			return new URL(sb.toString());
+		}
+		
+		@Override
+		public String toString() {
+			return sb.toString();
+		}
+	}
+	
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import mk.imdb.exception.IMDbResponseException;
+
+/**
+ * Callback that decodes the body of a response straight from the connection stream.
+ * 
+ * @author Mirko Polato
+ *
+ * @param <T> The type of the decoded result
+ */
+public interface IMDbResponseHandler<T> {
+
+	/**
+	 * Decodes the response body. The stream is closed by the caller.
+	 * 
+	 * @param body The response body (UTF-8 encoded)
+	 * @return The decoded result
+	 * @throws IOException Throws if the body cannot be read or it is malformed
+	 * @throws IMDbResponseException Throws if the body reports an error status
+	 */
+	T handle(InputStream body) throws IOException, IMDbResponseException;
+	
+}
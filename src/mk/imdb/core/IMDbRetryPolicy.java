@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.core;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import mk.imdb.response.IMDbStatus;
+
+/**
+ * Policy that decides whether and when a failed request is sent again (see {@link IMDbAPI#setRetryPolicy(IMDbRetryPolicy)}).
+ * <p>
+ * The requests that fail with a transient status (see {@link #isRetryable(IMDbStatus)}) are retried up to 
+ * the maximum number of attempts, waiting an exponential backoff with full jitter: before the n-th retry 
+ * a random delay between 0 and min(maxDelay, baseDelay * 2^(n-1)). A retry is never scheduled past the 
+ * deadline of the call, and the waits of each attempt (for the rate limiter, for a free connection, to connect 
+ * and to read) are cut to the time left: an attempt that reaches the deadline fails with {@link IMDbStatus#TIMEOUT}.
+ * <p>
+ * The retries of all the calls share a token bucket, the retry budget: each retry takes a token, and 
+ * the tokens are refilled at a fixed rate up to the bucket capacity. When the upstream is down the 
+ * budget runs out and the calls fail at the first attempt, instead of multiplying the load.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbRetryPolicy {
+
+	//region Fields
+	
+	/**
+	 * Policy that never retries (the default).
+	 */
+	public static final IMDbRetryPolicy NONE = new IMDbRetryPolicy(1, 0, 0, 0);
+	
+	/**
+	 * Default capacity of the retry budget.
+	 */
+	public static final int DEFAULT_BUDGET = 10;
+	
+	/**
+	 * Default refill rate of the retry budget, in tokens per second.
+	 */
+	public static final double DEFAULT_BUDGET_RATE = 1.0;
+	
+	/**
+	 * The maximum number of attempts, the first one included.
+	 */
+	private final int maxAttempts;
+	
+	/**
+	 * The backoff of the first retry in milliseconds.
+	 */
+	private final long baseDelay;
+	
+	/**
+	 * The maximum backoff in milliseconds.
+	 */
+	private final long maxDelay;
+	
+	/**
+	 * The overall time limit of a call in milliseconds (0 for none).
+	 */
+	private final long deadline;
+	
+	/**
+	 * The capacity of the retry budget.
+	 */
+	private final double budget;
+	
+	/**
+	 * The refill rate of the retry budget, in tokens per millisecond.
+	 */
+	private final double budgetRate;
+	
+	/**
+	 * The tokens left in the retry budget.
+	 */
+	private double tokens;
+	
+	/**
+	 * The time of the last refill, in milliseconds.
+	 */
+	private long refilledAt = System.currentTimeMillis();
+	
+	//endregion
+	
+	/**
+	 * Creates a new policy with the default retry budget.
+	 * 
+	 * @param maxAttempts The maximum number of attempts, the first one included (1 never retries)
+	 * @param baseDelay The backoff of the first retry in milliseconds
+	 * @param maxDelay The maximum backoff in milliseconds
+	 * @param deadline The overall time limit of a call in milliseconds (0 for none)
+	 */
+	public IMDbRetryPolicy(int maxAttempts, long baseDelay, long maxDelay, long deadline) {
+		this(maxAttempts, baseDelay, maxDelay, deadline, DEFAULT_BUDGET, DEFAULT_BUDGET_RATE);
+	}
+	
+	/**
+	 * Creates a new policy.
+	 * 
+	 * @param maxAttempts The maximum number of attempts, the first one included (1 never retries)
+	 * @param baseDelay The backoff of the first retry in milliseconds
+	 * @param maxDelay The maximum backoff in milliseconds
+	 * @param deadline The overall time limit of a call in milliseconds (0 for none)
+	 * @param budget The capacity of the retry budget (the maximum burst of retries)
+	 * @param budgetRate The refill rate of the retry budget, in retries per second
+	 */
+	public IMDbRetryPolicy(int maxAttempts, long baseDelay, long maxDelay, long deadline, int budget, double budgetRate) {
+		this.maxAttempts = Math.max(1, maxAttempts);
+		this.baseDelay = Math.max(0, baseDelay);
+		this.maxDelay = Math.max(this.baseDelay, maxDelay);
+		this.deadline = Math.max(0, deadline);
+		this.budget = Math.max(0, budget);
+		this.budgetRate = Math.max(0, budgetRate) / 1000.0;
+		this.tokens = this.budget;
+	}
+	
+	//region Getters
+	
+	/**
+	 * Gets the maximum number of attempts, the first one included.
+	 * 
+	 * @return The maximum number of attempts
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+	
+	/**
+	 * Gets the backoff of the first retry.
+	 * 
+	 * @return The base delay in milliseconds
+	 */
+	public long getBaseDelay() {
+		return baseDelay;
+	}
+	
+	/**
+	 * Gets the maximum backoff.
+	 * 
+	 * @return The maximum delay in milliseconds
+	 */
+	public long getMaxDelay() {
+		return maxDelay;
+	}
+	
+	/**
+	 * Gets the overall time limit of a call.
+	 * 
+	 * @return The deadline in milliseconds (0 for none)
+	 */
+	public long getDeadline() {
+		return deadline;
+	}
+	
+	/**
+	 * Gets the number of retries currently allowed by the budget.
+	 * 
+	 * @return The tokens left
+	 */
+	public synchronized int getBudgetLeft() {
+		refill(System.currentTimeMillis());
+		return (int) tokens;
+	}
+	
+	//endregion
+	
+	/**
+	 * Gets whether a request that ended with the given status can be retried.
+	 * By default the timeouts and the unknown errors (connection failures, HTTP server errors and 429) are 
+	 * retried; the other HTTP client errors ({@link IMDbStatus#CLIENT_ERROR}) are not.
+	 * 
+	 * @param status The request status
+	 * @return Whether the status is transient
+	 */
+	public boolean isRetryable(IMDbStatus status) {
+		return status == IMDbStatus.TIMEOUT || status == IMDbStatus.UNKNOWN_ERROR;
+	}
+	
+	/**
+	 * Gets the backoff before the given retry.
+	 * 
+	 * @param retry The retry number (1 for the first retry)
+	 * @return The random backoff in milliseconds
+	 */
+	protected long backoff(int retry) {
+		long cap = baseDelay << Math.min(retry - 1, 30);
+		if (cap <= 0 || cap > maxDelay) cap = maxDelay;
+		return (cap > 0) ? ThreadLocalRandom.current().nextLong(cap + 1) : 0;
+	}
+	
+	/**
+	 * Decides whether an attempt that ended with the given status is retried.
+	 * 
+	 * @param attempt The number of attempts done so far
+	 * @param status The status of the last attempt
+	 * @param startedAt The time the call started, in milliseconds
+	 * @return The backoff in milliseconds before the next attempt, -1 if the status or the attempts or the
+	 * deadline do not allow a retry, -2 if the retry budget is exhausted
+	 */
+	long nextDelay(int attempt, IMDbStatus status, long startedAt) {
+		if (attempt >= maxAttempts || !isRetryable(status)) return -1;
+		
+		long delay = backoff(attempt);
+		if (deadline > 0 && System.currentTimeMillis() + delay >= startedAt + deadline) return -1;
+		
+		return tryAcquire() ? delay : -2;
+	}
+	
+	/**
+	 * Gets the deadline of a call.
+	 * 
+	 * @param startedAt The time the call started, in milliseconds
+	 * @return The time the call must end by, in milliseconds (0 for none)
+	 */
+	long callDeadline(long startedAt) {
+		return (deadline == 0) ? 0 : startedAt + deadline;
+	}
+	
+	/**
+	 * Gets the timeout of an attempt.
+	 * 
+	 * @param timeout The configured timeout in milliseconds (0 for none)
+	 * @param startedAt The time the call started, in milliseconds
+	 * @return The timeout, cut to the time left before the deadline
+	 */
+	int attemptTimeout(int timeout, long startedAt) {
+		if (deadline == 0) return timeout;
+		
+		long left = Math.max(1, startedAt + deadline - System.currentTimeMillis());
+		return (int) ((timeout > 0) ? Math.min(timeout, left) : left);
+	}
+	
+	/**
+	 * Takes a token from the retry budget.
+	 * 
+	 * @return Whether a token was available
+	 */
+	private synchronized boolean tryAcquire() {
+		refill(System.currentTimeMillis());
+		if (tokens < 1) return false;
+		
+		tokens -= 1;
+		return true;
+	}
+	
+	private void refill(long now) {
+		if (now > refilledAt) {
+			tokens = Math.min(budget, tokens + (now - refilledAt) * budgetRate);
+			refilledAt = now;
+		}
+	}
+	
+}
@@ -20,26 +20,116 @@
 
 package mk.imdb.core;
 
+import java.util.Objects;
+
 /**
- * Class that represents the list of parameters for a search by id API call.
+ * Class that represents the list of parameters for a search by id API call (immutable, see {@link IMDbParameters}).
  * 
  * @author Mirko Polato
  *
  */
-public class IMDbSearchByIdParameters extends IMDbParameters {
+public final class IMDbSearchByIdParameters extends IMDbParameters {
 
+	/**
+	 * Builder of the parameters for a search by id.
+	 */
+	public static final class Builder extends IMDbParameters.Builder<Builder> {
+		
+		private String movieID;
+		
+		private Builder(String movieID) {
+			this.movieID = movieID;
+		}
+		
+		private Builder(IMDbSearchByIdParameters other) {
+			super(other);
+			this.movieID = other.movieID;
+		}
+		
+		/**
+		 * Sets the movie ID.
+		 * 
+		 * @param movieID The movie ID
+		 * @return This builder
+		 */
+		public Builder movieID(String movieID) {
+			this.movieID = movieID;
+			return this;
+		}
+		
+		/**
+		 * Creates the parameters.
+		 * 
+		 * @return The new parameters
+		 */
+		public IMDbSearchByIdParameters build() {
+			return new IMDbSearchByIdParameters(this);
+		}
+		
+		@Override
+		protected Builder self() {
+			return this;
+		}
+	}
+	
 	/**
 	 * The movie ID
 	 */
-	private String movieID = null;
+	private final String movieID;
+	
+	/**
+	 * The request key.
+	 */
+	private final String key;
 
 	/**
-	 * Creates a new instance of IMDbSearchByIdParameters.
+	 * Creates a new instance of IMDbSearchByIdParameters with the default values.
 	 * 
 	 * @param movieID The movie ID
 	 */
 	public IMDbSearchByIdParameters(String movieID) {
-		this.movieID = movieID;
+		this(new Builder(movieID));
+	}
+	
+	/**
+	 * Creates a new instance of IMDbSearchByIdParameters from the given builder.
+	 * 
+	 * @param builder The builder
+	 */
+	private IMDbSearchByIdParameters(Builder builder) {
+		super(builder);
+		this.movieID = builder.movieID;
+		this.key = IMDbURLCreator.toKey(this);
+	}
+	
+	/**
+	 * Creates a builder of the parameters for a search by id.
+	 * 
+	 * @param movieID The movie ID
+	 * @return The new builder
+	 */
+	public static Builder builder(String movieID) {
+		return new Builder(movieID);
+	}
+	
+	/**
+	 * Creates a builder initialized with these parameters.
+	 * 
+	 * @return The new builder
+	 */
+	public Builder toBuilder() {
+		return new Builder(this);
+	}
+	
+	/**
+	 * Gets the same parameters for another movie.
+	 * 
+	 * @param movieID The movie ID
+	 * @return The parameters for the given movie (this instance if the ID is the same)
+	 */
+	public IMDbSearchByIdParameters withMovieID(String movieID) {
+		if (Objects.equals(this.movieID, movieID)) return this;
+		return toBuilder().movieID(movieID).build();
 	}
 	
 	/**
@@ -50,14 +140,10 @@ public class IMDbSearchByIdParameters extends IMDbParameters {
 	public String getMovieID() {
 		return movieID;
 	}
-
-	/**
-	 * Sets the movie ID.
-	 * 
-	 * @param movieID The new movie ID
-	 */
-	public void setMovieID(String movieID) {
-		this.movieID = movieID;
+	
+	@Override
+	public String getKey() {
+		return key;
 	}
 
 }
@@ -20,72 +20,213 @@
 
 package mk.imdb.core;
 
+import java.util.Objects;
+
 import mk.imdb.entity.IMDbMovieType;
 
 /**
- * Class that represents the list of parameters for a search by title API call.
+ * Class that represents the list of parameters for a search by title API call (immutable, see {@link IMDbParameters}).
  * 
  * @author Mirko Polato
  *
  */
-public class IMDbSearchByTitleParameters extends IMDbParameters {
+public final class IMDbSearchByTitleParameters extends IMDbParameters {
 
+	/**
+	 * Builder of the parameters for a search by title.
+	 */
+	public static final class Builder extends IMDbParameters.Builder<Builder> {
+		
+		private String title;
+		private Integer year = null;
+		private IMDbMovieType type = IMDbMovieType.NONE;
+		private int offset = 0;
+		private int limit = 1;
+		
+		private Builder(String title) {
+			this.title = title;
+		}
+		
+		private Builder(IMDbSearchByTitleParameters other) {
+			super(other);
+			this.title = other.title;
+			this.year = other.year;
+			this.type = other.type;
+			this.offset = other.offset;
+			this.limit = other.limit;
+		}
+		
+		/**
+		 * Sets the movie title.
+		 * 
+		 * @param title The movie title
+		 * @return This builder
+		 */
+		public Builder title(String title) {
+			this.title = title;
+			return this;
+		}
+		
+		/**
+		 * Sets the movie year.
+		 * 
+		 * @param year The movie year (null for any year)
+		 * @return This builder
+		 */
+		public Builder year(Integer year) {
+			this.year = year;
+			return this;
+		}
+		
+		/**
+		 * Sets the movie type.
+		 * 
+		 * @param type The movie type
+		 * @return This builder
+		 */
+		public Builder type(IMDbMovieType type) {
+			this.type = Objects.requireNonNull(type, "type");
+			return this;
+		}
+		
+		/**
+		 * Sets the offset from where the search starts.
+		 * 
+		 * @param offset The offset (at least 0)
+		 * @return This builder
+		 */
+		public Builder offset(int offset) {
+			if (offset < 0) throw new IllegalArgumentException("The offset cannot be negative: " + offset);
+			this.offset = offset;
+			return this;
+		}
+		
+		/**
+		 * Sets the maximum number of the results.
+		 * 
+		 * @param limit The limit (at least 1)
+		 * @return This builder
+		 */
+		public Builder limit(int limit) {
+			if (limit < 1) throw new IllegalArgumentException("The limit must be positive: " + limit);
+			this.limit = limit;
+			return this;
+		}
+		
+		/**
+		 * Creates the parameters.
+		 * 
+		 * @return The new parameters
+		 */
+		public IMDbSearchByTitleParameters build() {
+			return new IMDbSearchByTitleParameters(this);
+		}
+		
+		@Override
+		protected Builder self() {
+			return this;
+		}
+	}
+	
 	//region Fields
 	
 	/**
 	 * The movie title.
 	 */
-	private String title = null;
+	private final String title;
 	
 	/**
 	 * The movie year.
 	 */
-	private Integer year = null;
+	private final Integer year;
 	
 	/**
 	 * The movie type.
 	 */
-	private IMDbMovieType type = IMDbMovieType.NONE;
+	private final IMDbMovieType type;
 	
 	/**
 	 * The offset from where the search starts.
 	 */
-	private Integer offset = 0;
+	private final int offset;
 	
 	/**
 	 * The maximum number of the results.
 	 */
-	private Integer limit = 1;
+	private final int limit;
+	
+	/**
+	 * The request key.
+	 */
+	private final String key;
 	
 	//endregion
 	
 	/**
-	 * Creates a new instance of IMDbSearchByTitleParameters.
+	 * Creates a new instance of IMDbSearchByTitleParameters with the default values.
 	 * 
 	 * @param title The movie title
 	 */
 	public IMDbSearchByTitleParameters(String title) {
-		this.title = title;
+		this(new Builder(title));
 	}
 	
-	//region Getters/Setters
+	/**
+	 * Creates a new instance of IMDbSearchByTitleParameters from the given builder.
+	 * 
+	 * @param builder The builder
+	 */
+	private IMDbSearchByTitleParameters(Builder builder) {
+		super(builder);
+		this.title = builder.title;
+		this.year = builder.year;
+		this.type = builder.type;
+		this.offset = builder.offset;
+		this.limit = builder.limit;
+		this.key = IMDbURLCreator.toKey(this);
+	}
 	
-	public String getTitle() {
-		return title;
+	/**
+	 * Creates a builder of the parameters for a search by title.
+	 * 
+	 * @param title The movie title
+	 * @return The new builder
+	 */
+	public static Builder builder(String title) {
+		return new Builder(title);
 	}
+	
+	/**
+	 * Creates a builder initialized with these parameters.
+	 * 
+	 * @return The new builder
+	 */
+	public Builder toBuilder() {
+		return new Builder(this);
+	}
+	
+	/**
+	 * Gets the same parameters for another page of results.
+	 * 
+	 * @param offset The offset of the page
+	 * @param limit The size of the page
+	 * @return The parameters of the page (this instance if they are the same)
+	 */
+	public IMDbSearchByTitleParameters withPage(int offset, int limit) {
+		if (this.offset == offset && this.limit == limit) return this;
+		return toBuilder().offset(offset).limit(limit).build();
+	}
+	
+	//region Getters
 
-	public void setTitle(String title) {
-		this.title = title;
+	public String getTitle() {
+		return title;
 	}
 
 	public Integer getYear() {
 		return year;
 	}
 	
-	public void setYear(Integer year) {
-		this.year = year;
-	}
-	
 	public boolean isYearSet() {
 		return year != null;
 	}
@@ -94,24 +235,17 @@ public class IMDbSearchByTitleParameters extends IMDbParameters {
 		return type;
 	}
 	
-	public void setType(IMDbMovieType type) {
-		this.type = type;
-	}
-	
-	public Integer getOffset() {
+	public int getOffset() {
 		return offset;
 	}
 	
-	public void setOffset(Integer offset) {
-		this.offset = offset;
-	}
-	
-	public Integer getLimit() {
+	public int getLimit() {
 		return limit;
 	}
 	
-	public void setLimit(Integer limit) {
-		this.limit = limit;
+	@Override
+	public String getKey() {
+		return key;
 	}
 
 	//endregion
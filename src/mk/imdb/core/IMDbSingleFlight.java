@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces identical calls in flight at the same time: the first caller of a key runs the call, 
+ * while the others wait for it and get the same result, or the same exception.
+ * Once the call completes, the key is released and a new call is made by the next caller.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class IMDbSingleFlight {
+
+	/**
+	 * A call that can be coalesced.
+	 *
+	 * @param <T> The type of the result
+	 * @param <E> The type of the exception
+	 */
+	public interface Call<T, E extends Exception> {
+		
+		/**
+		 * Runs the call.
+		 * 
+		 * @return The result
+		 * @throws E Throws if the call fails
+		 */
+		T call() throws E;
+	}
+	
+	/**
+	 * The calls in flight.
+	 */
+	private final ConcurrentMap<Object, CompletableFuture<Object>> calls = new ConcurrentHashMap<Object, CompletableFuture<Object>>();
+	
+	/**
+	 * The number of calls actually run.
+	 */
+	private final LongAdder executed = new LongAdder();
+	
+	/**
+	 * The number of calls served by a call already in flight.
+	 */
+	private final LongAdder coalesced = new LongAdder();
+	
+	/**
+	 * Runs the given call, unless an identical one is already in flight.
+	 * Calls with the same key must have the same result and exception types.
+	 * 
+	 * @param key The call key
+	 * @param call The call
+	 * @return The result
+	 * @throws E Throws if the call (or the one in flight) fails
+	 */
+	@SuppressWarnings("unchecked")
+	public <T, E extends Exception> T execute(Object key, Call<T, E> call) throws E {
+		CompletableFuture<Object> mine = new CompletableFuture<Object>();
+		CompletableFuture<Object> flight = calls.putIfAbsent(key, mine);
+		
+		if (flight != null) {
+			coalesced.increment();
+			try {
+				return (T) flight.join();
+			} catch (CompletionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof Error) throw (Error) cause;
+				throw (E) cause;
+			}
+		}
+		
+		executed.increment();
+		try {
+			T result = call.call();
+			mine.complete(result);
+			return result;
+			
+		} catch (Exception | Error e) {
+			mine.completeExceptionally(e);
+			throw e;
+			
+		} finally {
+			calls.remove(key, mine);
+		}
+	}
+	
+	/**
+	 * Gets the number of calls actually run.
+	 * 
+	 * @return The number of executed calls
+	 */
+	public long getExecutedCalls() {
+		return executed.sum();
+	}
+	
+	/**
+	 * Gets the number of calls served by a call already in flight.
+	 * 
+	 * @return The number of coalesced calls
+	 */
+	public long getCoalescedCalls() {
+		return coalesced.sum();
+	}
+	
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.core;
+
+import java.io.IOException;
+
+import mk.imdb.response.IMDbStatus;
+
+/**
+ * Signals that a request was not sent for a reason with its own status (e.g. the rate limiter).
+ * 
+ * @author Mirko Polato
+ *
+ */
+class IMDbStatusException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The request status.
+	 */
+	private final IMDbStatus status;
+	
+	/**
+	 * Creates a new exception with the given status.
+	 * 
+	 * @param status The request status
+	 */
+	IMDbStatusException(IMDbStatus status) {
+		super(status.getStatus());
+		this.status = status;
+	}
+	
+	/**
+	 * Gets the request status.
+	 * 
+	 * @return The request status
+	 */
+	IMDbStatus getStatus() {
+		return status;
+	}
+	
+}
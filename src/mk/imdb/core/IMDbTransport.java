@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.core;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Service provider interface for the HTTP layer used by {@link IMDbAPI}.
+ * <p>
+ * Implementations must be thread safe: a single instance serves every call made by the library.
+ * A read timeout has to be reported as a {@link java.net.SocketTimeoutException}, so that the
+ * caller can tell it apart from the other I/O errors.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public interface IMDbTransport {
+
+	/**
+	 * Makes an HTTP GET request.
+	 * 
+	 * @param url The query URL
+	 * @param headers The request headers
+	 * @param timeout The read timeout in milliseconds (0 means no timeout)
+	 * @return The response, whose body must be closed by the caller
+	 * @throws IOException Throws if the request cannot be completed
+	 */
+	IMDbTransportResponse get(URL url, Map<String, String> headers, int timeout) throws IOException;
+	
+	/**
+	 * Makes an HTTP GET request that must get its response headers by the given deadline: the waits 
+	 * before the response (e.g. for a free connection, or to connect) should be cut to the time left, 
+	 * and fail with a {@link java.net.SocketTimeoutException} past it. The default implementation 
+	 * only cuts the read timeout.
+	 * 
+	 * @param url The query URL
+	 * @param headers The request headers
+	 * @param timeout The read timeout in milliseconds (0 means no timeout)
+	 * @param deadline The deadline in milliseconds since the epoch (0 means no deadline)
+	 * @return The response, whose body must be closed by the caller
+	 * @throws IOException Throws if the request cannot be completed
+	 */
+	default IMDbTransportResponse get(URL url, Map<String, String> headers, int timeout, long deadline) throws IOException {
+		return get(url, headers, timeLeft(timeout, deadline));
+	}
+	
+	/**
+	 * Cuts a timeout to the time left before a deadline.
+	 * 
+	 * @param timeout The timeout in milliseconds (0 means no timeout)
+	 * @param deadline The deadline in milliseconds since the epoch (0 means no deadline)
+	 * @return The timeout, cut to the time left (0 only without timeout and deadline)
+	 * @throws SocketTimeoutException Throws if the deadline has passed
+	 */
+	static int timeLeft(int timeout, long deadline) throws SocketTimeoutException {
+		if (deadline == 0) return timeout;
+		
+		long left = deadline - System.currentTimeMillis();
+		if (left <= 0) throw new SocketTimeoutException("Call deadline exceeded");
+		return (int) ((timeout > 0) ? Math.min(timeout, left) : Math.min(Integer.MAX_VALUE, left));
+	}
+	
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class that represents the response returned by an {@link IMDbTransport}.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbTransportResponse implements Closeable {
+
+	/**
+	 * The HTTP status code.
+	 */
+	private final int statusCode;
+	
+	/**
+	 * The response headers (case insensitive names).
+	 */
+	private final Map<String, String> headers;
+	
+	/**
+	 * The response body.
+	 */
+	private final InputStream body;
+	
+	/**
+	 * Creates a new instance of IMDbTransportResponse.
+	 * 
+	 * @param statusCode The HTTP status code
+	 * @param headers The response headers
+	 * @param body The response body
+	 */
+	public IMDbTransportResponse(int statusCode, Map<String, String> headers, InputStream body) {
+		this.statusCode = statusCode;
+		this.body = body;
+		
+		Map<String, String> map = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+		if (headers != null) map.putAll(headers);
+		this.headers = Collections.unmodifiableMap(map);
+	}
+	
+	/**
+	 * Gets the HTTP status code.
+	 * 
+	 * @return The status code
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+	
+	/**
+	 * Gets the value of the given header.
+	 * 
+	 * @param name The header name (case insensitive)
+	 * @return The header value, or null if it is missing
+	 */
+	public String getHeader(String name) {
+		return headers.get(name);
+	}
+	
+	/**
+	 * Gets the response headers.
+	 * 
+	 * @return The response headers
+	 */
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+	
+	/**
+	 * Gets the response body.
+	 * 
+	 * @return The body stream
+	 */
+	public InputStream getBody() {
+		return body;
+	}
+	
+	/**
+	 * Closes the body, giving the connection back to the transport.
+	 */
+	@Override
+	public void close() throws IOException {
+		body.close();
+	}
+	
+}
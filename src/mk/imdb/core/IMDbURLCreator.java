@@ -24,40 +24,59 @@ import java.net.MalformedURLException;
 import java.net.URL;
 
 /**
- * This class provides methods for creating well formed query URL.
+ * This class provides methods for creating well formed query URL. The URLs are built from precompiled 
+ * {@link IMDbRequestTemplate}s, with the values percent-encoded.
  * 
  * @author Mirko Polato
  *
  */
 public final class IMDbURLCreator {
 	
-	//region Utilities
+	//region Templates
 	
 	/**
-	 * Forms a pair 'property=value'.
-	 * 
-	 * @param prop The property
-	 * @param value The value
-	 * @return The string 'prop=value'
+	 * The template of the search by ID.
 	 */
-	private static String pair(String prop, String value) {
-		return prop + "=" + value;
-	}
+	private static final IMDbRequestTemplate BY_ID = new IMDbRequestTemplate(IMDbConstants.BASE_URL, 
+			IMDbConstants.ID, IMDbConstants.PLOT, IMDbConstants.EPISODE, IMDbConstants.AKA, IMDbConstants.RELEASE);
 	
 	/**
-	 * Adds to the head of the given string a "&".
-	 * 
-	 * @param par The string
-	 * @return The string with "&" symbol as first character
+	 * The template of the search by title.
 	 */
-	private static String param(String par) {
-		return "&" + par;
-	}
+	private static final IMDbRequestTemplate BY_TITLE = new IMDbRequestTemplate(IMDbConstants.BASE_URL, 
+			IMDbConstants.TITLE, IMDbConstants.PLOT, IMDbConstants.EPISODE, IMDbConstants.AKA, IMDbConstants.RELEASE, 
+			IMDbConstants.YEAR_ENABLED, IMDbConstants.YEAR, IMDbConstants.MOVIE_TYPE, IMDbConstants.OFFSET, IMDbConstants.LIMIT);
 	
 	//endregion
 
 	//region Search by ID
 	
+	/**
+	 * Returns the canonical key of the search for movie by id (the query URL string).
+	 * 
+	 * @param pars The list of parameters
+	 * @return The request key
+	 */
+	public static String searchMovieByIdKey(IMDbSearchByIdParameters pars) {
+		return pars.getKey();
+	}
+	
+	/**
+	 * Builds the canonical key of the search for movie by id.
+	 * 
+	 * @param pars The list of parameters
+	 * @return The request key
+	 */
+	static String toKey(IMDbSearchByIdParameters pars) {
+		return BY_ID.builder()
+				.add(pars.getMovieID())
+				.add(pars.getPlot().getValue())
+				.add((pars.isEpisode()) ? 1 : 0)
+				.add(pars.getAka().getValue())
+				.add(pars.getRelease().getValue())
+				.toKey();
+	}
+	
 	/**
 	 * Returns the URL that searches for movie by id.
 	 * 
@@ -66,18 +85,46 @@ public final class IMDbURLCreator {
 	 * @throws MalformedURLException Throws if the URL has an invalid form
 	 */
 	public static URL searchMovieByIdUrl(IMDbSearchByIdParameters pars) throws MalformedURLException {
-		return new URL(IMDbConstants.BASE_URL + 
-					   pair(IMDbConstants.ID, pars.getMovieID()) + 
-					   param(pair(IMDbConstants.PLOT, pars.getPlot().getValue())) + 
-					   param(pair(IMDbConstants.EPISODE, (pars.isEpisode()) ? "1" : "0")) +
-					   param(pair(IMDbConstants.AKA, pars.getAka().getValue())) + 
-					   param(pair(IMDbConstants.RELEASE, pars.getRelease().getValue())));
+		return new URL(pars.getKey());
 	}
 	
 	//endregion
 	
 	//region Search by title
 	
+	/**
+	 * Returns the canonical key of the search for movies by title (the query URL string).
+	 * 
+	 * @param pars The list of parameters
+	 * @return The request key
+	 */
+	public static String searchMovieByTitleKey(IMDbSearchByTitleParameters pars) {
+		return pars.getKey();
+	}
+	
+	/**
+	 * Builds the canonical key of the search for movies by title.
+	 * 
+	 * @param pars The list of parameters
+	 * @return The request key
+	 */
+	static String toKey(IMDbSearchByTitleParameters pars) {
+		IMDbRequestTemplate.Builder builder = BY_TITLE.builder()
+				.add(pars.getTitle())
+				.add(pars.getPlot().getValue())
+				.add((pars.isEpisode()) ? 1 : 0)
+				.add(pars.getAka().getValue())
+				.add(pars.getRelease().getValue());
+		
+		if (pars.isYearSet()) builder.add(1).add(pars.getYear());
+		else builder.skip().skip();
+		
+		return builder.add(pars.getType().getValue())
+				.add(pars.getOffset())
+				.add(pars.getLimit())
+				.toKey();
+	}
+	
 	/**
 	 * Returns the URL that searches for movies by title.
 	 * 
@@ -86,23 +133,7 @@ public final class IMDbURLCreator {
 	 * @throws MalformedURLException Throws if the URL has an invalid form
 	 */
 	public static URL searchMovieByTitleUrl(IMDbSearchByTitleParameters pars) throws MalformedURLException {
-		String year = "";
-		
-		if (pars.isYearSet()) {
-			year = param(pair(IMDbConstants.YEAR_ENABLED, "1")) + 
-				   param(pair(IMDbConstants.YEAR, pars.getYear().toString()));
-		}
-		
-		return new URL(IMDbConstants.BASE_URL + 
-					   pair(IMDbConstants.TITLE, pars.getTitle()) + 
-					   param(pair(IMDbConstants.PLOT, pars.getPlot().getValue())) + 
-					   param(pair(IMDbConstants.EPISODE, (pars.isEpisode()) ? "1" : "0")) +
-					   param(pair(IMDbConstants.AKA, pars.getAka().getValue())) + 
-					   param(pair(IMDbConstants.RELEASE, pars.getRelease().getValue())) + 
-					   year +
-					   param(pair(IMDbConstants.MOVIE_TYPE, pars.getType().getValue())) + 
-					   param(pair(IMDbConstants.OFFSET, pars.getOffset().toString())) + 
-					   param(pair(IMDbConstants.LIMIT, pars.getLimit().toString())));
+		return new URL(pars.getKey());
 	}
 	
 	//endregion
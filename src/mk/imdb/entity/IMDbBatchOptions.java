@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.entity;
+
+import mk.imdb.core.IMDbSearchByIdParameters;
+
+/**
+ * Class that represents the options of a batch lookup ({@link IMDbMovie#searchByIds(java.util.Collection, IMDbBatchOptions)}).
+ * The options are immutable: they are created with a {@link Builder}.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class IMDbBatchOptions {
+
+	/**
+	 * Callback notified of the progress of a batch lookup.
+	 */
+	public interface Listener {
+		
+		/**
+		 * Called after each lookup completes, possibly from several threads at the same time.
+		 * 
+		 * @param completed The number of completed lookups
+		 * @param total The total number of lookups
+		 */
+		void progress(int completed, int total);
+	}
+	
+	/**
+	 * Builder of the options of a batch lookup.
+	 */
+	public static final class Builder {
+		
+		private int concurrency = 8;
+		
+		private IMDbSearchByIdParameters parameters = new IMDbSearchByIdParameters(null);
+		
+		private Listener listener = null;
+		
+		private Builder() {
+		}
+		
+		private Builder(IMDbBatchOptions other) {
+			this.concurrency = other.concurrency;
+			this.parameters = other.parameters;
+			this.listener = other.listener;
+		}
+		
+		/**
+		 * Sets the maximum number of lookups in flight.
+		 * 
+		 * @param concurrency The concurrency (at least 1)
+		 * @return This builder
+		 */
+		public Builder concurrency(int concurrency) {
+			this.concurrency = Math.max(1, concurrency);
+			return this;
+		}
+		
+		/**
+		 * Sets the parameters used for every lookup (the movie ID is ignored).
+		 * 
+		 * @param parameters The parameters, or null for the default ones
+		 * @return This builder
+		 */
+		public Builder parameters(IMDbSearchByIdParameters parameters) {
+			this.parameters = (parameters != null) ? parameters : new IMDbSearchByIdParameters(null);
+			return this;
+		}
+		
+		/**
+		 * Sets the progress listener.
+		 * 
+		 * @param listener The listener, or null
+		 * @return This builder
+		 */
+		public Builder listener(Listener listener) {
+			this.listener = listener;
+			return this;
+		}
+		
+		/**
+		 * Creates the options.
+		 * 
+		 * @return The new options
+		 */
+		public IMDbBatchOptions build() {
+			return new IMDbBatchOptions(this);
+		}
+	}
+	
+	/**
+	 * The default options.
+	 */
+	public static final IMDbBatchOptions DEFAULT = new Builder().build();
+	
+	//region Fields
+	
+	/**
+	 * The maximum number of lookups in flight.
+	 */
+	private final int concurrency;
+	
+	/**
+	 * The parameters used for every lookup (the movie ID is ignored).
+	 */
+	private final IMDbSearchByIdParameters parameters;
+	
+	/**
+	 * The progress listener.
+	 */
+	private final Listener listener;
+	
+	//endregion
+	
+	/**
+	 * Creates a new instance of IMDbBatchOptions from the given builder.
+	 * 
+	 * @param builder The builder
+	 */
+	private IMDbBatchOptions(Builder builder) {
+		this.concurrency = builder.concurrency;
+		this.parameters = builder.parameters;
+		this.listener = builder.listener;
+	}
+	
+	/**
+	 * Creates a builder of batch options initialized with the default values.
+	 * 
+	 * @return The new builder
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+	
+	/**
+	 * Creates a builder initialized with these options.
+	 * 
+	 * @return The new builder
+	 */
+	public Builder toBuilder() {
+		return new Builder(this);
+	}
+	
+	//region Getters
+	
+	/**
+	 * Gets the maximum number of lookups in flight.
+	 * 
+	 * @return The concurrency
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+	
+	/**
+	 * Gets the parameters used for every lookup.
+	 * 
+	 * @return The parameters
+	 */
+	public IMDbSearchByIdParameters getParameters() {
+		return parameters;
+	}
+	
+	/**
+	 * Gets the progress listener.
+	 * 
+	 * @return The listener, or null
+	 */
+	public Listener getListener() {
+		return listener;
+	}
+	
+	//endregion
+	
+}
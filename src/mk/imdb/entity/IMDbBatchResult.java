@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.entity;
+
+import mk.imdb.response.IMDbStatus;
+
+/**
+ * Class that represents the outcome of a single lookup of a batch: either the movie or the error status.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class IMDbBatchResult {
+
+	/**
+	 * The movie (null if the lookup failed).
+	 */
+	private final IMDbMovie movie;
+	
+	/**
+	 * The response status.
+	 */
+	private final IMDbStatus status;
+	
+	/**
+	 * Creates a successful result.
+	 * 
+	 * @param movie The movie
+	 */
+	public IMDbBatchResult(IMDbMovie movie) {
+		this.movie = movie;
+		this.status = IMDbStatus.NONE;
+	}
+	
+	/**
+	 * Creates a failed result.
+	 * 
+	 * @param status The error status
+	 */
+	public IMDbBatchResult(IMDbStatus status) {
+		this.movie = null;
+		this.status = status;
+	}
+	
+	/**
+	 * Gets whether the lookup succeeded.
+	 * 
+	 * @return Whether the movie is available
+	 */
+	public boolean isSuccess() {
+		return movie != null;
+	}
+	
+	/**
+	 * Gets the movie.
+	 * 
+	 * @return The movie, or null if the lookup failed
+	 */
+	public IMDbMovie getMovie() {
+		return movie;
+	}
+	
+	/**
+	 * Gets the response status.
+	 * 
+	 * @return The status (NONE if the lookup succeeded)
+	 */
+	public IMDbStatus getStatus() {
+		return status;
+	}
+	
+	@Override
+	public String toString() {
+		return isSuccess() ? movie.toString() : status.getStatus();
+	}
+	
+}
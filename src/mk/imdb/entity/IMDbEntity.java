@@ -60,9 +60,10 @@ public abstract class IMDbEntity {
 	
 	@Override
 	public String toString() {
-		if (originJson != null)
+		JSONObject json = getOriginJSON();
+		if (json != null)
 		{
-			return originJson.toString();
+			return json.toString();
 		} else {
 			return "";
 		}
@@ -72,6 +73,7 @@ public abstract class IMDbEntity {
 	public boolean equals(Object object) {
 		if (object != null) {
 			IMDbEntity entity = (IMDbEntity) object;
+			if (originJson == null) return this == entity;
 			return originJson.equals((entity).getOriginJSON());
 		} else {
 			return false;
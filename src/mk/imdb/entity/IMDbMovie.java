@@ -20,32 +20,83 @@
 
 package mk.imdb.entity;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
-import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import mk.imdb.core.IMDbAPI;
 import mk.imdb.core.IMDbConstants;
+import mk.imdb.core.IMDbPageIterator;
 import mk.imdb.core.IMDbSearchByIdParameters;
 import mk.imdb.core.IMDbSearchByTitleParameters;
+import mk.imdb.core.IMDbURLCreator;
+import mk.imdb.exception.IMDbPartialResultException;
 import mk.imdb.exception.IMDbResponseException;
+import mk.imdb.index.IMDbTitleIndex;
+import mk.imdb.index.IMDbTitleMatch;
+import mk.imdb.io.IMDbDataInput;
+import mk.imdb.io.IMDbDataOutput;
+import mk.imdb.metrics.IMDbMetrics;
 import mk.imdb.response.IMDbResponseArray;
-import mk.imdb.response.IMDbResponseObject;
+import mk.imdb.response.IMDbStatus;
+import mk.imdb.utils.ImmutableArrayList;
+import mk.imdb.utils.ImmutableIntList;
 import mk.imdb.utils.Log;
+import mk.imdb.utils.Log.Level;
 import mk.imdb.utils.Pair;
+import mk.imdb.utils.Parallel;
+import mk.imdb.utils.StringDictionary;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 
 /**
  * Class that represents a Movie.
+ * <p>
+ * The movie is stored in a compact form: the lists are immutable and array backed (the empty ones are 
+ * shared), the runtimes are primitive ints, the aliases and the release dates are kept in flat arrays 
+ * (release dates as epoch days) and the links as strings. The list getters return immutable views; 
+ * the setters copy the given values. The origin JSON object can be dropped after parsing through 
+ * {@link #setRetainOriginJSON(boolean)}.
+ * <p>
+ * In lazy mode (see {@link #setLazyDecoding(boolean)}) only the scalar fields are decoded by the
+ * JSON constructor: the lists, runtimes, aliases and release dates are decoded once, on the first
+ * access to any of them, and the JSON object is kept until then.
+ * <p>
+ * Approximate footprint of a typical movie (64-bit JVM with compressed references, SIMPLE verbosity, 
+ * 3 genres, 4 actors, 2 writers, one director, country, language, runtime, alias and release date), 
+ * excluding the strings themselves and the origin JSON object:
+ * <ul>
+ * <li>with the former layout (synchronized linked lists, boxed runtimes, pairs, dates and URLs): about 1,450 bytes;</li>
+ * <li>with the compact layout: about 450 bytes.</li>
+ * </ul>
+ * The json-lib tree of the origin JSON object usually takes several kilobytes more.
+ * <p>
+ * The low-cardinality values (MPAA ratings, genres, languages, countries) and the names of the people 
+ * are shared among the movies through a bounded {@link StringDictionary} (see {@link #setStringDictionary(StringDictionary)}).
  * 
  * @author Mirko Polato
  *
@@ -54,6 +105,31 @@ public class IMDbMovie extends IMDbEntity {
 
 	//region Fields
 	
+	/**
+	 * Sentinel of the missing vote count.
+	 */
+	private static final int NO_COUNT = -1;
+	
+	/**
+	 * Default maximum number of strings of the dictionary.
+	 */
+	public static final int DEFAULT_DICTIONARY_SIZE = 16384;
+	
+	/**
+	 * Whether the new movies keep their origin JSON object.
+	 */
+	private static volatile boolean retainOriginJson = true;
+	
+	/**
+	 * Whether the new movies decode their heavy fields lazily.
+	 */
+	private static volatile boolean lazyDecoding = false;
+	
+	/**
+	 * The JSON object whose heavy fields are still to decode (null once decoded).
+	 */
+	private volatile JSONObject pending;
+	
 	/**
 	 * The movie rating.
 	 */
@@ -75,14 +151,14 @@ public class IMDbMovie extends IMDbEntity {
 	private String title;
 	
 	/**
-	 * The movie poster.
+	 * The movie poster URL.
 	 */
-	private URL poster;
+	private String poster;
 	
 	/**
 	 * The imdb.com movie link.
 	 */
-	private URL link;
+	private String link;
 	
 	/**
 	 * The movie plot.
@@ -95,9 +171,9 @@ public class IMDbMovie extends IMDbEntity {
 	private String id;
 	
 	/**
-	 * The movie vote count.
+	 * The movie vote count (NO_COUNT if missing).
 	 */
-	private Integer count;
+	private int count = NO_COUNT;
 	
 	/**
 	 * The movie type.
@@ -107,47 +183,65 @@ public class IMDbMovie extends IMDbEntity {
 	/**
 	 * The movie cast.
 	 */
-	private List<String> actors = Collections.synchronizedList(new LinkedList<String>());
+	private List<String> actors = Collections.emptyList();
 	
 	/**
 	 * The movie countries.
 	 */
-	private List<String> countries = Collections.synchronizedList(new LinkedList<String>());
+	private List<String> countries = Collections.emptyList();
 	
 	/**
 	 * The movie directors.
 	 */
-	private List<String> directors = Collections.synchronizedList(new LinkedList<String>());
+	private List<String> directors = Collections.emptyList();
 	
 	/**
 	 * The movie genres.
 	 */
-	private List<String> genres = Collections.synchronizedList(new LinkedList<String>());
+	private List<String> genres = Collections.emptyList();
 	
 	/**
 	 * The movie languages.
 	 */
-	private List<String> langs = Collections.synchronizedList(new LinkedList<String>());
+	private List<String> langs = Collections.emptyList();
 	
 	/**
 	 * The movie writers.
 	 */
-	private List<String> writers = Collections.synchronizedList(new LinkedList<String>());
+	private List<String> writers = Collections.emptyList();
+	
+	/**
+	 * The movie runtimes in minutes.
+	 */
+	private int[] runtimes = EMPTY_INTS;
+	
+	/**
+	 * The movie aliases (aka: also known as), as a flat array of (country, title) pairs.
+	 */
+	private String[] akas = EMPTY_STRINGS;
+	
+	/**
+	 * The countries of the movie release dates.
+	 */
+	private String[] releaseCountries = EMPTY_STRINGS;
 	
 	/**
-	 * The movie runtimes.
+	 * The movie release dates, as epoch days.
 	 */
-	private List<Integer> runtimes = Collections.synchronizedList(new LinkedList<Integer>());
+	private int[] releaseDays = EMPTY_INTS;
 	
 	/**
-	 * The movie aliases (aka: also known as).
+	 * The dictionary of the repeated string values (null if disabled).
 	 */
-	private List<Pair<String, String>> akas = Collections.synchronizedList(new LinkedList<Pair<String, String>>());
+	private static volatile StringDictionary dictionary = new StringDictionary(DEFAULT_DICTIONARY_SIZE);
 	
 	/**
-	 * The movie release dates.
+	 * The index fed with the decoded movies (null if disabled).
 	 */
-	private List<Pair<String, Date>> releases = Collections.synchronizedList(new LinkedList<Pair<String, Date>>());
+	private static volatile IMDbTitleIndex titleIndex = null;
+	
+	private static final int[] EMPTY_INTS = new int[0];
+	private static final String[] EMPTY_STRINGS = new String[0];
 	
 	//endregion
 	
@@ -157,8 +251,138 @@ public class IMDbMovie extends IMDbEntity {
 	 * @param json The origin JSON object
 	 */
 	public IMDbMovie(JSONObject json) {
-		super(json);
-		parseJSON(json);
+		super(retainOriginJson ? json : null);
+		long start = IMDbMetrics.start();
+		parseScalars(json);
+		
+		if (lazyDecoding) {
+			pending = json;
+		} else {
+			parseDetails(json);
+		}
+		IMDbMetrics.finishDecode(start);
+		indexed(this);
+	}
+	
+	/**
+	 * Creates a new empty instance of IMDbMovie, without an origin JSON object.
+	 */
+	public IMDbMovie() {
+		super();
+	}
+	
+	/**
+	 * Sets whether the movies created from now on keep their origin JSON object (the default).
+	 * Movies without it use the identity for equals and return an empty string from toString.
+	 * 
+	 * @param retain Whether the origin JSON object is kept
+	 */
+	public static void setRetainOriginJSON(boolean retain) {
+		retainOriginJson = retain;
+	}
+	
+	/**
+	 * Gets whether the new movies keep their origin JSON object.
+	 * 
+	 * @return Whether the origin JSON object is kept
+	 */
+	public static boolean isRetainOriginJSON() {
+		return retainOriginJson;
+	}
+	
+	/**
+	 * Sets the dictionary used to share the repeated string values among the movies (MPAA ratings, 
+	 * genres, languages, countries, writers, directors and actors). By default a dictionary of 
+	 * {@link #DEFAULT_DICTIONARY_SIZE} strings is used.
+	 * 
+	 * @param dictionary The new dictionary, or null to disable the sharing
+	 */
+	public static void setStringDictionary(StringDictionary dictionary) {
+		IMDbMovie.dictionary = dictionary;
+	}
+	
+	/**
+	 * Gets the dictionary used to share the repeated string values among the movies.
+	 * 
+	 * @return The dictionary, or null if disabled
+	 */
+	public static StringDictionary getStringDictionary() {
+		return dictionary;
+	}
+	
+	/**
+	 * Sets whether the movies created from JSON objects from now on decode their heavy fields
+	 * (lists, runtimes, aliases and release dates) on first access instead of at construction.
+	 * It is disabled by default. It has no effect on the streaming decoder, that does not build the JSON object.
+	 * 
+	 * @param lazy Whether the heavy fields are decoded lazily
+	 */
+	public static void setLazyDecoding(boolean lazy) {
+		lazyDecoding = lazy;
+	}
+	
+	/**
+	 * Gets whether the new movies decode their heavy fields lazily.
+	 * 
+	 * @return Whether the heavy fields are decoded lazily
+	 */
+	public static boolean isLazyDecoding() {
+		return lazyDecoding;
+	}
+	
+	/**
+	 * Sets the title index fed with every movie decoded from now on, for the local title lookups 
+	 * (see {@link #lookupByTitle(IMDbSearchByTitleParameters, double)}). It is disabled by default.
+	 * Indexing a lazily decoded movie decodes its aliases.
+	 * 
+	 * @param index The index, or null to disable the indexing
+	 */
+	public static void setTitleIndex(IMDbTitleIndex index) {
+		titleIndex = index;
+	}
+	
+	/**
+	 * Gets the title index fed with the decoded movies.
+	 * 
+	 * @return The index, or null if disabled
+	 */
+	public static IMDbTitleIndex getTitleIndex() {
+		return titleIndex;
+	}
+	
+	/**
+	 * Adds a decoded movie to the title index, if enabled.
+	 * 
+	 * @param movie The movie
+	 */
+	static void indexed(IMDbMovie movie) {
+		IMDbTitleIndex index = titleIndex;
+		if (index != null && movie.getTitle() != null) index.add(movie);
+	}
+	
+	/**
+	 * Gets whether the heavy fields of this movie are still to decode.
+	 * 
+	 * @return Whether the movie is not fully decoded yet
+	 */
+	public boolean isDecodePending() {
+		return pending != null;
+	}
+	
+	/**
+	 * Decodes the heavy fields, if they are still pending. The first caller decodes them, the
+	 * others wait for it; once decoded the check is a single volatile read.
+	 */
+	private void ensureDecoded() {
+		if (pending == null) return;
+		
+		synchronized (this) {
+			JSONObject json = pending;
+			if (json != null) {
+				parseDetails(json);
+				pending = null;
+			}
+		}
 	}
 
 	//region Getters/Setters
@@ -236,12 +460,12 @@ public class IMDbMovie extends IMDbEntity {
 	}
 	
 	/**
-	 * Gets the movie poster.
+	 * Gets the movie poster. The URL is built at each call.
 	 * 
 	 * @return The movie poster
 	 */
 	public URL getPoster() {
-		return poster;
+		return toURL(poster);
 	}
 	
 	/**
@@ -250,16 +474,16 @@ public class IMDbMovie extends IMDbEntity {
 	 * @param poster The new movie poster
 	 */
 	public void setPoster(URL poster) {
-		this.poster = poster;
+		this.poster = (poster != null) ? poster.toString() : null;
 	}
 	
 	/**
-	 * Gets the movie imdb.com link.
+	 * Gets the movie imdb.com link. The URL is built at each call.
 	 * 
 	 * @return The movie link
 	 */
 	public URL getLink() {
-		return link;
+		return toURL(link);
 	}
 	
 	/**
@@ -268,7 +492,7 @@ public class IMDbMovie extends IMDbEntity {
 	 * @param link The new movie link
 	 */
 	public void setLink(URL link) {
-		this.link = link;
+		this.link = (link != null) ? link.toString() : null;
 	}
 	
 	/**
@@ -313,7 +537,7 @@ public class IMDbMovie extends IMDbEntity {
 	 * @return The movie vote count
 	 */
 	public Integer getCount() {
-		return count;
+		return (count != NO_COUNT) ? count : null;
 	}
 	
 	/**
@@ -322,7 +546,7 @@ public class IMDbMovie extends IMDbEntity {
 	 * @param count The new movie vote count
 	 */
 	public void setCount(Integer count) {
-		this.count = count;
+		this.count = (count != null) ? count : NO_COUNT;
 	}
 	
 	/**
@@ -346,9 +570,10 @@ public class IMDbMovie extends IMDbEntity {
 	/**
 	 * Gets the movie cast.
 	 * 
-	 * @return The movie cast.
+	 * @return The movie cast (immutable).
 	 */
 	public List<String> getActors() {
+		ensureDecoded();
 		return actors;
 	}
 	
@@ -358,15 +583,17 @@ public class IMDbMovie extends IMDbEntity {
 	 * @param actors The new movie cast
 	 */
 	public void setActors(List<String> actors) {
-		this.actors = actors;
+		ensureDecoded();
+		this.actors = ImmutableArrayList.copyOf(actors);
 	}
 	
 	/**
 	 * Gets the movie countries.
 	 * 
-	 * @return The movie countries
+	 * @return The movie countries (immutable)
 	 */
 	public List<String> getCountries() {
+		ensureDecoded();
 		return countries;
 	}
 	
@@ -376,15 +603,17 @@ public class IMDbMovie extends IMDbEntity {
 	 * @param countries The new movie countries
 	 */
 	public void setCountries(List<String> countries) {
-		this.countries = countries;
+		ensureDecoded();
+		this.countries = ImmutableArrayList.copyOf(countries);
 	}
 	
 	/**
 	 * Gets the movie directors.
 	 * 
-	 * @return The movie directors
+	 * @return The movie directors (immutable)
 	 */
 	public List<String> getDirectors() {
+		ensureDecoded();
 		return directors;
 	}
 	
@@ -394,15 +623,17 @@ public class IMDbMovie extends IMDbEntity {
 	 * @param directors The new movie directors
 	 */
 	public void setDirectors(List<String> directors) {
-		this.directors = directors;
+		ensureDecoded();
+		this.directors = ImmutableArrayList.copyOf(directors);
 	}
 	
 	/**
 	 * Gets the movie genres.
 	 * 
-	 * @return The movie genres
+	 * @return The movie genres (immutable)
 	 */
 	public List<String> getGenres() {
+		ensureDecoded();
 		return genres;
 	}
 	
@@ -412,15 +643,17 @@ public class IMDbMovie extends IMDbEntity {
 	 * @param genres The new movie genres
 	 */
 	public void setGenres(List<String> genres) {
-		this.genres = genres;
+		ensureDecoded();
+		this.genres = ImmutableArrayList.copyOf(genres);
 	}
 	
 	/**
 	 * Gets the movie languages.
 	 * 
-	 * @return The movie languages
+	 * @return The movie languages (immutable)
 	 */
 	public List<String> getLanguages() {
+		ensureDecoded();
 		return langs;
 	}
 	
@@ -430,15 +663,17 @@ public class IMDbMovie extends IMDbEntity {
 	 * @param langs The new movie languages
 	 */
 	public void setLanguages(List<String> langs) {
-		this.langs = langs;
+		ensureDecoded();
+		this.langs = ImmutableArrayList.copyOf(langs);
 	}
 	
 	/**
 	 * Gets the movie writers.
 	 * 
-	 * @return The movie writers
+	 * @return The movie writers (immutable)
 	 */
 	public List<String> getWriters() {
+		ensureDecoded();
 		return writers;
 	}
 	
@@ -448,16 +683,18 @@ public class IMDbMovie extends IMDbEntity {
 	 * @param writers The new mvovie writers
 	 */
 	public void setWriters(List<String> writers) {
-		this.writers = writers;
+		ensureDecoded();
+		this.writers = ImmutableArrayList.copyOf(writers);
 	}
 	
 	/**
 	 * Gets the movie runtimes.
 	 * 
-	 * @return The movie runtimes
+	 * @return The movie runtimes in minutes (immutable)
 	 */
 	public List<Integer> getRuntimes() {
-		return runtimes;
+		ensureDecoded();
+		return new ImmutableIntList(runtimes);
 	}
 	
 	/**
@@ -466,17 +703,36 @@ public class IMDbMovie extends IMDbEntity {
 	 * @param runtimes The new movie runtimes
 	 */
 	public void setRuntimes(List<Integer> runtimes) {
-		this.runtimes = runtimes;
+		ensureDecoded();
+		int[] values = new int[(runtimes != null) ? runtimes.size() : 0];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = runtimes.get(i);
+		}
+		this.runtimes = (values.length > 0) ? values : EMPTY_INTS;
 	}
 	
 	/**
 	 * Gets the movie aliases.
 	 * 
-	 * @return The movie aliases.
+	 * @return The movie aliases (immutable).
 	 * 
 	 */
 	public List<Pair<String, String>> getAKA() {
-		return akas;
+		ensureDecoded();
+		final String[] pairs = akas;
+		
+		return new AbstractList<Pair<String, String>>() {
+			@Override
+			public Pair<String, String> get(int index) {
+				if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index);
+				return new Pair<String, String>(pairs[2 * index], pairs[2 * index + 1]);
+			}
+
+			@Override
+			public int size() {
+				return pairs.length / 2;
+			}
+		};
 	}
 	
 	/**
@@ -485,16 +741,38 @@ public class IMDbMovie extends IMDbEntity {
 	 * @param akas The new movie aliases
 	 */
 	public void setAKA(List<Pair<String, String>> akas) {
-		this.akas = akas;
+		ensureDecoded();
+		String[] pairs = new String[(akas != null) ? 2 * akas.size() : 0];
+		int i = 0;
+		for (int p = 0; p < pairs.length / 2; p++) {
+			Pair<String, String> aka = akas.get(p);
+			pairs[i++] = aka.getFirst();
+			pairs[i++] = aka.getSecond();
+		}
+		this.akas = (pairs.length > 0) ? pairs : EMPTY_STRINGS;
 	}
 	
 	/**
-	 * Gets the movie release dates.
+	 * Gets the movie release dates. The dates are at midnight, in the default time zone.
 	 * 
-	 * @return The movie release dates
+	 * @return The movie release dates (immutable)
 	 */
 	public List<Pair<String, Date>> getReleases() {
-		return releases;
+		ensureDecoded();
+		final String[] countries = releaseCountries;
+		final int[] days = releaseDays;
+		
+		return new AbstractList<Pair<String, Date>>() {
+			@Override
+			public Pair<String, Date> get(int index) {
+				return new Pair<String, Date>(countries[index], toDate(days[index]));
+			}
+
+			@Override
+			public int size() {
+				return countries.length;
+			}
+		};
 	}
 	
 	/**
@@ -503,7 +781,47 @@ public class IMDbMovie extends IMDbEntity {
 	 * @param releases The new movie release dates
 	 */
 	public void setReleases(List<Pair<String, Date>> releases) {
-		this.releases = releases;
+		ensureDecoded();
+		int size = (releases != null) ? releases.size() : 0;
+		String[] countries = new String[size];
+		int[] days = new int[size];
+		
+		for (int i = 0; i < size; i++) {
+			Pair<String, Date> release = releases.get(i);
+			countries[i] = release.getFirst();
+			days[i] = toEpochDay(release.getSecond());
+		}
+		
+		setReleases(countries, days);
+	}
+	
+	/**
+	 * Sets the movie release dates from parallel arrays, which must not be modified afterwards.
+	 * 
+	 * @param countries The release countries
+	 * @param days The release dates as epoch days
+	 */
+	void setReleases(String[] countries, int[] days) {
+		this.releaseCountries = (countries.length > 0) ? countries : EMPTY_STRINGS;
+		this.releaseDays = (days.length > 0) ? days : EMPTY_INTS;
+	}
+	
+	/**
+	 * Sets the movie aliases from a flat array of (country, title) pairs, which must not be modified afterwards.
+	 * 
+	 * @param pairs The aliases
+	 */
+	void setAKA(String[] pairs) {
+		this.akas = (pairs.length > 0) ? pairs : EMPTY_STRINGS;
+	}
+	
+	/**
+	 * Sets the movie runtimes from an array, which must not be modified afterwards.
+	 * 
+	 * @param minutes The runtimes in minutes
+	 */
+	void setRuntimes(int[] minutes) {
+		this.runtimes = (minutes.length > 0) ? minutes : EMPTY_INTS;
 	}
 	
 	/**
@@ -522,32 +840,29 @@ public class IMDbMovie extends IMDbEntity {
 	 * @return The movie year
 	 */
 	public int getYear(String country) {
-		int year = 1900;
-		
-		SimpleDateFormat formatNowYear = new SimpleDateFormat("yyyy");
-		for (Pair<String, Date> release : releases) {
-			if (release.getFirst().equals(country)) {
-				year = Integer.valueOf(formatNowYear.format(release.getSecond()));
-				break;
+		ensureDecoded();
+		for (int i = 0; i < releaseCountries.length; i++) {
+			if (Objects.equals(releaseCountries[i], country)) {
+				return LocalDate.ofEpochDay(releaseDays[i]).getYear();
 			}
 		}
 		
-		return year;
+		return 1900;
 	}
 	
 	//endregion
 	
 	/**
-	 * Parses the origin JSON object.
+	 * Parses the scalar fields of the origin JSON object.
 	 * 
 	 * @param json The origin JSON object
 	 */
-	private void parseJSON(JSONObject json) {
+	private void parseScalars(JSONObject json) {
 		
 		if (json.has(IMDbConstants.IMDB_ID)) setId(json.getString(IMDbConstants.IMDB_ID));
 		if (json.has(IMDbConstants.RATING)) setRating(json.getDouble(IMDbConstants.RATING));
-		if (json.has(IMDbConstants.RATING_COUNT)) setCount(json.getInt(IMDbConstants.RATING_COUNT));
-		if (json.has(IMDbConstants.RATED)) setMPAARating(json.getString(IMDbConstants.RATED));
+		if (json.has(IMDbConstants.RATING_COUNT)) count = json.getInt(IMDbConstants.RATING_COUNT);
+		if (json.has(IMDbConstants.RATED)) setMPAARating(intern(json.getString(IMDbConstants.RATED)));
 		if (json.has(IMDbConstants.LOCATIONS)) setLocation(json.getString(IMDbConstants.LOCATIONS));
 		if (json.has(IMDbConstants.TYPE)) setType(IMDbMovieType.getTypeByName(json.getString(IMDbConstants.TYPE)));
 		if (json.has(IMDbConstants.TITLE)) setTitle(json.getString(IMDbConstants.TITLE));
@@ -558,202 +873,851 @@ public class IMDbMovie extends IMDbEntity {
 			setPlot(json.getString(IMDbConstants.PLOT_SIMPLE));
 		}
 		
-		if (json.has(IMDbConstants.IMDB_URL)) {
-			try {
-				setLink(new URL(json.getString(IMDbConstants.IMDB_URL)));
-			} catch (MalformedURLException e) {
-				Log.print(e);
+		if (json.has(IMDbConstants.IMDB_URL)) link = json.getString(IMDbConstants.IMDB_URL);
+		if (json.has(IMDbConstants.POSTER)) poster = json.getString(IMDbConstants.POSTER);
+	}
+	
+	/**
+	 * Parses the lists, runtimes, aliases and release dates of the origin JSON object.
+	 * 
+	 * @param json The origin JSON object
+	 */
+	private void parseDetails(JSONObject json) {
+		
+		if (json.has(IMDbConstants.GENRES)) genres = toList(json.getJSONArray(IMDbConstants.GENRES));
+		if (json.has(IMDbConstants.LANGUAGE)) langs = toList(json.getJSONArray(IMDbConstants.LANGUAGE));
+		if (json.has(IMDbConstants.WRITERS)) writers = toList(json.getJSONArray(IMDbConstants.WRITERS));
+		if (json.has(IMDbConstants.DIRECTORS)) directors = toList(json.getJSONArray(IMDbConstants.DIRECTORS));
+		if (json.has(IMDbConstants.ACTORS)) actors = toList(json.getJSONArray(IMDbConstants.ACTORS));
+		if (json.has(IMDbConstants.COUNTRY)) countries = toList(json.getJSONArray(IMDbConstants.COUNTRY));
+		
+		if (json.has(IMDbConstants.RUNTIME)) {
+			JSONArray array = json.getJSONArray(IMDbConstants.RUNTIME);
+			
+			int[] values = new int[array.size()];
+			int size = 0;
+			for (Object obj : array) {
+				Integer runtime = toRuntime((String) obj);
+				if (runtime != null) values[size++] = runtime;
 			}
+			setRuntimes(Arrays.copyOf(values, size));
 		}
 		
-		if (json.has(IMDbConstants.POSTER)) {
-			try {
-				setPoster(new URL(json.getString(IMDbConstants.POSTER)));
-			} catch (MalformedURLException e) {
-				Log.print(e);
+		if (json.has(IMDbConstants.ALSO_KNOWN_AS)) setAKA(toAkas(json.getJSONArray(IMDbConstants.ALSO_KNOWN_AS)));
+		if (json.has(IMDbConstants.RELEASE_DATE)) parseReleases(json.get(IMDbConstants.RELEASE_DATE));
+	}
+	
+	/**
+	 * Converts a JSON array of aliases into the country/title pairs. As in {@link IMDbMovieDecoder}, with the simple 
+	 * verbosity only the first alias is kept, as the USA one, and an alias without its country or title is skipped.
+	 * 
+	 * @param array The JSON array of aliases
+	 * @return The country/title pairs
+	 */
+	private static String[] toAkas(JSONArray array) {
+		String[] pairs = new String[2 * array.size()];
+		boolean simple = false;
+		int i = 0;
+		
+		for (Object obj : array) {
+			if (!(obj instanceof JSONObject)) {
+				if (!simple) {
+					pairs[i++] = "USA";
+					pairs[i++] = (String) obj;
+				}
+				simple = true;
+				continue;
 			}
+			
+			JSONObject jobj = (JSONObject) obj;
+			if (!jobj.has(IMDbConstants.COUNTRY) || !jobj.has(IMDbConstants.TITLE)) continue;
+			pairs[i++] = intern(jobj.getString(IMDbConstants.COUNTRY));
+			pairs[i++] = jobj.getString(IMDbConstants.TITLE);
+		}
+		return Arrays.copyOf(pairs, i);
+	}
+	
+	/**
+	 * Parses the release dates, either the array of dated countries or the single date of the simple verbosity. 
+	 * As in {@link IMDbMovieDecoder}, a release without its country or any of its date fields is skipped.
+	 * 
+	 * @param value The release date value of the origin JSON object
+	 */
+	private void parseReleases(Object value) {
+		if (!(value instanceof JSONArray)) {
+			Integer day = toEpochDay(String.valueOf(value));
+			if (day != null) setReleases(new String[] { "USA" }, new int[] { day });
+			return;
 		}
 		
-		if (json.has(IMDbConstants.GENRES)) {
-			JSONArray array = json.getJSONArray(IMDbConstants.GENRES);
+		JSONArray array = (JSONArray) value;
+		String[] countries = new String[array.size()];
+		int[] days = new int[array.size()];
+		int i = 0;
+		
+		for (Object obj : array) {
+			JSONObject jobj = (JSONObject) obj;
+			if (!jobj.has(IMDbConstants.COUNTRY) || !jobj.has(IMDbConstants.YEAR) 
+					|| !jobj.has(IMDbConstants.MONTH) || !jobj.has(IMDbConstants.DAY)) continue;
 			
-			for (Object obj : array) {
-				genres.add((String) obj);
+			days[i] = toEpochDay(jobj.getInt(IMDbConstants.YEAR), 
+								 jobj.getInt(IMDbConstants.MONTH), 
+								 jobj.getInt(IMDbConstants.DAY));
+			countries[i++] = intern(jobj.getString(IMDbConstants.COUNTRY));
+		}
+		setReleases(Arrays.copyOf(countries, i), Arrays.copyOf(days, i));
+	}
+	
+	/**
+	 * Copies a JSON array of strings into an immutable list, sharing the values through the dictionary.
+	 * 
+	 * @param array The JSON array
+	 * @return The immutable list
+	 */
+	private static List<String> toList(JSONArray array) {
+		String[] values = new String[array.size()];
+		int i = 0;
+		for (Object obj : array) {
+			values[i++] = intern((String) obj);
+		}
+		return ImmutableArrayList.wrap(values);
+	}
+	
+	/**
+	 * Gets the shared instance of the given string from the dictionary, if enabled.
+	 * 
+	 * @param value The string
+	 * @return The shared instance
+	 */
+	static String intern(String value) {
+		StringDictionary dict = dictionary;
+		return (dict != null) ? dict.intern(value) : value;
+	}
+	
+	/**
+	 * Converts a runtime string (e.g. "142 min") to the number of minutes.
+	 * 
+	 * @param runtime The runtime string
+	 * @return The runtime in minutes, or null if the string is malformed
+	 */
+	static Integer toRuntime(String runtime) {
+		String[] words = runtime.split(" ");
+		try {
+			return Integer.parseInt(words[0]);
+		} catch (Exception ex) {
+			Log.print(Level.WARN, ex);
+			return null;
+		}
+	}
+	
+	/**
+	 * Converts the fields of a release date object to an epoch day. As for {@link java.util.Calendar#set(int, int, int)}
+	 * the month is zero based and the values out of range roll over to the next fields.
+	 * 
+	 * @param year The release year
+	 * @param month The release month
+	 * @param day The release day
+	 * @return The release date as epoch day
+	 */
+	static int toEpochDay(int year, int month, int day) {
+		return (int) LocalDate.of(year, 1, 1).plusMonths(month).plusDays(day - 1).toEpochDay();
+	}
+	
+	/**
+	 * Converts a release date string (yyyyMMdd) to an epoch day.
+	 * 
+	 * @param release The release date string
+	 * @return The release date as epoch day, or null if the string is malformed
+	 */
+	static Integer toEpochDay(String release) {
+		try {
+			return (int) LocalDate.parse(release, DateTimeFormatter.BASIC_ISO_DATE).toEpochDay();
+		} catch (DateTimeParseException e) {
+			Log.print(Level.WARN, e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Converts a date to an epoch day, in the default time zone.
+	 * 
+	 * @param date The date
+	 * @return The epoch day
+	 */
+	private static int toEpochDay(Date date) {
+		return (int) date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+	}
+	
+	/**
+	 * Converts an epoch day to a date at midnight, in the default time zone.
+	 * 
+	 * @param day The epoch day
+	 * @return The date
+	 */
+	private static Date toDate(int day) {
+		return Date.from(LocalDate.ofEpochDay(day).atStartOfDay(ZoneId.systemDefault()).toInstant());
+	}
+	
+	/**
+	 * Converts a string to a URL.
+	 * 
+	 * @param url The URL string (may be null)
+	 * @return The URL, or null if the string is null or malformed
+	 */
+	private static URL toURL(String url) {
+		if (url == null) return null;
+		
+		try {
+			return new URL(url);
+		} catch (MalformedURLException e) {
+			Log.print(e);
+			return null;
+		}
+	}
+	
+	//region Binary form
+	
+	// The bits of the fields present in the binary record, in record order.
+	private static final int HAS_ID = 1;
+	private static final int HAS_TITLE = 1 << 1;
+	private static final int HAS_RATING_TENTHS = 1 << 2;
+	private static final int HAS_RATING = 1 << 3;
+	private static final int HAS_COUNT = 1 << 4;
+	private static final int HAS_MPAA = 1 << 5;
+	private static final int HAS_TYPE = 1 << 6;
+	private static final int HAS_LOCATION = 1 << 7;
+	private static final int HAS_PLOT = 1 << 8;
+	private static final int HAS_LINK = 1 << 9;
+	private static final int HAS_POSTER = 1 << 10;
+	private static final int HAS_GENRES = 1 << 11;
+	private static final int HAS_LANGUAGES = 1 << 12;
+	private static final int HAS_WRITERS = 1 << 13;
+	private static final int HAS_DIRECTORS = 1 << 14;
+	private static final int HAS_ACTORS = 1 << 15;
+	private static final int HAS_COUNTRIES = 1 << 16;
+	private static final int HAS_RUNTIMES = 1 << 17;
+	private static final int HAS_AKA = 1 << 18;
+	private static final int HAS_RELEASES = 1 << 19;
+	
+	/**
+	 * Writes the binary record of the movie (see {@link mk.imdb.io.IMDbMovieWriter}), decoding it first if lazily decoded.
+	 * <p>
+	 * The record starts with the bit set of the fields present, followed by the fields in the order of the bits.
+	 * The rating is written in tenths as a variable length integer when exact, otherwise as a double; the lists 
+	 * are written as their size followed by the elements; the runtimes and the release dates (epoch days) as 
+	 * zigzag encoded differences from the previous value. The MPAA rating, the type, the lists of names, the 
+	 * countries of the aliases and of the release dates are shared strings, the others are written in full.
+	 * 
+	 * @param out The output
+	 */
+	public void writeTo(IMDbDataOutput out) {
+		ensureDecoded();
+		
+		long tenths = Math.round(rating * 10);
+		boolean exact = tenths >= 0 && tenths <= Integer.MAX_VALUE && tenths / 10.0 == rating;
+		
+		int fields = 0;
+		if (id != null) fields |= HAS_ID;
+		if (title != null) fields |= HAS_TITLE;
+		if (rating != 0) fields |= exact ? HAS_RATING_TENTHS : HAS_RATING;
+		if (count != NO_COUNT) fields |= HAS_COUNT;
+		if (mpaa != null) fields |= HAS_MPAA;
+		if (type != null) fields |= HAS_TYPE;
+		if (location != null) fields |= HAS_LOCATION;
+		if (plot != null) fields |= HAS_PLOT;
+		if (link != null) fields |= HAS_LINK;
+		if (poster != null) fields |= HAS_POSTER;
+		if (!genres.isEmpty()) fields |= HAS_GENRES;
+		if (!langs.isEmpty()) fields |= HAS_LANGUAGES;
+		if (!writers.isEmpty()) fields |= HAS_WRITERS;
+		if (!directors.isEmpty()) fields |= HAS_DIRECTORS;
+		if (!actors.isEmpty()) fields |= HAS_ACTORS;
+		if (!countries.isEmpty()) fields |= HAS_COUNTRIES;
+		if (runtimes.length > 0) fields |= HAS_RUNTIMES;
+		if (akas.length > 0) fields |= HAS_AKA;
+		if (releaseDays.length > 0) fields |= HAS_RELEASES;
+		out.writeVarint(fields);
+		
+		if (id != null) out.writeString(id);
+		if (title != null) out.writeString(title);
+		if ((fields & HAS_RATING_TENTHS) != 0) out.writeVarint((int) tenths);
+		if ((fields & HAS_RATING) != 0) out.writeDouble(rating);
+		if (count != NO_COUNT) out.writeVarint(count);
+		if (mpaa != null) out.writeSharedString(mpaa);
+		if (type != null) out.writeSharedString(type.getValue());
+		if (location != null) out.writeString(location);
+		if (plot != null) out.writeString(plot);
+		if (link != null) out.writeString(link);
+		if (poster != null) out.writeString(poster);
+		
+		writeList(out, genres);
+		writeList(out, langs);
+		writeList(out, writers);
+		writeList(out, directors);
+		writeList(out, actors);
+		writeList(out, countries);
+		
+		if (runtimes.length > 0) {
+			out.writeVarint(runtimes.length);
+			int previous = 0;
+			for (int runtime : runtimes) {
+				out.writeZigZag(runtime - previous);
+				previous = runtime;
 			}
 		}
 		
-		if (json.has(IMDbConstants.LANGUAGE)) {
-			JSONArray array = json.getJSONArray(IMDbConstants.LANGUAGE);
-			
-			for (Object obj : array) {
-				langs.add((String) obj);
+		if (akas.length > 0) {
+			out.writeVarint(akas.length / 2);
+			for (int i = 0; i < akas.length; i += 2) {
+				out.writeSharedString(akas[i]);
+				out.writeString(akas[i + 1]);
 			}
 		}
 		
-		if (json.has(IMDbConstants.WRITERS)) {
-			JSONArray array = json.getJSONArray(IMDbConstants.WRITERS);
-			
-			for (Object obj : array) {
-				writers.add((String) obj);
+		if (releaseDays.length > 0) {
+			out.writeVarint(releaseDays.length);
+			int previous = 0;
+			for (int i = 0; i < releaseDays.length; i++) {
+				out.writeSharedString(releaseCountries[i]);
+				out.writeZigZag(releaseDays[i] - previous);
+				previous = releaseDays[i];
 			}
 		}
+	}
+	
+	/**
+	 * Writes a list of shared strings, if not empty.
+	 * 
+	 * @param out The output
+	 * @param values The list
+	 */
+	private static void writeList(IMDbDataOutput out, List<String> values) {
+		if (values.isEmpty()) return;
 		
-		if (json.has(IMDbConstants.DIRECTORS)) {
-			JSONArray array = json.getJSONArray(IMDbConstants.DIRECTORS);
-			
-			for (Object obj : array) {
-				directors.add((String) obj);
+		out.writeVarint(values.size());
+		for (String value : values) {
+			out.writeSharedString(value);
+		}
+	}
+	
+	/**
+	 * Reads a movie from its binary record (see {@link #writeTo(IMDbDataOutput)}). The movie has no 
+	 * origin JSON object; it is added to the title index, if enabled.
+	 * 
+	 * @param in The input
+	 * @return The movie
+	 * @throws IOException Throws if the record is malformed
+	 */
+	public static IMDbMovie readFrom(IMDbDataInput in) throws IOException {
+		long start = IMDbMetrics.start();
+		IMDbMovie movie = new IMDbMovie();
+		
+		int fields = in.readVarint();
+		if ((fields & ~((HAS_RELEASES << 1) - 1)) != 0) throw new IOException("Unknown movie fields: " + Integer.toHexString(fields));
+		
+		if ((fields & HAS_ID) != 0) movie.id = in.readString();
+		if ((fields & HAS_TITLE) != 0) movie.title = in.readString();
+		if ((fields & HAS_RATING_TENTHS) != 0) movie.rating = in.readVarint() / 10.0;
+		if ((fields & HAS_RATING) != 0) movie.rating = in.readDouble();
+		if ((fields & HAS_COUNT) != 0) movie.count = in.readVarint();
+		if ((fields & HAS_MPAA) != 0) movie.mpaa = intern(in.readSharedString());
+		if ((fields & HAS_TYPE) != 0) movie.type = IMDbMovieType.getTypeByName(in.readSharedString());
+		if ((fields & HAS_LOCATION) != 0) movie.location = in.readString();
+		if ((fields & HAS_PLOT) != 0) movie.plot = in.readString();
+		if ((fields & HAS_LINK) != 0) movie.link = in.readString();
+		if ((fields & HAS_POSTER) != 0) movie.poster = in.readString();
+		
+		if ((fields & HAS_GENRES) != 0) movie.genres = readList(in);
+		if ((fields & HAS_LANGUAGES) != 0) movie.langs = readList(in);
+		if ((fields & HAS_WRITERS) != 0) movie.writers = readList(in);
+		if ((fields & HAS_DIRECTORS) != 0) movie.directors = readList(in);
+		if ((fields & HAS_ACTORS) != 0) movie.actors = readList(in);
+		if ((fields & HAS_COUNTRIES) != 0) movie.countries = readList(in);
+		
+		if ((fields & HAS_RUNTIMES) != 0) {
+			int[] values = new int[readSize(in)];
+			int previous = 0;
+			for (int i = 0; i < values.length; i++) {
+				previous += in.readZigZag();
+				values[i] = previous;
 			}
+			movie.setRuntimes(values);
 		}
 		
-		if (json.has(IMDbConstants.ACTORS)) {
-			JSONArray array = json.getJSONArray(IMDbConstants.ACTORS);
-			
-			for (Object obj : array) {
-				actors.add((String) obj);
+		if ((fields & HAS_AKA) != 0) {
+			String[] pairs = new String[2 * readSize(in)];
+			for (int i = 0; i < pairs.length; i += 2) {
+				pairs[i] = intern(in.readSharedString());
+				pairs[i + 1] = in.readString();
 			}
+			movie.setAKA(pairs);
 		}
 		
-		if (json.has(IMDbConstants.COUNTRY)) {
-			JSONArray array = json.getJSONArray(IMDbConstants.COUNTRY);
-			
-			for (Object obj : array) {
-				countries.add((String) obj);
+		if ((fields & HAS_RELEASES) != 0) {
+			int size = readSize(in);
+			String[] countries = new String[size];
+			int[] days = new int[size];
+			int previous = 0;
+			for (int i = 0; i < size; i++) {
+				countries[i] = intern(in.readSharedString());
+				previous += in.readZigZag();
+				days[i] = previous;
 			}
+			movie.setReleases(countries, days);
 		}
 		
-		if (json.has(IMDbConstants.RUNTIME)) {
-			JSONArray array = json.getJSONArray(IMDbConstants.RUNTIME);
-			
-			for (Object obj : array) {
-				String[] words = ((String) obj).split(" ");
-				try {
-					runtimes.add(Integer.parseInt(words[0]));
-				} catch (Exception ex) {
-					Log.print(ex);
-				}
+		IMDbMetrics.finishDecode(start);
+		indexed(movie);
+		return movie;
+	}
+	
+	/**
+	 * Reads a list of shared strings.
+	 * 
+	 * @param in The input
+	 * @return The immutable list
+	 * @throws IOException Throws if the list is malformed
+	 */
+	private static List<String> readList(IMDbDataInput in) throws IOException {
+		String[] values = new String[readSize(in)];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = intern(in.readSharedString());
+		}
+		return ImmutableArrayList.wrap(values);
+	}
+	
+	/**
+	 * Reads the size of a list, checking it against the bytes left (every element takes at least one byte).
+	 * 
+	 * @param in The input
+	 * @return The size
+	 * @throws IOException Throws if the size is malformed
+	 */
+	private static int readSize(IMDbDataInput in) throws IOException {
+		int size = in.readVarint();
+		if (size < 0 || size > in.remaining()) throw new IOException("Malformed list size: " + size);
+		return size;
+	}
+	
+	/**
+	 * Converts the movie to a JSON object in the form of the server responses, that makes an equal 
+	 * movie through {@link #IMDbMovie(JSONObject)}. Unlike the origin JSON object it reflects the 
+	 * changes made through the setters; the fields not kept by the movie are missing.
+	 * 
+	 * @return The JSON object
+	 */
+	public JSONObject toJSON() {
+		ensureDecoded();
+		JSONObject json = new JSONObject();
+		
+		if (id != null) json.element(IMDbConstants.IMDB_ID, id);
+		if (title != null) json.element(IMDbConstants.TITLE, title);
+		if (rating != 0) json.element(IMDbConstants.RATING, rating);
+		if (count != NO_COUNT) json.element(IMDbConstants.RATING_COUNT, count);
+		if (mpaa != null) json.element(IMDbConstants.RATED, mpaa);
+		if (type != null) json.element(IMDbConstants.TYPE, type.getValue());
+		if (location != null) json.element(IMDbConstants.LOCATIONS, location);
+		if (plot != null) json.element(IMDbConstants.PLOT, plot);
+		if (link != null) json.element(IMDbConstants.IMDB_URL, link);
+		if (poster != null) json.element(IMDbConstants.POSTER, poster);
+		
+		if (!genres.isEmpty()) json.element(IMDbConstants.GENRES, toJSONArray(genres));
+		if (!langs.isEmpty()) json.element(IMDbConstants.LANGUAGE, toJSONArray(langs));
+		if (!writers.isEmpty()) json.element(IMDbConstants.WRITERS, toJSONArray(writers));
+		if (!directors.isEmpty()) json.element(IMDbConstants.DIRECTORS, toJSONArray(directors));
+		if (!actors.isEmpty()) json.element(IMDbConstants.ACTORS, toJSONArray(actors));
+		if (!countries.isEmpty()) json.element(IMDbConstants.COUNTRY, toJSONArray(countries));
+		
+		if (runtimes.length > 0) {
+			JSONArray array = new JSONArray();
+			for (int runtime : runtimes) {
+				array.element(runtime + " min");
 			}
+			json.element(IMDbConstants.RUNTIME, array);
 		}
 		
-		if (json.has(IMDbConstants.ALSO_KNOWN_AS)) {
-			
-			JSONArray array = json.getJSONArray(IMDbConstants.ALSO_KNOWN_AS);
-			
-			try {
-				
-				for (Object obj : array) {
-					JSONObject jobj = (JSONObject) obj;
-					akas.add(new Pair<String, String>(jobj.getString(IMDbConstants.COUNTRY), jobj.getString(IMDbConstants.TITLE)));
-				}
-
-			} catch (Exception ex) {
-				Log.print(ex);
-				
-				for (Object obj : array) {
-					akas.add(new Pair<String, String>("USA", (String)obj));
-					break;
-				}
+		if (akas.length > 0) {
+			JSONArray array = new JSONArray();
+			for (int i = 0; i < akas.length; i += 2) {
+				JSONObject aka = new JSONObject();
+				aka.element(IMDbConstants.COUNTRY, akas[i]);
+				aka.element(IMDbConstants.TITLE, akas[i + 1]);
+				array.element(aka);
 			}
+			json.element(IMDbConstants.ALSO_KNOWN_AS, array);
 		}
 		
-		if (json.has(IMDbConstants.RELEASE_DATE)) {
-			
-			try {
-			
-				JSONArray array = json.getJSONArray(IMDbConstants.RELEASE_DATE);
-				
-				for (Object obj : array) {
-					JSONObject jobj = (JSONObject) obj;
-					
-					Calendar cal = GregorianCalendar.getInstance();
-					cal.set(jobj.getInt(IMDbConstants.YEAR), 
-							jobj.getInt(IMDbConstants.MONTH), 
-							jobj.getInt(IMDbConstants.DAY));
-					
-					Date date = cal.getTime();
-					
-					releases.add(new Pair<String, Date>(jobj.getString(IMDbConstants.COUNTRY), date));
-				}
-			
-			} catch (Exception ex) {
-				
-				Log.print(ex);
-				
-				String release = json.getString(IMDbConstants.RELEASE_DATE);
-				DateFormat formatter = new SimpleDateFormat("yyyyMMdd");
-				try {
-					releases.add(new Pair<String, Date>("USA", (Date)formatter.parse(release)));
-				} catch (ParseException e) {
-					Log.print(e);
-				}
+		if (releaseDays.length > 0) {
+			JSONArray array = new JSONArray();
+			for (int i = 0; i < releaseDays.length; i++) {
+				LocalDate date = LocalDate.ofEpochDay(releaseDays[i]);
+				JSONObject release = new JSONObject();
+				release.element(IMDbConstants.COUNTRY, releaseCountries[i]);
+				release.element(IMDbConstants.YEAR, date.getYear());
+				release.element(IMDbConstants.MONTH, date.getMonthValue() - 1);
+				release.element(IMDbConstants.DAY, date.getDayOfMonth());
+				array.element(release);
 			}
+			json.element(IMDbConstants.RELEASE_DATE, array);
+		}
+		
+		return json;
+	}
+	
+	/**
+	 * Gets the origin JSON object. A movie not made from a JSON object (decoded from the connection 
+	 * stream or from the binary form) has none: the object is then rebuilt from the fields, see {@link #toJSON()}.
+	 * 
+	 * @return The origin JSON object, or the rebuilt one
+	 */
+	@Override
+	public JSONObject getOriginJSON() {
+		return (originJson != null) ? originJson : toJSON();
+	}
+	
+	/**
+	 * Compares the fields of the movies, whether or not they were made from a JSON object 
+	 * (see {@link #decodeById(IMDbSearchByIdParameters)}). The origin JSON object is not compared.
+	 * 
+	 * @param object The object to compare
+	 * @return Whether the object is a movie with equal fields
+	 */
+	@Override
+	public boolean equals(Object object) {
+		if (this == object) return true;
+		if (!(object instanceof IMDbMovie)) return false;
+		
+		IMDbMovie other = (IMDbMovie) object;
+		ensureDecoded();
+		other.ensureDecoded();
+		
+		return Double.compare(rating, other.rating) == 0
+				&& count == other.count
+				&& type == other.type
+				&& Objects.equals(id, other.id)
+				&& Objects.equals(title, other.title)
+				&& Objects.equals(mpaa, other.mpaa)
+				&& Objects.equals(location, other.location)
+				&& Objects.equals(poster, other.poster)
+				&& Objects.equals(link, other.link)
+				&& Objects.equals(plot, other.plot)
+				&& actors.equals(other.actors)
+				&& countries.equals(other.countries)
+				&& directors.equals(other.directors)
+				&& genres.equals(other.genres)
+				&& langs.equals(other.langs)
+				&& writers.equals(other.writers)
+				&& Arrays.equals(runtimes, other.runtimes)
+				&& Arrays.equals(akas, other.akas)
+				&& Arrays.equals(releaseCountries, other.releaseCountries)
+				&& Arrays.equals(releaseDays, other.releaseDays);
+	}
+	
+	/**
+	 * Hashes the identifying fields of the movie (id, title and type), consistently with {@link #equals(Object)}.
+	 * As the movie is mutable, the hash changes with these fields.
+	 * 
+	 * @return The hash code
+	 */
+	@Override
+	public int hashCode() {
+		return Objects.hash(id, title, type);
+	}
+	
+	/**
+	 * Copies a list of strings into a JSON array.
+	 * 
+	 * @param values The list
+	 * @return The JSON array
+	 */
+	private static JSONArray toJSONArray(List<String> values) {
+		JSONArray array = new JSONArray();
+		for (String value : values) {
+			array.element(value);
 		}
+		return array;
 	}
 	
+	//endregion
+	
 	//region Search
 	
 	/**
-	 * Searches for movie by id.
+	 * Searches for movie by id. The movie is decoded straight from the connection stream, 
+	 * see {@link #decodeById(IMDbSearchByIdParameters)}.
 	 * 
 	 * @param params The list of parameters
 	 * @return The movie
 	 * @throws IMDbResponseException Throws whether the server response is not a success.
 	 */
 	public static IMDbMovie searchById(IMDbSearchByIdParameters params) throws IMDbResponseException {
+		return decodeById(params);
+	}
+	
+	/**
+	 * Searches for several movies by id. The ids are de-duplicated and looked up concurrently by the 
+	 * {@link IMDbAPI} executor and the calling thread, at most {@link IMDbBatchOptions#getConcurrency()} at a time. 
+	 * A failed lookup does not stop the others: each id is mapped either to its movie or to its error status. 
+	 * Null ids are ignored.
+	 * 
+	 * @param ids The movie ids
+	 * @param options The batch options, or null for {@link IMDbBatchOptions#DEFAULT}
+	 * @return The results, in the order of the first occurrence of each id
+	 */
+	public static Map<String, IMDbBatchResult> searchByIds(Collection<String> ids, IMDbBatchOptions options) {
+		if (options == null) options = IMDbBatchOptions.DEFAULT;
+		final Set<String> unique = new LinkedHashSet<String>(ids);
+		unique.remove(null);
+		final List<String> order = new ArrayList<String>(unique);
+		final IMDbBatchResult[] results = new IMDbBatchResult[order.size()];
+		final IMDbBatchOptions.Listener listener = options.getListener();
+		final IMDbSearchByIdParameters template = options.getParameters();
+		final AtomicInteger completed = new AtomicInteger();
+		final int total = order.size();
 		
-		IMDbResponseObject response = IMDbAPI.searchMovieById(params);
+		Parallel.forEach(total, options.getConcurrency(), IMDbAPI.getExecutor(), i -> {
+			results[i] = lookup(template.withMovieID(order.get(i)));
+			if (listener != null) listener.progress(completed.incrementAndGet(), total);
+		});
 		
-		if (response.hasError()) {
-			throw new IMDbResponseException(response.getStatus());
-		} else {
-			return new IMDbMovie(response.getData());
+		Map<String, IMDbBatchResult> ordered = new LinkedHashMap<String, IMDbBatchResult>();
+		for (int i = 0; i < total; i++) {
+			ordered.put(order.get(i), (results[i] != null) ? results[i] : new IMDbBatchResult(IMDbStatus.UNKNOWN_ERROR));
+		}
+		return ordered;
+	}
+	
+	/**
+	 * Looks up a single movie of a batch.
+	 * 
+	 * @param params The list of parameters
+	 * @return The lookup result
+	 */
+	private static IMDbBatchResult lookup(IMDbSearchByIdParameters params) {
+		try {
+			return new IMDbBatchResult(searchById(params));
+		} catch (IMDbResponseException e) {
+			return new IMDbBatchResult(e.getStatus());
+		} catch (RuntimeException e) {
+			Log.print(e);
+			return new IMDbBatchResult(IMDbStatus.UNKNOWN_ERROR);
 		}
 	}
 	
 	/**
-	 * Searches for movies by title.
+	 * Searches for movies by title. The movies are decoded straight from the connection stream, 
+	 * see {@link #decodeByTitle(IMDbSearchByTitleParameters)}.
 	 * 
 	 * @param params The list of parameters
 	 * @return The movie
 	 * @throws IMDbResponseException Throws whether the server response is not a success.
 	 */
 	public static List<IMDbMovie> searchByTitle(IMDbSearchByTitleParameters params) throws IMDbResponseException {
-		
-		IMDbResponseArray response = IMDbAPI.searchMovieByTitle(params);
-		
-		if (response.hasError()) {
-			throw new IMDbResponseException(response.getStatus());
-		} else {
-			
+		return decodeByTitle(params);
+	}
+	
+	/**
+	 * Searches for movies by title in the title index first, tolerating typos and partial titles: if the best 
+	 * local match (of the requested type and year, if any) scores at least the given minimum, the local matches 
+	 * are returned, best first and at most as many as the limit parameter. Otherwise, or without a title index, 
+	 * the server is queried as by {@link #searchByTitle(IMDbSearchByTitleParameters)}, and the results are indexed.
+	 * 
+	 * @param params The list of parameters
+	 * @param minScore The minimum score of the best local match, between 0 and 1 (see {@link IMDbTitleMatch#getScore()})
+	 * @return The movies
+	 * @throws IMDbResponseException Throws whether the server is queried and its response is not a success.
+	 */
+	public static List<IMDbMovie> lookupByTitle(IMDbSearchByTitleParameters params, double minScore) throws IMDbResponseException {
+		IMDbTitleIndex index = titleIndex;
+		if (index != null) {
 			List<IMDbMovie> movies = new LinkedList<IMDbMovie>();
-			for (JSONObject json : response.getData()) {
-				movies.add(new IMDbMovie(json));
+			for (IMDbTitleMatch match : index.search(params.getTitle(), Integer.MAX_VALUE, minScore)) {
+				IMDbMovie movie = match.getMovie();
+				if (params.getType() != IMDbMovieType.NONE && movie.getType() != params.getType()) continue;
+				if (params.getYear() != null && movie.getYear() != params.getYear()) continue;
+				
+				movies.add(movie);
+				if (movies.size() == params.getLimit()) break;
 			}
-			return movies;
+			if (!movies.isEmpty()) return movies;
 		}
+		
+		return searchByTitle(params);
 	}
 	
 	/**
 	 * Searches for movies by title. Gets all the results.
+	 * Unlike the single page searches, the pages are parsed into JSON objects before the movies are decoded.
 	 * 
 	 * @param params The list of parameters (Limit and Offset parameters will be ignored)
 	 * @return The movie
-	 * @throws IMDbResponseException Throws whether the server response is not a success.
+	 * @throws IMDbResponseException Throws whether the server response is not a success, or an 
+	 * {@link IMDbPartialResultException} with the movies retrieved if some result pages could not be retrieved.
 	 */
 	public static List<IMDbMovie> fullSearchByTitle(IMDbSearchByTitleParameters params) throws IMDbResponseException {
+		return toAllMovies(IMDbAPI.fullSearchMovieByTitle(params));
+	}
+	
+	/**
+	 * Searches for movies by title, lazily iterating over all the results.
+	 * While a page is consumed, the following pages (up to the given number) are fetched in background.
+	 * A consumer that stops before the end should close the iterator, to cancel the pages being fetched.
+	 * 
+	 * @param params The list of parameters (Limit and Offset parameters will be ignored)
+	 * @param prefetch The number of pages fetched ahead of the consumer
+	 * @return The iterator over the movies
+	 * @throws IMDbResponseException Throws whether the server response to the first page is not a success.
+	 */
+	public static IMDbMovieIterator fullSearchByTitleIterator(IMDbSearchByTitleParameters params, int prefetch) throws IMDbResponseException {
+		return new IMDbMovieIterator(iterate(params, prefetch));
+	}
+	
+	/**
+	 * Searches for movies by title, lazily streaming all the results.
+	 * The pages are fetched on demand (prefetching {@link IMDbAPI#getPageParallelism()} pages) and no more
+	 * pages are fetched once the stream is short-circuited. Closing the stream cancels the pending fetches.
+	 * 
+	 * @param params The list of parameters (Limit and Offset parameters will be ignored)
+	 * @return The stream of movies
+	 * @throws IMDbResponseException Throws whether the server response to the first page is not a success.
+	 */
+	public static Stream<IMDbMovie> fullSearchByTitleStream(IMDbSearchByTitleParameters params) throws IMDbResponseException {
+		IMDbPageIterator pages = iterate(params, IMDbAPI.getPageParallelism());
 		
-		IMDbResponseArray response = IMDbAPI.fullSearchMovieByTitle(params);
-		
-		if (response.hasError()) {
-			throw new IMDbResponseException(response.getStatus());
-		} else {
+		Spliterator<JSONObject> split = Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(split, false).map(IMDbMovie::new).onClose(pages::close);
+	}
+	
+	/**
+	 * Creates the page iterator, checking the first page response.
+	 */
+	private static IMDbPageIterator iterate(IMDbSearchByTitleParameters params, int prefetch) throws IMDbResponseException {
+		try {
+			IMDbPageIterator pages = IMDbAPI.iterateMovieByTitle(params, prefetch);
+			if (pages.hasError()) throw new IMDbResponseException(pages.getStatus());
+			return pages;
 			
-			List<IMDbMovie> movies = new LinkedList<IMDbMovie>();
-			for (JSONObject json : response.getData()) {
-				movies.add(new IMDbMovie(json));
+		} catch (MalformedURLException e) {
+			Log.print(e);
+			throw new IMDbResponseException(IMDbStatus.MALFORMED_URL);
+		}
+	}
+	
+	/**
+	 * Searches for movie by id, decoding the movie straight from the connection stream
+	 * (when a cache is set, the body is buffered to be stored). The returned movie has no origin 
+	 * JSON object: {@link #getOriginJSON()} rebuilds it from the fields.
+	 * 
+	 * @param params The list of parameters
+	 * @return The movie
+	 * @throws IMDbResponseException Throws whether the server response is not a success.
+	 */
+	public static IMDbMovie decodeById(IMDbSearchByIdParameters params) throws IMDbResponseException {
+		try {
+			return IMDbAPI.makeApiCallGet(IMDbURLCreator.searchMovieByIdUrl(params), IMDbMovieDecoder.MOVIE);
+			
+		} catch (MalformedURLException e) {
+			Log.print(e);
+			throw new IMDbResponseException(IMDbStatus.MALFORMED_URL);
+		}
+	}
+	
+	/**
+	 * Searches for movies by title, decoding the movies straight from the connection stream
+	 * (when a cache is set, the body is buffered to be stored). The returned movies have no origin 
+	 * JSON object: {@link #getOriginJSON()} rebuilds it from the fields.
+	 * 
+	 * @param params The list of parameters
+	 * @return The list of movies
+	 * @throws IMDbResponseException Throws whether the server response is not a success.
+	 */
+	public static List<IMDbMovie> decodeByTitle(IMDbSearchByTitleParameters params) throws IMDbResponseException {
+		try {
+			return IMDbAPI.makeApiCallGet(IMDbURLCreator.searchMovieByTitleUrl(params), IMDbMovieDecoder.MOVIES);
+			
+		} catch (MalformedURLException e) {
+			Log.print(e);
+			throw new IMDbResponseException(IMDbStatus.MALFORMED_URL);
+		}
+	}
+	
+	//endregion
+	
+	//region Asynchronous search
+	
+	/**
+	 * Searches for movie by id without blocking the calling thread.
+	 * If the server response is not a success the future completes exceptionally
+	 * with an {@link IMDbResponseException}.
+	 * 
+	 * @param params The list of parameters
+	 * @return The future movie
+	 */
+	public static CompletableFuture<IMDbMovie> searchByIdAsync(final IMDbSearchByIdParameters params) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return searchById(params);
+			} catch (IMDbResponseException e) {
+				throw new CompletionException(e);
+			}
+		}, IMDbAPI.getExecutor());
+	}
+	
+	/**
+	 * Searches for movies by title without blocking the calling thread.
+	 * If the server response is not a success the future completes exceptionally
+	 * with an {@link IMDbResponseException}.
+	 * 
+	 * @param params The list of parameters
+	 * @return The future list of movies
+	 */
+	public static CompletableFuture<List<IMDbMovie>> searchByTitleAsync(final IMDbSearchByTitleParameters params) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return searchByTitle(params);
+			} catch (IMDbResponseException e) {
+				throw new CompletionException(e);
+			}
+		}, IMDbAPI.getExecutor());
+	}
+	
+	/**
+	 * Searches for movies by title without blocking the calling thread. Gets all the results.
+	 * If the server response is not a success the future completes exceptionally
+	 * with an {@link IMDbResponseException}, or with an {@link IMDbPartialResultException} carrying
+	 * the movies retrieved if some result pages could not be retrieved.
+	 * 
+	 * @param params The list of parameters (Limit and Offset parameters will be ignored)
+	 * @return The future list of movies
+	 */
+	public static CompletableFuture<List<IMDbMovie>> fullSearchByTitleAsync(IMDbSearchByTitleParameters params) {
+		return IMDbAPI.fullSearchMovieByTitleAsync(params).thenApply(response -> {
+			try {
+				return toAllMovies(response);
+			} catch (IMDbResponseException e) {
+				throw new CompletionException(e);
 			}
-			return movies;
+		});
+	}
+	
+	/**
+	 * Converts the response of a full search into the list of movies.
+	 * 
+	 * @param response The array response
+	 * @return The list of movies
+	 * @throws IMDbResponseException Throws whether the response is an error, or an {@link IMDbPartialResultException} 
+	 * if some result pages could not be retrieved
+	 */
+	private static List<IMDbMovie> toAllMovies(IMDbResponseArray response) throws IMDbResponseException {
+		if (response.hasError()) throw new IMDbResponseException(response.getStatus());
+		
+		List<IMDbMovie> movies = new LinkedList<IMDbMovie>();
+		for (JSONObject json : response.getData()) {
+			movies.add(new IMDbMovie(json));
 		}
+		
+		if (!response.getFailedOffsets().isEmpty()) throw new IMDbPartialResultException(movies, response.getFailedOffsets());
+		return movies;
 	}
 	
 	//endregion
@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.entity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import mk.imdb.core.IMDbConstants;
+import mk.imdb.core.IMDbResponseHandler;
+import mk.imdb.exception.IMDbResponseException;
+import mk.imdb.response.IMDbStatus;
+import mk.imdb.utils.JSONPullParser;
+import mk.imdb.utils.JSONPullParser.Token;
+import mk.imdb.utils.Log;
+
+/**
+ * Streaming decoder that fills {@link IMDbMovie} instances straight from the response stream,
+ * without building the JSON tree. It accepts the same payloads handled by {@link IMDbMovie#IMDbMovie(net.sf.json.JSONObject)}.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class IMDbMovieDecoder {
+
+	private IMDbMovieDecoder() {}
+	
+	/**
+	 * Handler that decodes a search by id response.
+	 */
+	public static final IMDbResponseHandler<IMDbMovie> MOVIE = new IMDbResponseHandler<IMDbMovie>() {
+		@Override
+		public IMDbMovie handle(InputStream body) throws IOException, IMDbResponseException {
+			JSONPullParser parser = parser(body);
+			IMDbMovie movie = readMovie(parser);
+			parser.peek();
+			return movie;
+		}
+	};
+	
+	/**
+	 * Handler that decodes a search by title response.
+	 */
+	public static final IMDbResponseHandler<List<IMDbMovie>> MOVIES = new IMDbResponseHandler<List<IMDbMovie>>() {
+		@Override
+		public List<IMDbMovie> handle(InputStream body) throws IOException, IMDbResponseException {
+			JSONPullParser parser = parser(body);
+			List<IMDbMovie> movies = readMovies(parser);
+			parser.peek();
+			return movies;
+		}
+	};
+	
+	/**
+	 * Creates a parser over the given UTF-8 stream.
+	 * 
+	 * @param body The JSON stream
+	 * @return The parser
+	 */
+	private static JSONPullParser parser(InputStream body) {
+		return new JSONPullParser(new InputStreamReader(body, StandardCharsets.UTF_8));
+	}
+	
+	//region Decoding
+	
+	/**
+	 * Reads a movie object.
+	 * 
+	 * @param parser The parser positioned before the object
+	 * @return The movie
+	 * @throws IOException Throws if the stream cannot be read or it is malformed
+	 * @throws IMDbResponseException Throws if the object reports an error status
+	 */
+	public static IMDbMovie readMovie(JSONPullParser parser) throws IOException, IMDbResponseException {
+		IMDbMovie movie = new IMDbMovie();
+		int code = 0;
+		
+		parser.beginObject();
+		while (parser.hasNext()) {
+			String name = parser.nextName();
+			if (name.equals(IMDbConstants.STATUS_CODE)) {
+				code = parser.nextInt();
+			} else {
+				readField(parser, name, movie);
+			}
+		}
+		parser.endObject();
+		
+		checkStatus(code);
+		IMDbMovie.indexed(movie);
+		return movie;
+	}
+	
+	/**
+	 * Reads a list of movies. Both a plain array of movies and an object with the "result" array are accepted; 
+	 * a single movie object is returned as a list of one element.
+	 * 
+	 * @param parser The parser positioned before the array or the object
+	 * @return The list of movies
+	 * @throws IOException Throws if the stream cannot be read or it is malformed
+	 * @throws IMDbResponseException Throws if the response reports an error status
+	 */
+	public static List<IMDbMovie> readMovies(JSONPullParser parser) throws IOException, IMDbResponseException {
+		if (parser.peek() == Token.BEGIN_ARRAY) return readMovieArray(parser);
+		
+		IMDbMovie movie = new IMDbMovie();
+		List<IMDbMovie> movies = null;
+		int code = 0;
+		
+		parser.beginObject();
+		while (parser.hasNext()) {
+			String name = parser.nextName();
+			if (name.equals(IMDbConstants.STATUS_CODE)) {
+				code = parser.nextInt();
+			} else if (name.equals(IMDbConstants.RESULT)) {
+				movies = readMovieArray(parser);
+			} else if (name.equals(IMDbConstants.TOTAL_RESULTS)) {
+				parser.skipValue();
+			} else {
+				readField(parser, name, movie);
+			}
+		}
+		parser.endObject();
+		
+		checkStatus(code);
+		
+		if (movies == null) {
+			movies = new LinkedList<IMDbMovie>(Collections.singletonList(movie));
+		}
+		return movies;
+	}
+	
+	private static List<IMDbMovie> readMovieArray(JSONPullParser parser) throws IOException, IMDbResponseException {
+		List<IMDbMovie> movies = new LinkedList<IMDbMovie>();
+		parser.beginArray();
+		while (parser.hasNext()) {
+			movies.add(readMovie(parser));
+		}
+		parser.endArray();
+		return movies;
+	}
+	
+	private static void checkStatus(int code) throws IMDbResponseException {
+		if (code > IMDbStatus.NONE.getCode()) {
+			throw new IMDbResponseException(IMDbStatus.getStatusByCode(code));
+		}
+	}
+	
+	/**
+	 * Reads the value of the given movie property.
+	 */
+	private static void readField(JSONPullParser parser, String name, IMDbMovie movie) throws IOException {
+		if (parser.peek() == Token.NULL) {
+			parser.nextNull();
+			return;
+		}
+		
+		switch (name) {
+		case IMDbConstants.IMDB_ID: movie.setId(parser.nextString()); break;
+		case IMDbConstants.RATING: movie.setRating(parser.nextDouble()); break;
+		case IMDbConstants.RATING_COUNT: movie.setCount(parser.nextInt()); break;
+		case IMDbConstants.RATED: movie.setMPAARating(IMDbMovie.intern(parser.nextString())); break;
+		case IMDbConstants.LOCATIONS: movie.setLocation(parser.nextString()); break;
+		case IMDbConstants.TYPE: movie.setType(IMDbMovieType.getTypeByName(parser.nextString())); break;
+		case IMDbConstants.TITLE: movie.setTitle(parser.nextString()); break;
+		case IMDbConstants.PLOT: movie.setPlot(parser.nextString()); break;
+		case IMDbConstants.PLOT_SIMPLE:
+			String plot = parser.nextString();
+			if (movie.getPlot() == null) movie.setPlot(plot);
+			break;
+		case IMDbConstants.IMDB_URL: movie.setLink(readURL(parser)); break;
+		case IMDbConstants.POSTER: movie.setPoster(readURL(parser)); break;
+		case IMDbConstants.GENRES: movie.setGenres(readStrings(parser)); break;
+		case IMDbConstants.LANGUAGE: movie.setLanguages(readStrings(parser)); break;
+		case IMDbConstants.WRITERS: movie.setWriters(readStrings(parser)); break;
+		case IMDbConstants.DIRECTORS: movie.setDirectors(readStrings(parser)); break;
+		case IMDbConstants.ACTORS: movie.setActors(readStrings(parser)); break;
+		case IMDbConstants.COUNTRY: movie.setCountries(readStrings(parser)); break;
+		case IMDbConstants.RUNTIME: movie.setRuntimes(readRuntimes(parser)); break;
+		case IMDbConstants.ALSO_KNOWN_AS: movie.setAKA(readAkas(parser)); break;
+		case IMDbConstants.RELEASE_DATE: readReleases(parser, movie); break;
+		default: parser.skipValue();
+		}
+	}
+	
+	private static URL readURL(JSONPullParser parser) throws IOException {
+		String url = parser.nextString();
+		try {
+			return new URL(url);
+		} catch (MalformedURLException e) {
+			Log.print(e);
+			return null;
+		}
+	}
+	
+	private static List<String> readStrings(JSONPullParser parser) throws IOException {
+		List<String> list = new ArrayList<String>();
+		parser.beginArray();
+		while (parser.hasNext()) {
+			list.add(IMDbMovie.intern(parser.nextString()));
+		}
+		parser.endArray();
+		return list;
+	}
+	
+	private static int[] readRuntimes(JSONPullParser parser) throws IOException {
+		int[] runtimes = new int[4];
+		int size = 0;
+		
+		parser.beginArray();
+		while (parser.hasNext()) {
+			Integer runtime = IMDbMovie.toRuntime(parser.nextString());
+			if (runtime == null) continue;
+			if (size == runtimes.length) runtimes = Arrays.copyOf(runtimes, 2 * size);
+			runtimes[size++] = runtime;
+		}
+		parser.endArray();
+		
+		return Arrays.copyOf(runtimes, size);
+	}
+	
+	private static String[] readAkas(JSONPullParser parser) throws IOException {
+		List<String> pairs = new ArrayList<String>();
+		boolean simple = false;
+		
+		parser.beginArray();
+		while (parser.hasNext()) {
+			if (parser.peek() != Token.BEGIN_OBJECT) {
+				// Simple verbosity: only the first alias is kept, as the USA one.
+				String title = parser.nextString();
+				if (!simple) {
+					pairs.add("USA");
+					pairs.add(title);
+				}
+				simple = true;
+				continue;
+			}
+			
+			String country = null, title = null;
+			parser.beginObject();
+			while (parser.hasNext()) {
+				String name = parser.nextName();
+				if (name.equals(IMDbConstants.COUNTRY)) country = IMDbMovie.intern(parser.nextString());
+				else if (name.equals(IMDbConstants.TITLE)) title = parser.nextString();
+				else parser.skipValue();
+			}
+			parser.endObject();
+			
+			// An alias without its country or title cannot be looked up: it is skipped, as in IMDbMovie(JSONObject).
+			if (country == null || title == null) continue;
+			pairs.add(country);
+			pairs.add(title);
+		}
+		parser.endArray();
+		
+		return pairs.toArray(new String[pairs.size()]);
+	}
+	
+	private static void readReleases(JSONPullParser parser, IMDbMovie movie) throws IOException {
+		if (parser.peek() != Token.BEGIN_ARRAY) {
+			Integer day = IMDbMovie.toEpochDay(parser.nextString());
+			if (day != null) movie.setReleases(new String[] { "USA" }, new int[] { day });
+			return;
+		}
+		
+		List<String> countries = new ArrayList<String>();
+		int[] days = new int[4];
+		
+		parser.beginArray();
+		while (parser.hasNext()) {
+			String country = null;
+			Integer year = null, month = null, day = null;
+			
+			parser.beginObject();
+			while (parser.hasNext()) {
+				String name = parser.nextName();
+				if (name.equals(IMDbConstants.COUNTRY)) country = IMDbMovie.intern(parser.nextString());
+				else if (name.equals(IMDbConstants.YEAR)) year = parser.nextInt();
+				else if (name.equals(IMDbConstants.MONTH)) month = parser.nextInt();
+				else if (name.equals(IMDbConstants.DAY)) day = parser.nextInt();
+				else parser.skipValue();
+			}
+			parser.endObject();
+			
+			// A release without its country or any of its date fields is skipped, as in IMDbMovie(JSONObject).
+			if (country == null || year == null || month == null || day == null) continue;
+			if (countries.size() == days.length) days = Arrays.copyOf(days, 2 * days.length);
+			days[countries.size()] = IMDbMovie.toEpochDay(year, month, day);
+			countries.add(country);
+		}
+		parser.endArray();
+		
+		movie.setReleases(countries.toArray(new String[countries.size()]), Arrays.copyOf(days, countries.size()));
+	}
+	
+	//endregion
+	
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.entity;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+
+import mk.imdb.core.IMDbPageIterator;
+
+/**
+ * Iterator over the movies of a search by title, that fetches the result pages on demand 
+ * (see {@link IMDbMovie#fullSearchByTitleIterator(mk.imdb.core.IMDbSearchByTitleParameters, int)}).
+ * <p>
+ * A consumer that stops before the end should close the iterator, to cancel the pages being fetched.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbMovieIterator implements Iterator<IMDbMovie>, Closeable {
+
+	/**
+	 * The result pages.
+	 */
+	private final IMDbPageIterator pages;
+	
+	/**
+	 * Creates a new iterator over the given pages.
+	 * 
+	 * @param pages The result pages
+	 */
+	IMDbMovieIterator(IMDbPageIterator pages) {
+		this.pages = pages;
+	}
+	
+	/**
+	 * Gets the total number of results.
+	 * 
+	 * @return The total number of results
+	 */
+	public int getResults() {
+		return pages.getResults();
+	}
+	
+	/**
+	 * Gets the offsets of the pages, consumed so far, that could not be retrieved.
+	 * 
+	 * @return The list of failed offsets
+	 */
+	public List<Integer> getFailedOffsets() {
+		return pages.getFailedOffsets();
+	}
+	
+	@Override
+	public boolean hasNext() {
+		return pages.hasNext();
+	}
+
+	@Override
+	public IMDbMovie next() {
+		return new IMDbMovie(pages.next());
+	}
+	
+	/**
+	 * Stops the iteration and cancels the pages being fetched.
+	 */
+	@Override
+	public void close() {
+		pages.close();
+	}
+	
+}
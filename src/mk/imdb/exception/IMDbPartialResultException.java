@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.exception;
+
+import java.util.Collections;
+import java.util.List;
+
+import mk.imdb.entity.IMDbMovie;
+import mk.imdb.response.IMDbStatus;
+
+/**
+ * Signals that a search that gathers several result pages could not retrieve some of them. 
+ * The movies of the retrieved pages are carried by the exception, with the offsets of the missing pages.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbPartialResultException extends IMDbResponseException {
+
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The movies of the retrieved pages.
+	 */
+	private final transient List<IMDbMovie> movies;
+	
+	/**
+	 * The offsets of the pages that could not be retrieved.
+	 */
+	private final List<Integer> failedOffsets;
+	
+	/**
+	 * Creates a new instance of IMDbPartialResultException.
+	 * 
+	 * @param movies The movies of the retrieved pages
+	 * @param failedOffsets The offsets of the pages that could not be retrieved
+	 */
+	public IMDbPartialResultException(List<IMDbMovie> movies, List<Integer> failedOffsets) {
+		super(IMDbStatus.PARTIAL_RESULTS);
+		this.movies = Collections.unmodifiableList(movies);
+		this.failedOffsets = Collections.unmodifiableList(failedOffsets);
+	}
+	
+	/**
+	 * Gets the movies of the retrieved pages.
+	 * 
+	 * @return The movies, in the order of the results
+	 */
+	public List<IMDbMovie> getMovies() {
+		return movies;
+	}
+	
+	/**
+	 * Gets the offsets of the pages that could not be retrieved.
+	 * 
+	 * @return The list of failed offsets
+	 */
+	public List<Integer> getFailedOffsets() {
+		return failedOffsets;
+	}
+	
+}
@@ -0,0 +1,600 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import mk.imdb.entity.IMDbMovie;
+import mk.imdb.utils.Pair;
+
+/**
+ * In-process index of movie titles, for fuzzy (typo tolerant) and prefix lookups without contacting the server.
+ * <p>
+ * The titles and the also known as titles of each movie are normalized (lower case, without accents and 
+ * punctuation) and split into character trigrams. Every trigram maps to the ascending list of the movies 
+ * that contain it, stored as variable length deltas (usually one byte per movie). A lookup counts the 
+ * trigrams shared by the query and each movie, keeps the most promising candidates and scores their titles 
+ * by the fraction of the query trigrams they contain (a prefix counts as contained) and by the Dice coefficient 
+ * of the two trigram sets, so that both the autocompletion of a partial title and a misspelled full title rank 
+ * the right movie first.
+ * <p>
+ * A movie added again (same IMDb id) replaces the previous one. The index is thread safe: the lookups share 
+ * a read lock, the updates take the write lock. The movies are indexed as they are fetched when the index is 
+ * set with {@link IMDbMovie#setTitleIndex(IMDbTitleIndex)}.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbTitleIndex {
+
+	//region Constants
+	
+	/**
+	 * The weight of the query containment in the score (the Dice coefficient has the rest).
+	 */
+	private static final double CONTAINMENT_WEIGHT = 0.7;
+	
+	/**
+	 * The default minimum score of the results.
+	 */
+	public static final double DEFAULT_MIN_SCORE = 0.5;
+	
+	/**
+	 * The number of candidates scored per requested result.
+	 */
+	private static final int CANDIDATES_PER_RESULT = 8;
+	
+	/**
+	 * The minimum number of candidates scored.
+	 */
+	private static final int MIN_CANDIDATES = 64;
+	
+	//endregion
+	
+	//region Fields
+	
+	/**
+	 * The postings of each trigram.
+	 */
+	private final Map<Long, Postings> postings = new HashMap<Long, Postings>();
+	
+	/**
+	 * The indexed movies, by document number (null when removed).
+	 */
+	private final List<Document> documents = new ArrayList<Document>();
+	
+	/**
+	 * The document number of each IMDb id.
+	 */
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	
+	/**
+	 * The number of removed documents still referenced by the postings.
+	 */
+	private int removed = 0;
+	
+	/**
+	 * Guards the index: lookups share it, updates own it.
+	 */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	/**
+	 * The per-thread buffers of the lookups.
+	 */
+	private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+	
+	//endregion
+	
+	//region Updates
+	
+	/**
+	 * Adds a movie, replacing the one with the same IMDb id. The also known as titles of a lazily 
+	 * decoded movie are decoded. Movies without a title are ignored.
+	 * 
+	 * @param movie The movie
+	 */
+	public void add(IMDbMovie movie) {
+		Document document = document(movie);
+		if (document == null) return;
+		
+		lock.writeLock().lock();
+		try {
+			insert(document);
+			if (removed > 1024 && removed > documents.size() / 2) rebuild();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Adds several movies, see {@link #add(IMDbMovie)}.
+	 * 
+	 * @param movies The movies
+	 */
+	public void addAll(Collection<? extends IMDbMovie> movies) {
+		List<Document> batch = new ArrayList<Document>(movies.size());
+		for (IMDbMovie movie : movies) {
+			Document document = document(movie);
+			if (document != null) batch.add(document);
+		}
+		
+		lock.writeLock().lock();
+		try {
+			for (Document document : batch) {
+				insert(document);
+			}
+			if (removed > 1024 && removed > documents.size() / 2) rebuild();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Removes the movie with the given IMDb id.
+	 * 
+	 * @param id The IMDb id
+	 * @return Whether the movie was indexed
+	 */
+	public boolean remove(String id) {
+		lock.writeLock().lock();
+		try {
+			Integer number = ids.remove(id);
+			if (number == null) return false;
+			
+			documents.set(number, null);
+			removed++;
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Removes all the movies.
+	 */
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			postings.clear();
+			documents.clear();
+			ids.clear();
+			removed = 0;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	//endregion
+	
+	//region Lookups
+	
+	/**
+	 * Gets the number of indexed movies.
+	 * 
+	 * @return The number of movies
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return documents.size() - removed;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Gets the indexed movie with the given IMDb id.
+	 * 
+	 * @param id The IMDb id
+	 * @return The movie, or null if it is not indexed
+	 */
+	public IMDbMovie get(String id) {
+		lock.readLock().lock();
+		try {
+			Integer number = ids.get(id);
+			return (number != null) ? documents.get(number).movie : null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Gets the indexed movies.
+	 * 
+	 * @return A copy of the list of the movies, in insertion order
+	 */
+	public List<IMDbMovie> getMovies() {
+		lock.readLock().lock();
+		try {
+			List<IMDbMovie> movies = new ArrayList<IMDbMovie>(documents.size() - removed);
+			for (Document document : documents) {
+				if (document != null) movies.add(document.movie);
+			}
+			return movies;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Searches for the movies whose title matches the given one, with the default minimum score.
+	 * 
+	 * @param query The title, complete or partial
+	 * @param limit The maximum number of results
+	 * @return The matches, best first
+	 */
+	public List<IMDbTitleMatch> search(String query, int limit) {
+		return search(query, limit, DEFAULT_MIN_SCORE);
+	}
+	
+	/**
+	 * Searches for the movies whose title (or also known as title) matches the given one, 
+	 * complete or partial, tolerating typos.
+	 * 
+	 * @param query The title, complete or partial
+	 * @param limit The maximum number of results
+	 * @param minScore The minimum score of the results, between 0 and 1 (see {@link IMDbTitleMatch#getScore()})
+	 * @return The matches, best first
+	 */
+	public List<IMDbTitleMatch> search(String query, int limit, double minScore) {
+		if (query == null || limit <= 0) return Collections.emptyList();
+		
+		String normalized = normalize(query);
+		long[] grams = trigrams(normalized);
+		if (grams.length == 0) return Collections.emptyList();
+		
+		List<IMDbTitleMatch> matches = new ArrayList<IMDbTitleMatch>();
+		lock.readLock().lock();
+		try {
+			Scratch scratch = SCRATCH.get();
+			long[] candidates = candidates(grams, minScore, Math.max(MIN_CANDIDATES, limit * CANDIDATES_PER_RESULT), scratch);
+			
+			for (long candidate : candidates) {
+				Document document = documents.get((int) candidate);
+				IMDbTitleMatch match = (document != null) ? match(document, normalized, grams) : null;
+				if (match != null && match.getScore() >= minScore) matches.add(match);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		
+		matches.sort((a, b) -> (a.getScore() != b.getScore()) ? Double.compare(b.getScore(), a.getScore()) : a.getTitle().compareTo(b.getTitle()));
+		return (matches.size() > limit) ? new ArrayList<IMDbTitleMatch>(matches.subList(0, limit)) : matches;
+	}
+	
+	/**
+	 * Counts the query trigrams of each document and selects the documents that can reach the minimum 
+	 * score, those sharing the most trigrams first. The caller holds the read lock.
+	 * 
+	 * @param grams The query trigrams
+	 * @param minScore The minimum score
+	 * @param max The maximum number of candidates
+	 * @param scratch The buffers of the thread
+	 * @return The document numbers
+	 */
+	private long[] candidates(long[] grams, double minScore, int max, Scratch scratch) {
+		scratch.ensure(documents.size());
+		int[] counts = scratch.counts;
+		int[] touched = scratch.touched;
+		int size = 0;
+		
+		for (long gram : grams) {
+			Postings list = postings.get(gram);
+			if (list == null) continue;
+			
+			byte[] data = list.data;
+			for (int p = 0, document = -1; p < list.length;) {
+				int delta = 0;
+				for (int shift = 0; ; shift += 7) {
+					byte b = data[p++];
+					delta |= (b & 0x7F) << shift;
+					if (b >= 0) break;
+				}
+				document += delta;
+				if (counts[document]++ == 0) touched[size++] = document;
+			}
+		}
+		
+		// upper bound of the score with k shared trigrams: containment k/q, Dice at most 2k/(q+k); a title 
+		// starting with the query misses at most its last trigram (the one ending with the padding) and 
+		// has containment 1, so 1 is the bound of the containment from k = q - 1
+		long[] selected = new long[size];
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			int document = touched[i];
+			int k = counts[document];
+			counts[document] = 0;
+			
+			double containment = (k >= grams.length - 1) ? 1.0 : (double) k / grams.length;
+			double bound = CONTAINMENT_WEIGHT * containment + (1 - CONTAINMENT_WEIGHT) * 2.0 * k / (grams.length + k);
+			if (bound >= minScore) selected[n++] = ((long) k << 32) | document;
+		}
+		
+		Arrays.sort(selected, 0, n);
+		int count = Math.min(n, max);
+		long[] result = new long[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = selected[n - 1 - i] & 0xFFFFFFFFL;
+		}
+		return result;
+	}
+	
+	/**
+	 * Scores the titles of a document and returns its best one.
+	 * 
+	 * @param document The document
+	 * @param query The normalized query
+	 * @param grams The query trigrams
+	 * @return The best match
+	 */
+	private static IMDbTitleMatch match(Document document, String query, long[] grams) {
+		double best = -1;
+		String title = null;
+		
+		for (int i = 0; i < document.keys.length; i++) {
+			String key = document.keys[i];
+			long[] other = trigrams(key);
+			int shared = shared(grams, other);
+			
+			double containment = key.startsWith(query) ? 1.0 : (double) shared / grams.length;
+			double dice = 2.0 * shared / (grams.length + other.length);
+			double score = CONTAINMENT_WEIGHT * containment + (1 - CONTAINMENT_WEIGHT) * dice;
+			
+			if (score > best) {
+				best = score;
+				title = document.titles[i];
+			}
+		}
+		return new IMDbTitleMatch(document.movie, title, best);
+	}
+	
+	//endregion
+	
+	//region Indexing
+	
+	/**
+	 * Collects the titles of a movie.
+	 * 
+	 * @param movie The movie
+	 * @return The document, or null if the movie has no title
+	 */
+	private static Document document(IMDbMovie movie) {
+		if (movie == null || movie.getTitle() == null) return null;
+		
+		Set<String> keys = new LinkedHashSet<String>();
+		List<String> titles = new ArrayList<String>();
+		
+		String key = normalize(movie.getTitle());
+		if (!key.isEmpty() && keys.add(key)) titles.add(movie.getTitle());
+		for (Pair<String, String> aka : movie.getAKA()) {
+			if (aka.getSecond() == null) continue;
+			key = normalize(aka.getSecond());
+			if (!key.isEmpty() && keys.add(key)) titles.add(aka.getSecond());
+		}
+		if (keys.isEmpty()) return null;
+		
+		return new Document(movie, titles.toArray(new String[0]), keys.toArray(new String[0]));
+	}
+	
+	/**
+	 * Adds a document to the postings, replacing the one with the same IMDb id. The caller holds the write lock.
+	 * 
+	 * @param document The document
+	 */
+	private void insert(Document document) {
+		int number = documents.size();
+		documents.add(document);
+		
+		String id = document.movie.getId();
+		if (id != null) {
+			Integer old = ids.put(id, number);
+			if (old != null) {
+				documents.set(old, null);
+				removed++;
+			}
+		}
+		
+		long[] all = new long[0];
+		for (String key : document.keys) {
+			long[] grams = trigrams(key);
+			long[] merged = Arrays.copyOf(all, all.length + grams.length);
+			System.arraycopy(grams, 0, merged, all.length, grams.length);
+			all = merged;
+		}
+		Arrays.sort(all);
+		
+		for (int i = 0; i < all.length; i++) {
+			if (i > 0 && all[i] == all[i - 1]) continue;
+			
+			Postings list = postings.get(all[i]);
+			if (list == null) {
+				list = new Postings();
+				postings.put(all[i], list);
+			}
+			list.add(number);
+		}
+	}
+	
+	/**
+	 * Rebuilds the postings without the removed documents. The caller holds the write lock.
+	 */
+	private void rebuild() {
+		List<Document> live = new ArrayList<Document>(documents.size() - removed);
+		for (Document document : documents) {
+			if (document != null) live.add(document);
+		}
+		
+		postings.clear();
+		documents.clear();
+		ids.clear();
+		removed = 0;
+		for (Document document : live) {
+			insert(document);
+		}
+	}
+	
+	/**
+	 * Normalizes a title: lower case, accents removed, and every run of other characters 
+	 * than letters and digits replaced by a single space.
+	 * 
+	 * @param title The title
+	 * @return The normalized title
+	 */
+	static String normalize(String title) {
+		String decomposed = Normalizer.normalize(title, Normalizer.Form.NFD);
+		StringBuilder sb = new StringBuilder(decomposed.length());
+		boolean space = true;
+		
+		for (int i = 0; i < decomposed.length(); i++) {
+			char c = decomposed.charAt(i);
+			if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+			
+			if (Character.isLetterOrDigit(c)) {
+				sb.append(Character.toLowerCase(c));
+				space = false;
+			} else if (!space) {
+				sb.append(' ');
+				space = true;
+			}
+		}
+		
+		int length = sb.length();
+		if (length > 0 && sb.charAt(length - 1) == ' ') sb.setLength(length - 1);
+		return sb.toString();
+	}
+	
+	/**
+	 * Gets the distinct trigrams of a normalized title, padded with two spaces before and one after, 
+	 * so that the short titles and the beginning of the titles have their own trigrams.
+	 * 
+	 * @param key The normalized title
+	 * @return The sorted trigrams, each packed in a long
+	 */
+	static long[] trigrams(String key) {
+		if (key.isEmpty()) return new long[0];
+		
+		int n = key.length() + 1;
+		long[] grams = new long[n];
+		for (int i = 0; i < n; i++) {
+			grams[i] = ((long) charAt(key, i - 2) << 32) | ((long) charAt(key, i - 1) << 16) | charAt(key, i);
+		}
+		Arrays.sort(grams);
+		
+		int size = 0;
+		for (int i = 0; i < n; i++) {
+			if (size == 0 || grams[i] != grams[size - 1]) grams[size++] = grams[i];
+		}
+		return (size == n) ? grams : Arrays.copyOf(grams, size);
+	}
+	
+	/**
+	 * Gets a character of the padded title.
+	 */
+	private static char charAt(String key, int index) {
+		return (index < 0 || index >= key.length()) ? ' ' : key.charAt(index);
+	}
+	
+	/**
+	 * Counts the trigrams in common between two sorted sets.
+	 */
+	private static int shared(long[] a, long[] b) {
+		int count = 0;
+		for (int i = 0, j = 0; i < a.length && j < b.length;) {
+			if (a[i] < b[j]) i++;
+			else if (a[i] > b[j]) j++;
+			else {
+				count++;
+				i++;
+				j++;
+			}
+		}
+		return count;
+	}
+	
+	//endregion
+	
+	/**
+	 * An indexed movie.
+	 */
+	private static final class Document {
+		
+		private final IMDbMovie movie;
+		private final String[] titles;
+		private final String[] keys;
+		
+		private Document(IMDbMovie movie, String[] titles, String[] keys) {
+			this.movie = movie;
+			this.titles = titles;
+			this.keys = keys;
+		}
+	}
+	
+	/**
+	 * The ascending document numbers of a trigram, stored as variable length deltas.
+	 */
+	private static final class Postings {
+		
+		private byte[] data = new byte[4];
+		private int length = 0;
+		private int last = -1;
+		
+		private void add(int document) {
+			if (length + 5 > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+			
+			int delta = document - last;
+			last = document;
+			while ((delta & ~0x7F) != 0) {
+				data[length++] = (byte) ((delta & 0x7F) | 0x80);
+				delta >>>= 7;
+			}
+			data[length++] = (byte) delta;
+		}
+	}
+	
+	/**
+	 * The per-thread buffers of the lookups.
+	 */
+	private static final class Scratch {
+		
+		private int[] counts = new int[0];
+		private int[] touched = new int[0];
+		
+		private void ensure(int documents) {
+			if (counts.length >= documents) return;
+			
+			int size = Math.max(documents, counts.length * 2);
+			counts = new int[size];
+			touched = new int[size];
+		}
+	}
+	
+}
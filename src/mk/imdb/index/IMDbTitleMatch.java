@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.index;
+
+import mk.imdb.entity.IMDbMovie;
+
+/**
+ * Class that represents a result of a {@link IMDbTitleIndex} lookup.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class IMDbTitleMatch {
+
+	/**
+	 * The matching movie.
+	 */
+	private final IMDbMovie movie;
+	
+	/**
+	 * The title (or also known as title) that matched.
+	 */
+	private final String title;
+	
+	/**
+	 * The similarity with the query.
+	 */
+	private final double score;
+	
+	/**
+	 * Creates a new match.
+	 * 
+	 * @param movie The matching movie
+	 * @param title The title that matched
+	 * @param score The similarity with the query, between 0 and 1
+	 */
+	IMDbTitleMatch(IMDbMovie movie, String title, double score) {
+		this.movie = movie;
+		this.title = title;
+		this.score = score;
+	}
+	
+	//region Getters
+	
+	/**
+	 * Gets the matching movie.
+	 * 
+	 * @return The movie
+	 */
+	public IMDbMovie getMovie() {
+		return movie;
+	}
+	
+	/**
+	 * Gets the title that matched: the movie title or one of its also known as titles.
+	 * 
+	 * @return The matched title
+	 */
+	public String getTitle() {
+		return title;
+	}
+	
+	/**
+	 * Gets the similarity with the query: 1 for an exact match, at least 0.7 for a prefix match.
+	 * 
+	 * @return The score, between 0 and 1
+	 */
+	public double getScore() {
+		return score;
+	}
+	
+	//endregion
+	
+	@Override
+	public String toString() {
+		return String.format("%s (%s, %.3f)", title, movie.getId(), score);
+	}
+	
+}
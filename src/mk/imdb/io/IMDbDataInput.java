@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the values written by {@link IMDbDataOutput} from a byte buffer, heap or direct (e.g. a mapped file).
+ * <p>
+ * The string table is kept when the buffer is replaced with {@link #setBuffer(ByteBuffer)}, so the records of 
+ * a stream are read through the same input, in order. It must be bounded as the table of the writing side.
+ * <p>
+ * The input is not thread safe.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class IMDbDataInput {
+
+	//region Fields
+	
+	/**
+	 * The bytes to read.
+	 */
+	private ByteBuffer buffer;
+	
+	/**
+	 * The strings of the table, by position.
+	 */
+	private final List<String> strings = new ArrayList<String>();
+	
+	/**
+	 * The maximum number of strings of the table.
+	 */
+	private final int maxStrings;
+	
+	/**
+	 * The copy of the string bytes, for the direct buffers.
+	 */
+	private byte[] scratch = new byte[64];
+	
+	//endregion
+	
+	/**
+	 * Creates a new input with a table of {@link IMDbDataOutput#DEFAULT_MAX_STRINGS} strings.
+	 * 
+	 * @param buffer The bytes to read, from its position to its limit
+	 */
+	public IMDbDataInput(ByteBuffer buffer) {
+		this(buffer, IMDbDataOutput.DEFAULT_MAX_STRINGS);
+	}
+	
+	/**
+	 * Creates a new input.
+	 * 
+	 * @param buffer The bytes to read, from its position to its limit
+	 * @param maxStrings The maximum number of strings of the table, as for the writing side
+	 */
+	public IMDbDataInput(ByteBuffer buffer, int maxStrings) {
+		if (maxStrings < 0) throw new IllegalArgumentException("The maximum number of strings must not be negative: " + maxStrings);
+		this.buffer = buffer;
+		this.maxStrings = maxStrings;
+	}
+	
+	/**
+	 * Replaces the bytes to read, keeping the string table.
+	 * 
+	 * @param buffer The bytes to read, from its position to its limit
+	 */
+	public void setBuffer(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+	
+	/**
+	 * Gets the number of bytes left.
+	 * 
+	 * @return The bytes left
+	 */
+	public int remaining() {
+		return buffer.remaining();
+	}
+	
+	//region Values
+	
+	/**
+	 * Reads a byte.
+	 * 
+	 * @return The byte, from 0 to 255
+	 * @throws IOException Throws if the bytes are over
+	 */
+	public int readByte() throws IOException {
+		require(1);
+		return buffer.get() & 0xFF;
+	}
+	
+	/**
+	 * Reads an unsigned variable length integer.
+	 * 
+	 * @return The value
+	 * @throws IOException Throws if the bytes are over or the value is longer than 5 bytes
+	 */
+	public int readVarint() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = readByte();
+			value |= (b & 0x7F) << shift;
+			if (b < 0x80) return value;
+		}
+		throw new IOException("Malformed variable length integer");
+	}
+	
+	/**
+	 * Reads a zigzag encoded variable length integer.
+	 * 
+	 * @return The value
+	 * @throws IOException Throws if the bytes are over or the value is malformed
+	 */
+	public int readZigZag() throws IOException {
+		int value = readVarint();
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	/**
+	 * Reads a double of 8 bytes, big endian.
+	 * 
+	 * @return The value
+	 * @throws IOException Throws if the bytes are over
+	 */
+	public double readDouble() throws IOException {
+		require(8);
+		long bits = 0;
+		for (int i = 0; i < 8; i++) {
+			bits = (bits << 8) | (buffer.get() & 0xFF);
+		}
+		return Double.longBitsToDouble(bits);
+	}
+	
+	/**
+	 * Reads a string written in full.
+	 * 
+	 * @return The string (may be null)
+	 * @throws IOException Throws if the bytes are over or the length is malformed
+	 */
+	public String readString() throws IOException {
+		int length = readVarint() - 1;
+		if (length < 0) {
+			if (length == -1) return null;
+			throw new IOException("Malformed string length");
+		}
+		require(length);
+		
+		String value;
+		if (buffer.hasArray()) {
+			int position = buffer.position();
+			value = new String(buffer.array(), buffer.arrayOffset() + position, length, StandardCharsets.UTF_8);
+			buffer.position(position + length);
+		} else {
+			if (scratch.length < length) scratch = new byte[Math.max(length, scratch.length * 2)];
+			buffer.get(scratch, 0, length);
+			value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+		return value;
+	}
+	
+	/**
+	 * Reads a string written through the table.
+	 * 
+	 * @return The string (may be null)
+	 * @throws IOException Throws if the bytes are over or the string is not in the table
+	 */
+	public String readSharedString() throws IOException {
+		int code = readVarint();
+		if (code == 0) return null;
+		
+		if (code == 1) {
+			String value = readString();
+			if (value == null) throw new IOException("Malformed shared string");
+			if (strings.size() < maxStrings) strings.add(value);
+			return value;
+		}
+		
+		int index = code - 2;
+		if (index < 0 || index >= strings.size()) throw new IOException("Unknown shared string: " + index);
+		return strings.get(index);
+	}
+	
+	//endregion
+	
+	/**
+	 * Checks that the given number of bytes is left.
+	 * 
+	 * @param bytes The number of bytes to read
+	 * @throws EOFException Throws if fewer bytes are left
+	 */
+	private void require(int bytes) throws EOFException {
+		if (buffer.remaining() < bytes) throw new EOFException("Truncated record: " + bytes + " bytes needed, " + buffer.remaining() + " left");
+	}
+	
+}
@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Growable byte buffer that encodes the values of the binary format of the movies (see {@link IMDbMovieWriter}).
+ * <p>
+ * The integers are written as variable length quantities (7 bits per byte, least significant first), the signed 
+ * ones zigzag encoded, so that the small values take a single byte. The strings are UTF-8 bytes preceded by their 
+ * length; the shared strings (genres, countries, names...) are written in full the first time only, and then 
+ * referred to by their position in the string table of the buffer, which is kept by {@link #reset()}, so that a 
+ * buffer reused for the records of a stream codes each repeated string once. The table is bounded: the strings 
+ * met when it is full are always written in full.
+ * <p>
+ * The buffer is not thread safe.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class IMDbDataOutput {
+
+	//region Fields
+	
+	/**
+	 * The default maximum number of strings of the table.
+	 */
+	public static final int DEFAULT_MAX_STRINGS = 65536;
+	
+	/**
+	 * The bytes written.
+	 */
+	private byte[] buffer = new byte[256];
+	
+	/**
+	 * The number of bytes written.
+	 */
+	private int size = 0;
+	
+	/**
+	 * The position of each string of the table.
+	 */
+	private final Map<String, Integer> strings = new HashMap<String, Integer>();
+	
+	/**
+	 * The maximum number of strings of the table.
+	 */
+	private final int maxStrings;
+	
+	//endregion
+	
+	/**
+	 * Creates a new buffer with a table of {@link #DEFAULT_MAX_STRINGS} strings.
+	 */
+	public IMDbDataOutput() {
+		this(DEFAULT_MAX_STRINGS);
+	}
+	
+	/**
+	 * Creates a new buffer. The reading side must use the same bound.
+	 * 
+	 * @param maxStrings The maximum number of strings of the table (0 to write every string in full)
+	 */
+	public IMDbDataOutput(int maxStrings) {
+		if (maxStrings < 0) throw new IllegalArgumentException("The maximum number of strings must not be negative: " + maxStrings);
+		this.maxStrings = maxStrings;
+	}
+	
+	//region Values
+	
+	/**
+	 * Writes a byte.
+	 * 
+	 * @param value The byte (the low 8 bits)
+	 */
+	public void writeByte(int value) {
+		ensure(1);
+		buffer[size++] = (byte) value;
+	}
+	
+	/**
+	 * Writes an unsigned integer as a variable length quantity (1 to 5 bytes). The negative values take 5 bytes.
+	 * 
+	 * @param value The value
+	 */
+	public void writeVarint(int value) {
+		ensure(5);
+		while ((value & ~0x7F) != 0) {
+			buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[size++] = (byte) value;
+	}
+	
+	/**
+	 * Writes a signed integer, zigzag encoded, as a variable length quantity (1 byte from -64 to 63).
+	 * 
+	 * @param value The value
+	 */
+	public void writeZigZag(int value) {
+		writeVarint((value << 1) ^ (value >> 31));
+	}
+	
+	/**
+	 * Writes a double in 8 bytes, big endian.
+	 * 
+	 * @param value The value
+	 */
+	public void writeDouble(double value) {
+		ensure(8);
+		long bits = Double.doubleToRawLongBits(value);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			buffer[size++] = (byte) (bits >>> shift);
+		}
+	}
+	
+	/**
+	 * Writes a string in full: its UTF-8 length plus one (0 for null) and its UTF-8 bytes.
+	 * 
+	 * @param value The string (may be null)
+	 */
+	public void writeString(String value) {
+		if (value == null) {
+			writeVarint(0);
+			return;
+		}
+		
+		int length = value.length();
+		int i = 0;
+		while (i < length && value.charAt(i) < 0x80) i++;
+		
+		if (i == length) {
+			writeVarint(length + 1);
+			ensure(length);
+			for (int c = 0; c < length; c++) {
+				buffer[size++] = (byte) value.charAt(c);
+			}
+		} else {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarint(bytes.length + 1);
+			ensure(bytes.length);
+			System.arraycopy(bytes, 0, buffer, size, bytes.length);
+			size += bytes.length;
+		}
+	}
+	
+	/**
+	 * Writes a string through the table: 0 for null, 1 followed by the string in full the first time 
+	 * (see {@link #writeString(String)}), its position in the table plus 2 afterwards.
+	 * 
+	 * @param value The string (may be null)
+	 */
+	public void writeSharedString(String value) {
+		if (value == null) {
+			writeVarint(0);
+			return;
+		}
+		
+		Integer index = strings.get(value);
+		if (index != null) {
+			writeVarint(index + 2);
+			return;
+		}
+		
+		writeVarint(1);
+		writeString(value);
+		if (strings.size() < maxStrings) strings.put(value, strings.size());
+	}
+	
+	//endregion
+	
+	//region Buffer
+	
+	/**
+	 * Gets the number of bytes written.
+	 * 
+	 * @return The size in bytes
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Discards the bytes written, keeping the string table.
+	 */
+	public void reset() {
+		size = 0;
+	}
+	
+	/**
+	 * Copies the bytes written to a stream.
+	 * 
+	 * @param out The stream
+	 * @throws IOException Throws if the stream cannot be written
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(buffer, 0, size);
+	}
+	
+	/**
+	 * Copies the bytes written to a new array.
+	 * 
+	 * @return The bytes
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, size);
+	}
+	
+	/**
+	 * Grows the buffer to hold the given number of bytes more.
+	 * 
+	 * @param bytes The number of bytes to write
+	 */
+	private void ensure(int bytes) {
+		if (size + bytes > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+		}
+	}
+	
+	//endregion
+	
+}
@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mk.imdb.entity.IMDbMovie;
+
+/**
+ * Reads the movies written by {@link IMDbMovieWriter}, one record at a time.
+ * <p>
+ * The movies read have no origin JSON object, and are added to the title index if enabled 
+ * (see {@link IMDbMovie#setTitleIndex(mk.imdb.index.IMDbTitleIndex)}). A stream that ends without its 
+ * end mark (e.g. written by a process that died) is read up to its last complete record.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbMovieReader implements Closeable {
+
+	//region Fields
+	
+	/**
+	 * The underlying stream.
+	 */
+	private final InputStream in;
+	
+	/**
+	 * The version of the stream.
+	 */
+	private final int version;
+	
+	/**
+	 * The record decoder, with the string table of the stream.
+	 */
+	private final IMDbDataInput input = new IMDbDataInput(ByteBuffer.allocate(0));
+	
+	/**
+	 * The bytes of the current record.
+	 */
+	private byte[] record = new byte[1024];
+	
+	/**
+	 * Whether the end of the stream has been reached.
+	 */
+	private boolean finished = false;
+	
+	//endregion
+	
+	/**
+	 * Creates a new reader and reads the stream header.
+	 * 
+	 * @param in The underlying stream
+	 * @throws IOException Throws if the stream cannot be read, is not a movie stream or has a newer version
+	 */
+	public IMDbMovieReader(InputStream in) throws IOException {
+		this.in = in;
+		
+		byte[] header = new byte[IMDbMovieWriter.MAGIC.length + 1];
+		if (readFully(header, header.length) < header.length
+				|| !Arrays.equals(Arrays.copyOf(header, IMDbMovieWriter.MAGIC.length), IMDbMovieWriter.MAGIC)) {
+			throw new IOException("Not a movie stream");
+		}
+		
+		version = header[header.length - 1] & 0xFF;
+		if (version < 1 || version > IMDbMovieWriter.VERSION) throw new IOException("Unsupported movie stream version: " + version);
+	}
+	
+	/**
+	 * Gets the format version of the stream.
+	 * 
+	 * @return The version
+	 */
+	public int getVersion() {
+		return version;
+	}
+	
+	/**
+	 * Reads the next movie.
+	 * 
+	 * @return The movie, or null at the end of the stream (or at its last complete record, if truncated)
+	 * @throws IOException Throws if the stream cannot be read or a record is malformed
+	 */
+	public IMDbMovie read() throws IOException {
+		if (finished) return null;
+		
+		int length = 0;
+		for (int shift = 0; ; shift += 7) {
+			int b = in.read();
+			if (b < 0) {
+				// The end of the stream, possibly in the middle of a record length.
+				finished = true;
+				return null;
+			}
+			if (shift == 28 && b > 0x0F) throw new IOException("Malformed record length");
+			
+			length |= (b & 0x7F) << shift;
+			if (b < 0x80) break;
+		}
+		
+		if (length == 0) {
+			finished = true;
+			return null;
+		}
+		
+		if (record.length < length) record = new byte[Math.max(length, record.length * 2)];
+		if (readFully(record, length) < length) {
+			finished = true;
+			return null;
+		}
+		
+		input.setBuffer(ByteBuffer.wrap(record, 0, length));
+		IMDbMovie movie = IMDbMovie.readFrom(input);
+		if (input.remaining() > 0) throw new IOException("Malformed record: " + input.remaining() + " bytes left");
+		return movie;
+	}
+	
+	/**
+	 * Reads all the remaining movies.
+	 * 
+	 * @return The movies
+	 * @throws IOException Throws if the stream cannot be read or a record is malformed
+	 */
+	public List<IMDbMovie> readAll() throws IOException {
+		List<IMDbMovie> movies = new ArrayList<IMDbMovie>();
+		for (IMDbMovie movie = read(); movie != null; movie = read()) {
+			movies.add(movie);
+		}
+		return movies;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+	
+	/**
+	 * Reads bytes until the given number or the end of the stream.
+	 * 
+	 * @param bytes The destination
+	 * @param length The number of bytes
+	 * @return The number of bytes read
+	 * @throws IOException Throws if the stream cannot be read
+	 */
+	private int readFully(byte[] bytes, int length) throws IOException {
+		int total = 0;
+		while (total < length) {
+			int n = in.read(bytes, total, length - total);
+			if (n < 0) break;
+			total += n;
+		}
+		return total;
+	}
+	
+	/**
+	 * Decodes a self-contained record made by {@link IMDbMovieWriter#encode(IMDbMovie)}.
+	 * 
+	 * @param record The record, from its position to its limit (the position is moved past the record)
+	 * @return The movie
+	 * @throws IOException Throws if the record is malformed
+	 */
+	public static IMDbMovie decode(ByteBuffer record) throws IOException {
+		return IMDbMovie.readFrom(new IMDbDataInput(record));
+	}
+	
+}
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import mk.imdb.entity.IMDbMovie;
+
+/**
+ * Writes movies to a stream in the compact binary format.
+ * <p>
+ * The stream starts with the magic bytes "MKMV" and the format version, followed by the records, each one 
+ * preceded by its length as a variable length integer, and ends with a zero length. The shared strings 
+ * (see {@link IMDbDataOutput}) are coded once per stream, so the records must be read in order with 
+ * {@link IMDbMovieReader}. Single self-contained records, to be read in any order, are made by {@link #encode(IMDbMovie)}.
+ * <p>
+ * The record of a movie is described by {@link IMDbMovie#writeTo(IMDbDataOutput)}. Each record is written 
+ * with two calls to the underlying stream, which should be buffered.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbMovieWriter implements Closeable, Flushable {
+
+	//region Fields
+	
+	/**
+	 * The magic bytes at the beginning of the streams.
+	 */
+	static final byte[] MAGIC = { 'M', 'K', 'M', 'V' };
+	
+	/**
+	 * The version of the format written.
+	 */
+	public static final int VERSION = 1;
+	
+	/**
+	 * The underlying stream.
+	 */
+	private final OutputStream out;
+	
+	/**
+	 * The record buffer, with the string table of the stream.
+	 */
+	private final IMDbDataOutput record = new IMDbDataOutput();
+	
+	/**
+	 * The length of the current record.
+	 */
+	private final byte[] length = new byte[5];
+	
+	/**
+	 * The number of movies written.
+	 */
+	private long count = 0;
+	
+	/**
+	 * Whether the end of the stream has been written.
+	 */
+	private boolean closed = false;
+	
+	//endregion
+	
+	/**
+	 * Creates a new writer and writes the stream header.
+	 * 
+	 * @param out The underlying stream
+	 * @throws IOException Throws if the stream cannot be written
+	 */
+	public IMDbMovieWriter(OutputStream out) throws IOException {
+		this.out = out;
+		out.write(MAGIC);
+		out.write(VERSION);
+	}
+	
+	/**
+	 * Writes a movie. A lazily decoded movie is decoded first.
+	 * 
+	 * @param movie The movie
+	 * @throws IOException Throws if the stream cannot be written
+	 */
+	public void write(IMDbMovie movie) throws IOException {
+		if (closed) throw new IOException("The writer is closed");
+		
+		record.reset();
+		movie.writeTo(record);
+		
+		int value = record.size();
+		int n = 0;
+		while ((value & ~0x7F) != 0) {
+			length[n++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		length[n++] = (byte) value;
+		
+		out.write(length, 0, n);
+		record.writeTo(out);
+		count++;
+	}
+	
+	/**
+	 * Writes several movies.
+	 * 
+	 * @param movies The movies
+	 * @throws IOException Throws if the stream cannot be written
+	 */
+	public void writeAll(Iterable<? extends IMDbMovie> movies) throws IOException {
+		for (IMDbMovie movie : movies) {
+			write(movie);
+		}
+	}
+	
+	/**
+	 * Gets the number of movies written.
+	 * 
+	 * @return The number of movies
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+	
+	/**
+	 * Writes the end of the stream and closes the underlying stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) return;
+		
+		closed = true;
+		try {
+			out.write(0);
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Encodes a movie as a self-contained record, with its own string table, to be decoded by 
+	 * {@link IMDbMovieReader#decode(java.nio.ByteBuffer)}.
+	 * 
+	 * @param movie The movie
+	 * @return The record
+	 */
+	public static byte[] encode(IMDbMovie movie) {
+		IMDbDataOutput out = new IMDbDataOutput();
+		movie.writeTo(out);
+		return out.toByteArray();
+	}
+	
+}
@@ -0,0 +1,533 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+
+import mk.imdb.cache.IMDbCache;
+import mk.imdb.cache.IMDbCacheEntry;
+import mk.imdb.entity.IMDbMovie;
+import mk.imdb.utils.Log;
+
+/**
+ * Snapshot of the resident state of the library (the cached responses and the known movies) in a 
+ * single file, to warm up a new process in the time it takes to map the file.
+ * <p>
+ * The file is memory-mapped when opened: only the header, the cache entry headers and the movie index are 
+ * read. The cached bodies are read-only views of the mapping, handed to the cache without copying, and each 
+ * movie is decoded from its binary record (see {@link IMDbMovieWriter#encode(IMDbMovie)}) the first time it is 
+ * requested, then kept. The snapshot is written to a temporary file that atomically replaces the previous one, 
+ * so a process can map a snapshot while another one is written, and a crash never leaves a torn file.
+ * <p>
+ * File layout: a 32 bytes header <code>[magic:int][version:int][created at:long][entries:int][movies:int]
+ * [reserved:long]</code>, the cache entries <code>[key][stored at:long][expires at:long][etag][last modified]
+ * [body length:int][body]</code> (each string is <code>[length:int][UTF-8 bytes]</code>, -1 for null), the movie 
+ * index sorted by IMDb id <code>[id offset:int][record offset:int][record length:int][record crc32:int]</code>, 
+ * the ids <code>[length:int][UTF-8 bytes]</code> and the movie records. A snapshot is limited to 2 GB.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class IMDbSnapshot {
+
+	//region Constants
+	
+	private static final int MAGIC = 0x4D4B534E; // "MKSN"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	private static final int INDEX_ENTRY_SIZE = 16;
+	
+	//endregion
+	
+	//region Fields
+	
+	/**
+	 * The snapshot file.
+	 */
+	private final Path path;
+	
+	/**
+	 * The mapped file.
+	 */
+	private final ByteBuffer buffer;
+	
+	/**
+	 * When the snapshot was written (milliseconds since the epoch).
+	 */
+	private final long createdAt;
+	
+	/**
+	 * The cache entries, by key.
+	 */
+	private final Map<String, IMDbCacheEntry> entries;
+	
+	/**
+	 * The number of movies.
+	 */
+	private final int movieCount;
+	
+	/**
+	 * The position of the movie index.
+	 */
+	private final int indexPos;
+	
+	/**
+	 * The movies decoded so far, by index position.
+	 */
+	private final AtomicReferenceArray<IMDbMovie> movies;
+	
+	//endregion
+	
+	/**
+	 * Creates a snapshot over a mapped file, reading its header and its cache entries.
+	 * 
+	 * @param path The snapshot file
+	 * @param buffer The mapped file
+	 * @throws IOException Throws if the file is not a snapshot or it is corrupt
+	 */
+	private IMDbSnapshot(Path path, ByteBuffer buffer) throws IOException {
+		this.path = path;
+		this.buffer = buffer;
+		
+		if (buffer.getInt(0) != MAGIC) throw new IOException("Not a snapshot: " + path);
+		int version = buffer.getInt(4);
+		if (version != VERSION) throw new IOException("Unsupported snapshot version " + version + ": " + path);
+		
+		try {
+			createdAt = buffer.getLong(8);
+			int entryCount = buffer.getInt(16);
+			movieCount = buffer.getInt(20);
+			if (entryCount < 0 || movieCount < 0) throw new IOException("Negative counts");
+			
+			ByteBuffer in = buffer.duplicate();
+			in.position(HEADER_SIZE);
+			
+			Map<String, IMDbCacheEntry> map = new LinkedHashMap<String, IMDbCacheEntry>();
+			for (int i = 0; i < entryCount; i++) {
+				String key = readString(in);
+				long storedAt = in.getLong();
+				long expiresAt = in.getLong();
+				String etag = readString(in);
+				String lastModified = readString(in);
+				
+				ByteBuffer body = slice(in, in.getInt());
+				if (key == null || body == null) throw new IOException("Malformed cache entry " + i);
+				map.put(key, new IMDbCacheEntry(body, storedAt, expiresAt, etag, lastModified));
+			}
+			entries = Collections.unmodifiableMap(map);
+			
+			indexPos = in.position();
+			if ((long) movieCount * INDEX_ENTRY_SIZE > in.remaining()) throw new IOException("Truncated movie index");
+			movies = new AtomicReferenceArray<IMDbMovie>(movieCount);
+			
+		} catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new IOException("Corrupt snapshot: " + path, e);
+		}
+	}
+	
+	//region Reading
+	
+	/**
+	 * Maps a snapshot file.
+	 * 
+	 * @param path The snapshot file
+	 * @return The snapshot
+	 * @throws IOException Throws if the file cannot be read, it is not a snapshot or it is corrupt
+	 */
+	public static IMDbSnapshot open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_SIZE) throw new IOException("Not a snapshot: " + path);
+			if (size > Integer.MAX_VALUE) throw new IOException("Snapshot larger than 2 GB: " + path);
+			
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			return new IMDbSnapshot(path, mapped);
+		}
+	}
+	
+	/**
+	 * Gets the snapshot file.
+	 * 
+	 * @return The file
+	 */
+	public Path getPath() {
+		return path;
+	}
+	
+	/**
+	 * Gets when the snapshot was written.
+	 * 
+	 * @return The milliseconds since the epoch
+	 */
+	public long getCreatedAt() {
+		return createdAt;
+	}
+	
+	/**
+	 * Gets the cached responses, whose bodies are views of the mapped file.
+	 * 
+	 * @return The cache entries by key (unmodifiable), in the order of the file
+	 */
+	public Map<String, IMDbCacheEntry> getEntries() {
+		return entries;
+	}
+	
+	/**
+	 * Stores the cached responses in the given cache, replacing its entries with the same keys. 
+	 * The expired ones are restored too, to be revalidated or served stale.
+	 * 
+	 * @param cache The cache
+	 * @return The number of entries restored
+	 */
+	public int restore(IMDbCache cache) {
+		for (Map.Entry<String, IMDbCacheEntry> entry : entries.entrySet()) {
+			cache.put(entry.getKey(), entry.getValue());
+		}
+		return entries.size();
+	}
+	
+	/**
+	 * Gets the number of movies.
+	 * 
+	 * @return The number of movies
+	 */
+	public int getMovieCount() {
+		return movieCount;
+	}
+	
+	/**
+	 * Gets the movie with the given IMDb id, decoding it if it is the first request.
+	 * 
+	 * @param id The IMDb id
+	 * @return The movie, or null if it is not in the snapshot (or its record is corrupt)
+	 */
+	public IMDbMovie getMovie(String id) {
+		int low = 0, high = movieCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			String other = id(mid);
+			if (other == null) return null;
+			
+			int cmp = other.compareTo(id);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return getMovie(mid);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Gets the movie at the given position of the index (sorted by IMDb id), decoding it if it is the first request.
+	 * Concurrent first requests may decode the same record more than once; one of the movies is kept.
+	 * 
+	 * @param index The position
+	 * @return The movie, or null if its record is corrupt
+	 */
+	public IMDbMovie getMovie(int index) {
+		IMDbMovie movie = movies.get(index);
+		if (movie != null) return movie;
+		
+		try {
+			int pos = indexPos + index * INDEX_ENTRY_SIZE;
+			int offset = buffer.getInt(pos + 4);
+			int length = buffer.getInt(pos + 8);
+			
+			ByteBuffer in = buffer.duplicate();
+			in.position(offset);
+			ByteBuffer record = slice(in, length);
+			if (record == null || crc(record) != buffer.getInt(pos + 12)) throw new IOException("Corrupt movie record " + index);
+			
+			movie = IMDbMovieReader.decode(record);
+			return movies.compareAndSet(index, null, movie) ? movie : movies.get(index);
+			
+		} catch (IOException | RuntimeException e) {
+			Log.print(new IOException("Snapshot " + path + ": cannot decode movie " + index, e));
+			return null;
+		}
+	}
+	
+	/**
+	 * Gets the movies, as a view that decodes each one on first access (see {@link #getMovie(int)}).
+	 * 
+	 * @return The movies sorted by IMDb id; the corrupt records are null
+	 */
+	public List<IMDbMovie> getMovies() {
+		return new AbstractList<IMDbMovie>() {
+			@Override
+			public IMDbMovie get(int index) {
+				if (index < 0 || index >= movieCount) throw new IndexOutOfBoundsException("Index: " + index);
+				return getMovie(index);
+			}
+			@Override
+			public int size() {
+				return movieCount;
+			}
+		};
+	}
+	
+	/**
+	 * Decodes all the movies not decoded yet. The movies are added to the title index, if enabled 
+	 * (see {@link IMDbMovie#setTitleIndex(mk.imdb.index.IMDbTitleIndex)}), as they are decoded.
+	 * 
+	 * @return The number of movies decoded
+	 */
+	public int preload() {
+		int decoded = 0;
+		for (int i = 0; i < movieCount; i++) {
+			if (movies.get(i) == null && getMovie(i) != null) decoded++;
+		}
+		return decoded;
+	}
+	
+	/**
+	 * Reads the IMDb id at the given position of the index.
+	 * 
+	 * @param index The position
+	 * @return The id, or null if the index is corrupt
+	 */
+	private String id(int index) {
+		try {
+			ByteBuffer in = buffer.duplicate();
+			in.position(buffer.getInt(indexPos + index * INDEX_ENTRY_SIZE));
+			return readString(in);
+		} catch (IOException | RuntimeException e) {
+			Log.print(new IOException("Snapshot " + path + ": corrupt index entry " + index, e));
+			return null;
+		}
+	}
+	
+	//endregion
+	
+	//region Writing
+	
+	/**
+	 * Writes a snapshot, replacing the given file atomically. The movies without an IMDb id are skipped; 
+	 * the duplicate ids are written once. A lazily decoded movie is decoded.
+	 * 
+	 * @param path The snapshot file
+	 * @param cache The cache whose entries are written (may be null), see {@link IMDbCache#forEach(java.util.function.BiConsumer)}
+	 * @param movies The movies
+	 * @return The size of the snapshot in bytes
+	 * @throws IOException Throws if the file cannot be written or the snapshot would be larger than 2 GB
+	 */
+	public static long write(Path path, IMDbCache cache, Collection<IMDbMovie> movies) throws IOException {
+		Map<String, IMDbCacheEntry> entries = new LinkedHashMap<String, IMDbCacheEntry>();
+		if (cache != null) cache.forEach(entries::put);
+		
+		Map<String, IMDbMovie> byId = new TreeMap<String, IMDbMovie>();
+		for (IMDbMovie movie : movies) {
+			if (movie != null && movie.getId() != null) byId.put(movie.getId(), movie);
+		}
+		
+		List<byte[]> ids = new ArrayList<byte[]>(byId.size());
+		List<byte[]> records = new ArrayList<byte[]>(byId.size());
+		for (IMDbMovie movie : byId.values()) {
+			ids.add(movie.getId().getBytes(StandardCharsets.UTF_8));
+			records.add(IMDbMovieWriter.encode(movie));
+		}
+		
+		Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+		long size;
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+			
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(System.currentTimeMillis());
+			out.writeInt(entries.size());
+			out.writeInt(records.size());
+			out.writeLong(0);
+			
+			long pos = HEADER_SIZE;
+			for (Map.Entry<String, IMDbCacheEntry> e : entries.entrySet()) {
+				IMDbCacheEntry entry = e.getValue();
+				pos += writeString(out, e.getKey());
+				out.writeLong(entry.getStoredAt());
+				out.writeLong(entry.getExpiresAt());
+				pos += 16;
+				pos += writeString(out, entry.getETag());
+				pos += writeString(out, entry.getLastModified());
+				
+				ByteBuffer body = entry.getBody();
+				out.writeInt(body.remaining());
+				pos += 4 + body.remaining();
+				writeBuffer(out, body);
+			}
+			
+			long idPos = pos + (long) records.size() * INDEX_ENTRY_SIZE;
+			long recordPos = idPos;
+			for (byte[] id : ids) {
+				recordPos += 4 + id.length;
+			}
+			
+			CRC32 crc = new CRC32();
+			for (int i = 0; i < records.size(); i++) {
+				byte[] record = records.get(i);
+				if (recordPos + record.length > Integer.MAX_VALUE) throw new IOException("Snapshot larger than 2 GB: " + path);
+				
+				crc.reset();
+				crc.update(record);
+				out.writeInt((int) idPos);
+				out.writeInt((int) recordPos);
+				out.writeInt(record.length);
+				out.writeInt((int) crc.getValue());
+				
+				idPos += 4 + ids.get(i).length;
+				recordPos += record.length;
+			}
+			
+			for (byte[] id : ids) {
+				out.writeInt(id.length);
+				out.write(id);
+			}
+			for (byte[] record : records) {
+				out.write(record);
+			}
+			
+			out.flush();
+			channel.force(true);
+			size = recordPos;
+		}
+		
+		try {
+			Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+		}
+		return size;
+	}
+	
+	//endregion
+	
+	//region Utilities
+	
+	/**
+	 * Reads a string, moving the position of the buffer past it.
+	 * 
+	 * @param in The buffer
+	 * @return The string (may be null)
+	 * @throws IOException Throws if the length is malformed
+	 */
+	private static String readString(ByteBuffer in) throws IOException {
+		int length = in.getInt();
+		if (length == -1) return null;
+		
+		ByteBuffer bytes = slice(in, length);
+		if (bytes == null) throw new IOException("Malformed string length: " + length);
+		return StandardCharsets.UTF_8.decode(bytes).toString();
+	}
+	
+	/**
+	 * Gets a view of the given number of bytes, moving the position of the buffer past them.
+	 * 
+	 * @param in The buffer
+	 * @param length The number of bytes
+	 * @return The view, or null if the length is negative or the bytes are over
+	 */
+	private static ByteBuffer slice(ByteBuffer in, int length) {
+		if (length < 0 || length > in.remaining()) return null;
+		
+		ByteBuffer view = in.slice();
+		view.limit(length);
+		in.position(in.position() + length);
+		return view;
+	}
+	
+	/**
+	 * Computes the checksum of the bytes of a buffer, without moving its position.
+	 */
+	private static int crc(ByteBuffer bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes.duplicate());
+		return (int) crc.getValue();
+	}
+	
+	/**
+	 * Writes a string.
+	 * 
+	 * @param out The stream
+	 * @param value The string (may be null)
+	 * @return The number of bytes written
+	 * @throws IOException Throws if the stream cannot be written
+	 */
+	private static int writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return 4;
+		}
+		
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		return 4 + bytes.length;
+	}
+	
+	/**
+	 * Writes the bytes of a buffer.
+	 * 
+	 * @param out The stream
+	 * @param bytes The buffer
+	 * @throws IOException Throws if the stream cannot be written
+	 */
+	private static void writeBuffer(DataOutputStream out, ByteBuffer bytes) throws IOException {
+		if (bytes.hasArray()) {
+			out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+			return;
+		}
+		
+		byte[] chunk = new byte[Math.min(bytes.remaining(), 8192)];
+		while (bytes.hasRemaining()) {
+			int n = Math.min(chunk.length, bytes.remaining());
+			bytes.get(chunk, 0, n);
+			out.write(chunk, 0, n);
+		}
+	}
+	
+	//endregion
+	
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of durations, with logarithmic buckets: four buckets per power of two 
+ * microseconds, hence a relative error below 25%. The recording is lock-free and uses striped 
+ * counters, so that concurrent threads do not contend on the same cache line.
+ * 
+ * @author Mirko Polato
+ *
+ */
+final class IMDbHistogram {
+
+	/**
+	 * Number of buckets: enough for 2^40 microseconds (about 12 days).
+	 */
+	static final int BUCKETS = 160;
+	
+	private final LongAdder[] counts = new LongAdder[BUCKETS];
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+	
+	IMDbHistogram() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = new LongAdder();
+		}
+	}
+	
+	/**
+	 * Records a duration.
+	 * 
+	 * @param nanos The duration in nanoseconds
+	 */
+	void record(long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		counts[bucket(micros)].increment();
+		sum.add(micros);
+		max.accumulate(micros);
+	}
+	
+	/**
+	 * Resets the histogram. The concurrent recordings may be partially lost.
+	 */
+	void reset() {
+		for (LongAdder count : counts) {
+			count.reset();
+		}
+		sum.reset();
+		max.reset();
+	}
+	
+	/**
+	 * Takes a snapshot of the histogram. The snapshot is not atomic with respect to the concurrent recordings.
+	 * 
+	 * @return The snapshot
+	 */
+	IMDbHistogramSnapshot snapshot() {
+		long[] values = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			values[i] = counts[i].sum();
+		}
+		return new IMDbHistogramSnapshot(values, sum.sum(), max.get());
+	}
+	
+	/**
+	 * Gets the bucket of the given duration.
+	 * 
+	 * @param micros The duration in microseconds
+	 * @return The bucket index
+	 */
+	static int bucket(long micros) {
+		if (micros < 4) return (int) micros;
+		
+		int exp = 63 - Long.numberOfLeadingZeros(micros);
+		int sub = (int) (micros >>> (exp - 2)) & 3;
+		return Math.min(BUCKETS - 1, (exp - 1) * 4 + sub);
+	}
+	
+	/**
+	 * Gets the lowest duration of the given bucket.
+	 * 
+	 * @param bucket The bucket index
+	 * @return The lower bound in microseconds
+	 */
+	static long lowerBound(int bucket) {
+		if (bucket < 4) return bucket;
+		return (long) (4 + (bucket & 3)) << (bucket / 4 - 1);
+	}
+	
+	/**
+	 * Gets the highest duration of the given bucket (exclusive).
+	 * 
+	 * @param bucket The bucket index
+	 * @return The upper bound in microseconds
+	 */
+	static long upperBound(int bucket) {
+		if (bucket < 4) return bucket + 1;
+		return lowerBound(bucket) + (1L << (bucket / 4 - 1));
+	}
+	
+}
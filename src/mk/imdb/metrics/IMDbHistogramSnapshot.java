@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.metrics;
+
+/**
+ * Immutable snapshot of a duration histogram.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class IMDbHistogramSnapshot {
+
+	private final long[] counts;
+	private final long count;
+	private final long sum;
+	private final long max;
+	
+	/**
+	 * Creates a new snapshot.
+	 * 
+	 * @param counts The bucket counts
+	 * @param sum The sum of the durations in microseconds
+	 * @param max The maximum duration in microseconds
+	 */
+	IMDbHistogramSnapshot(long[] counts, long sum, long max) {
+		long total = 0;
+		for (long c : counts) {
+			total += c;
+		}
+		
+		this.counts = counts;
+		this.count = total;
+		this.sum = sum;
+		this.max = max;
+	}
+	
+	//region Getters
+	
+	/**
+	 * Gets the number of recorded durations.
+	 * 
+	 * @return The count
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * Gets the mean duration.
+	 * 
+	 * @return The mean in milliseconds (0 if empty)
+	 */
+	public double getMeanMillis() {
+		return (count > 0) ? sum / 1000.0 / count : 0;
+	}
+	
+	/**
+	 * Gets the maximum duration.
+	 * 
+	 * @return The maximum in milliseconds
+	 */
+	public double getMaxMillis() {
+		return max / 1000.0;
+	}
+	
+	/**
+	 * Gets the estimated duration below which falls the given fraction of the recorded ones.
+	 * The estimate is the middle of the bucket that contains the percentile.
+	 * 
+	 * @param quantile The fraction, between 0 and 1 (e.g. 0.99)
+	 * @return The percentile in milliseconds (0 if empty)
+	 */
+	public double getPercentileMillis(double quantile) {
+		if (count == 0) return 0;
+		
+		long rank = (long) Math.ceil(Math.max(0, Math.min(1, quantile)) * count);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank && counts[i] > 0) {
+				long mid = (IMDbHistogram.lowerBound(i) + IMDbHistogram.upperBound(i)) / 2;
+				return Math.min(mid, max) / 1000.0;
+			}
+		}
+		return getMaxMillis();
+	}
+	
+	//endregion
+	
+	@Override
+	public String toString() {
+		return String.format("count=%d, mean=%.3fms, p50=%.3fms, p99=%.3fms, max=%.3fms", 
+				count, getMeanMillis(), getPercentileMillis(0.5), getPercentileMillis(0.99), getMaxMillis());
+	}
+	
+}
@@ -0,0 +1,485 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import mk.imdb.response.IMDbStatus;
+import mk.imdb.utils.Log;
+
+/**
+ * Registry of the library metrics: latency histograms, status counters and retries per {@link IMDbOperation}, 
+ * rate limiter waits, circuit breaker rejections, bytes received (and compressed transfer sizes), decode time, 
+ * requests in flight, calls served by the cache and cache entries revalidated by the server.
+ * <p>
+ * The recording methods are called by the library. They are lock-free, based on striped counters, 
+ * and they do nothing (not even reading the clock) when the metrics are disabled. The metrics are 
+ * read through {@link #snapshot()} or through JMX, after {@link #registerMBean()}.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class IMDbMetrics {
+
+	private IMDbMetrics() {}
+	
+	//region Fields
+	
+	/**
+	 * The JMX object name of the metrics.
+	 */
+	public static final String OBJECT_NAME = "mk.imdb:type=IMDbMetrics";
+	
+	/**
+	 * Start time of a measure that is not recorded.
+	 */
+	public static final long NOT_STARTED = Long.MIN_VALUE;
+	
+	/**
+	 * Whether the metrics are recorded.
+	 */
+	private static volatile boolean enabled = true;
+	
+	private static final EnumMap<IMDbOperation, IMDbHistogram> latencies = new EnumMap<IMDbOperation, IMDbHistogram>(IMDbOperation.class);
+	private static final EnumMap<IMDbOperation, LongAdder[]> statuses = new EnumMap<IMDbOperation, LongAdder[]>(IMDbOperation.class);
+	private static final IMDbHistogram decode = new IMDbHistogram();
+	private static final LongAdder bytes = new LongAdder();
+	private static final LongAdder compressedBytes = new LongAdder();
+	private static final LongAdder decompressedBytes = new LongAdder();
+	private static final LongAdder inFlight = new LongAdder();
+	private static final LongAdder cachedCalls = new LongAdder();
+	private static final LongAdder notModified = new LongAdder();
+	private static final EnumMap<IMDbOperation, LongAdder> retries = new EnumMap<IMDbOperation, LongAdder>(IMDbOperation.class);
+	private static final LongAdder rejectedRetries = new LongAdder();
+	private static final IMDbHistogram permitWait = new IMDbHistogram();
+	private static final LongAdder rateLimited = new LongAdder();
+	private static final LongAdder circuitRejected = new LongAdder();
+	
+	static {
+		for (IMDbOperation operation : IMDbOperation.values()) {
+			latencies.put(operation, new IMDbHistogram());
+			retries.put(operation, new LongAdder());
+			
+			LongAdder[] counters = new LongAdder[IMDbStatus.values().length];
+			for (int i = 0; i < counters.length; i++) {
+				counters[i] = new LongAdder();
+			}
+			statuses.put(operation, counters);
+		}
+	}
+	
+	//endregion
+	
+	//region Configuration
+	
+	/**
+	 * Gets whether the metrics are recorded.
+	 * 
+	 * @return Whether the metrics are enabled
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Sets whether the metrics are recorded (the default).
+	 * 
+	 * @param enable Whether the metrics are enabled
+	 */
+	public static void setEnabled(boolean enable) {
+		enabled = enable;
+	}
+	
+	/**
+	 * Registers the metrics in the platform MBean server, as {@link #OBJECT_NAME}. 
+	 * Nothing is done if they are already registered.
+	 * 
+	 * @return Whether the metrics are registered
+	 */
+	public static synchronized boolean registerMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) server.registerMBean(new MetricsBean(), name);
+			return true;
+		} catch (JMException e) {
+			Log.print(e);
+			return false;
+		}
+	}
+	
+	/**
+	 * Unregisters the metrics from the platform MBean server.
+	 */
+	public static synchronized void unregisterMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) server.unregisterMBean(name);
+		} catch (JMException e) {
+			Log.print(e);
+		}
+	}
+	
+	//endregion
+	
+	//region Recording
+	
+	/**
+	 * Starts the measure of a request and counts it as in flight.
+	 * 
+	 * @return The start time, to give to {@link #finishRequest(IMDbOperation, long, IMDbStatus, long)}
+	 */
+	public static long startRequest() {
+		if (!enabled) return NOT_STARTED;
+		
+		inFlight.increment();
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Ends the measure of a request.
+	 * 
+	 * @param operation The operation
+	 * @param start The start time returned by {@link #startRequest()}
+	 * @param status The status of the request
+	 * @param received The body bytes received (0 if unknown)
+	 */
+	public static void finishRequest(IMDbOperation operation, long start, IMDbStatus status, long received) {
+		if (start == NOT_STARTED) return;
+		
+		inFlight.decrement();
+		latencies.get(operation).record(System.nanoTime() - start);
+		statuses.get(operation)[status.ordinal()].increment();
+		if (received > 0) bytes.add(received);
+	}
+	
+	/**
+	 * Starts the measure of an operation that is not a single request (e.g. a full search) or of a decode.
+	 * 
+	 * @return The start time
+	 */
+	public static long start() {
+		return enabled ? System.nanoTime() : NOT_STARTED;
+	}
+	
+	/**
+	 * Ends the measure of an operation that is not a single request.
+	 * 
+	 * @param operation The operation
+	 * @param start The start time returned by {@link #start()}
+	 * @param status The status of the operation
+	 */
+	public static void finishOperation(IMDbOperation operation, long start, IMDbStatus status) {
+		if (start == NOT_STARTED) return;
+		
+		latencies.get(operation).record(System.nanoTime() - start);
+		statuses.get(operation)[status.ordinal()].increment();
+	}
+	
+	/**
+	 * Ends the measure of a decode.
+	 * 
+	 * @param start The start time returned by {@link #start()}
+	 */
+	public static void finishDecode(long start) {
+		if (start != NOT_STARTED) decode.record(System.nanoTime() - start);
+	}
+	
+	/**
+	 * Counts a call served by the cache.
+	 */
+	public static void cachedCall() {
+		if (enabled) cachedCalls.increment();
+	}
+	
+	/**
+	 * Counts an expired cache entry revalidated by the server (304 Not Modified).
+	 */
+	public static void notModified() {
+		if (enabled) notModified.increment();
+	}
+	
+	/**
+	 * Counts a retry of a failed request.
+	 * 
+	 * @param operation The operation
+	 */
+	public static void retry(IMDbOperation operation) {
+		if (enabled) retries.get(operation).increment();
+	}
+	
+	/**
+	 * Records the time waited for a permit of the rate limiter.
+	 * 
+	 * @param nanos The time waited in nanoseconds
+	 */
+	public static void permitWait(long nanos) {
+		if (enabled) permitWait.record(nanos);
+	}
+	
+	/**
+	 * Counts a request rejected by the rate limiter.
+	 */
+	public static void rateLimited() {
+		if (enabled) rateLimited.increment();
+	}
+	
+	/**
+	 * Records the sizes of a compressed body.
+	 * 
+	 * @param compressed The bytes received on the wire
+	 * @param decompressed The bytes they decompressed to
+	 */
+	public static void compressed(long compressed, long decompressed) {
+		if (!enabled) return;
+		
+		compressedBytes.add(compressed);
+		decompressedBytes.add(decompressed);
+	}
+	
+	/**
+	 * Counts a request rejected by the open circuit breaker.
+	 */
+	public static void circuitRejected() {
+		if (enabled) circuitRejected.increment();
+	}
+	
+	/**
+	 * Counts a retry denied by the exhausted retry budget.
+	 */
+	public static void retryRejected() {
+		if (enabled) rejectedRetries.increment();
+	}
+	
+	//endregion
+	
+	//region Reading
+	
+	/**
+	 * Takes a snapshot of the metrics. The snapshot is not atomic with respect to the concurrent recordings.
+	 * 
+	 * @return The snapshot
+	 */
+	public static IMDbMetricsSnapshot snapshot() {
+		EnumMap<IMDbOperation, IMDbHistogramSnapshot> lat = new EnumMap<IMDbOperation, IMDbHistogramSnapshot>(IMDbOperation.class);
+		EnumMap<IMDbOperation, long[]> stat = new EnumMap<IMDbOperation, long[]>(IMDbOperation.class);
+		EnumMap<IMDbOperation, Long> retry = new EnumMap<IMDbOperation, Long>(IMDbOperation.class);
+		
+		for (IMDbOperation operation : IMDbOperation.values()) {
+			lat.put(operation, latencies.get(operation).snapshot());
+			retry.put(operation, retries.get(operation).sum());
+			
+			LongAdder[] counters = statuses.get(operation);
+			long[] values = new long[counters.length];
+			for (int i = 0; i < counters.length; i++) {
+				values[i] = counters[i].sum();
+			}
+			stat.put(operation, values);
+		}
+		
+		return new IMDbMetricsSnapshot(lat, stat, retry, rejectedRetries.sum(), permitWait.snapshot(), rateLimited.sum(), 
+									   circuitRejected.sum(), decode.snapshot(), bytes.sum(), 
+									   compressedBytes.sum(), decompressedBytes.sum(), inFlight.sum(), cachedCalls.sum(), notModified.sum());
+	}
+	
+	/**
+	 * Resets all the metrics but the requests in flight.
+	 */
+	public static void reset() {
+		for (IMDbOperation operation : IMDbOperation.values()) {
+			latencies.get(operation).reset();
+			retries.get(operation).reset();
+			for (LongAdder counter : statuses.get(operation)) {
+				counter.reset();
+			}
+		}
+		decode.reset();
+		bytes.reset();
+		compressedBytes.reset();
+		decompressedBytes.reset();
+		cachedCalls.reset();
+		notModified.reset();
+		rejectedRetries.reset();
+		permitWait.reset();
+		rateLimited.reset();
+		circuitRejected.reset();
+	}
+	
+	//endregion
+	
+	/**
+	 * The JMX view of the metrics.
+	 */
+	private static final class MetricsBean implements IMDbMetricsMXBean {
+
+		@Override
+		public long getInFlight() {
+			return inFlight.sum();
+		}
+
+		@Override
+		public long getBytesReceived() {
+			return bytes.sum();
+		}
+
+		@Override
+		public long getCachedCalls() {
+			return cachedCalls.sum();
+		}
+		
+		@Override
+		public long getNotModified() {
+			return notModified.sum();
+		}
+
+		@Override
+		public Map<String, Long> getCalls() {
+			IMDbMetricsSnapshot snapshot = snapshot();
+			Map<String, Long> map = new LinkedHashMap<String, Long>();
+			for (IMDbOperation operation : IMDbOperation.values()) {
+				map.put(operation.name(), snapshot.getLatency(operation).getCount());
+			}
+			return map;
+		}
+
+		@Override
+		public Map<String, Long> getRetries() {
+			Map<String, Long> map = new LinkedHashMap<String, Long>();
+			for (IMDbOperation operation : IMDbOperation.values()) {
+				map.put(operation.name(), retries.get(operation).sum());
+			}
+			return map;
+		}
+		
+		@Override
+		public long getRejectedRetries() {
+			return rejectedRetries.sum();
+		}
+
+		@Override
+		public double getMeanPermitWaitMillis() {
+			return permitWait.snapshot().getMeanMillis();
+		}
+		
+		@Override
+		public double getP99PermitWaitMillis() {
+			return permitWait.snapshot().getPercentileMillis(0.99);
+		}
+		
+		@Override
+		public long getRateLimited() {
+			return rateLimited.sum();
+		}
+
+		@Override
+		public long getCompressedBytes() {
+			return compressedBytes.sum();
+		}
+		
+		@Override
+		public long getDecompressedBytes() {
+			return decompressedBytes.sum();
+		}
+		
+		@Override
+		public long getCircuitRejected() {
+			return circuitRejected.sum();
+		}
+		
+		@Override
+		public Map<String, Long> getStatusCounts() {
+			IMDbMetricsSnapshot snapshot = snapshot();
+			Map<String, Long> map = new LinkedHashMap<String, Long>();
+			for (IMDbStatus status : IMDbStatus.values()) {
+				map.put(status.name(), snapshot.getStatusCount(status));
+			}
+			return map;
+		}
+
+		@Override
+		public Map<String, Double> getMeanLatencyMillis() {
+			return latencies(-1);
+		}
+
+		@Override
+		public Map<String, Double> getP50LatencyMillis() {
+			return latencies(0.5);
+		}
+
+		@Override
+		public Map<String, Double> getP99LatencyMillis() {
+			return latencies(0.99);
+		}
+
+		@Override
+		public Map<String, Double> getMaxLatencyMillis() {
+			return latencies(1);
+		}
+		
+		/**
+		 * Gets the given percentile (or the mean, if negative) of the latencies.
+		 */
+		private Map<String, Double> latencies(double quantile) {
+			Map<String, Double> map = new LinkedHashMap<String, Double>();
+			for (IMDbOperation operation : IMDbOperation.values()) {
+				IMDbHistogramSnapshot snapshot = latencies.get(operation).snapshot();
+				if (quantile < 0) {
+					map.put(operation.name(), snapshot.getMeanMillis());
+				} else if (quantile >= 1) {
+					map.put(operation.name(), snapshot.getMaxMillis());
+				} else {
+					map.put(operation.name(), snapshot.getPercentileMillis(quantile));
+				}
+			}
+			return map;
+		}
+
+		@Override
+		public long getDecodes() {
+			return decode.snapshot().getCount();
+		}
+
+		@Override
+		public double getMeanDecodeMillis() {
+			return decode.snapshot().getMeanMillis();
+		}
+
+		@Override
+		public double getP99DecodeMillis() {
+			return decode.snapshot().getPercentileMillis(0.99);
+		}
+
+		@Override
+		public void reset() {
+			IMDbMetrics.reset();
+		}
+	}
+	
+}
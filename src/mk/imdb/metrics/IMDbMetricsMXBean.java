@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of the library metrics, registered by {@link IMDbMetrics#registerMBean()}.
+ * The latencies are keyed by {@link IMDbOperation} name, the status counters by {@link mk.imdb.response.IMDbStatus} name.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public interface IMDbMetricsMXBean {
+
+	/**
+	 * @return The number of requests in flight
+	 */
+	long getInFlight();
+	
+	/**
+	 * @return The number of body bytes received from the server
+	 */
+	long getBytesReceived();
+	
+	/**
+	 * @return The number of calls served by the cache
+	 */
+	long getCachedCalls();
+	
+	/**
+	 * @return The number of expired cache entries revalidated by the server (304 Not Modified)
+	 */
+	long getNotModified();
+	
+	/**
+	 * @return The number of calls per operation
+	 */
+	Map<String, Long> getCalls();
+	
+	/**
+	 * @return The number of retries per operation
+	 */
+	Map<String, Long> getRetries();
+	
+	/**
+	 * @return The number of retries denied by the exhausted retry budget
+	 */
+	long getRejectedRetries();
+	
+	/**
+	 * @return The number of compressed body bytes received on the wire
+	 */
+	long getCompressedBytes();
+	
+	/**
+	 * @return The number of bytes the compressed bodies decompressed to
+	 */
+	long getDecompressedBytes();
+	
+	/**
+	 * @return The mean wait for a permit of the rate limiter, in milliseconds
+	 */
+	double getMeanPermitWaitMillis();
+	
+	/**
+	 * @return The 99th percentile of the wait for a permit of the rate limiter, in milliseconds
+	 */
+	double getP99PermitWaitMillis();
+	
+	/**
+	 * @return The number of requests rejected by the rate limiter
+	 */
+	long getRateLimited();
+	
+	/**
+	 * @return The number of requests rejected by the open circuit breaker
+	 */
+	long getCircuitRejected();
+	
+	/**
+	 * @return The number of requests per status
+	 */
+	Map<String, Long> getStatusCounts();
+	
+	/**
+	 * @return The mean latency per operation, in milliseconds
+	 */
+	Map<String, Double> getMeanLatencyMillis();
+	
+	/**
+	 * @return The median latency per operation, in milliseconds
+	 */
+	Map<String, Double> getP50LatencyMillis();
+	
+	/**
+	 * @return The 99th percentile of the latency per operation, in milliseconds
+	 */
+	Map<String, Double> getP99LatencyMillis();
+	
+	/**
+	 * @return The maximum latency per operation, in milliseconds
+	 */
+	Map<String, Double> getMaxLatencyMillis();
+	
+	/**
+	 * @return The number of decoded bodies and movies
+	 */
+	long getDecodes();
+	
+	/**
+	 * @return The mean decode time, in milliseconds
+	 */
+	double getMeanDecodeMillis();
+	
+	/**
+	 * @return The 99th percentile of the decode time, in milliseconds
+	 */
+	double getP99DecodeMillis();
+	
+	/**
+	 * Resets all the metrics but the requests in flight.
+	 */
+	void reset();
+	
+}
@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import mk.imdb.response.IMDbStatus;
+
+/**
+ * Immutable snapshot of the library metrics.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class IMDbMetricsSnapshot {
+
+	private final Map<IMDbOperation, IMDbHistogramSnapshot> latencies;
+	private final Map<IMDbOperation, long[]> statuses;
+	private final Map<IMDbOperation, Long> retries;
+	private final long rejectedRetries;
+	private final IMDbHistogramSnapshot permitWait;
+	private final long rateLimited;
+	private final long circuitRejected;
+	private final IMDbHistogramSnapshot decode;
+	private final long bytes;
+	private final long compressedBytes;
+	private final long decompressedBytes;
+	private final long inFlight;
+	private final long cachedCalls;
+	private final long notModified;
+	
+	/**
+	 * Creates a new snapshot.
+	 * 
+	 * @param latencies The latency histograms per operation
+	 * @param statuses The status counters per operation, indexed by status ordinal
+	 * @param retries The retries per operation
+	 * @param rejectedRetries The retries denied by the retry budget
+	 * @param permitWait The histogram of the waits for a permit of the rate limiter
+	 * @param rateLimited The requests rejected by the rate limiter
+	 * @param circuitRejected The requests rejected by the open circuit breaker
+	 * @param decode The decode time histogram
+	 * @param bytes The bytes received
+	 * @param compressedBytes The compressed bytes received on the wire
+	 * @param decompressedBytes The bytes the compressed bodies decompressed to
+	 * @param inFlight The requests in flight
+	 * @param cachedCalls The calls served by the cache
+	 * @param notModified The expired cache entries revalidated by the server
+	 */
+	IMDbMetricsSnapshot(EnumMap<IMDbOperation, IMDbHistogramSnapshot> latencies, EnumMap<IMDbOperation, long[]> statuses,
+						EnumMap<IMDbOperation, Long> retries, long rejectedRetries, IMDbHistogramSnapshot permitWait, 
+						long rateLimited, long circuitRejected, IMDbHistogramSnapshot decode, long bytes, 
+						long compressedBytes, long decompressedBytes, long inFlight, long cachedCalls, long notModified) {
+		this.latencies = latencies;
+		this.statuses = statuses;
+		this.retries = retries;
+		this.rejectedRetries = rejectedRetries;
+		this.permitWait = permitWait;
+		this.rateLimited = rateLimited;
+		this.circuitRejected = circuitRejected;
+		this.decode = decode;
+		this.bytes = bytes;
+		this.compressedBytes = compressedBytes;
+		this.decompressedBytes = decompressedBytes;
+		this.inFlight = inFlight;
+		this.cachedCalls = cachedCalls;
+		this.notModified = notModified;
+	}
+	
+	//region Getters
+	
+	/**
+	 * Gets the latency histogram of the given operation. The requests served by the cache are not included.
+	 * 
+	 * @param operation The operation
+	 * @return The latency histogram
+	 */
+	public IMDbHistogramSnapshot getLatency(IMDbOperation operation) {
+		return latencies.get(operation);
+	}
+	
+	/**
+	 * Gets the number of calls of the given operation that ended with the given status.
+	 * 
+	 * @param operation The operation
+	 * @param status The status
+	 * @return The number of calls
+	 */
+	public long getStatusCount(IMDbOperation operation, IMDbStatus status) {
+		return statuses.get(operation)[status.ordinal()];
+	}
+	
+	/**
+	 * Gets the number of requests (any operation but the full searches) that ended with the given status.
+	 * 
+	 * @param status The status
+	 * @return The number of requests
+	 */
+	public long getStatusCount(IMDbStatus status) {
+		long count = 0;
+		for (Map.Entry<IMDbOperation, long[]> entry : statuses.entrySet()) {
+			if (entry.getKey() != IMDbOperation.FULL_SEARCH) count += entry.getValue()[status.ordinal()];
+		}
+		return count;
+	}
+	
+	/**
+	 * Gets the number of retries of the given operation. Each retry is also measured as a request.
+	 * 
+	 * @param operation The operation
+	 * @return The number of retries
+	 */
+	public long getRetries(IMDbOperation operation) {
+		return retries.get(operation);
+	}
+	
+	/**
+	 * Gets the number of retries denied by the exhausted retry budget.
+	 * 
+	 * @return The number of denied retries
+	 */
+	public long getRejectedRetries() {
+		return rejectedRetries;
+	}
+	
+	/**
+	 * Gets the histogram of the waits for a permit of the rate limiter.
+	 * 
+	 * @return The permit wait histogram
+	 */
+	public IMDbHistogramSnapshot getPermitWait() {
+		return permitWait;
+	}
+	
+	/**
+	 * Gets the number of requests rejected by the rate limiter.
+	 * 
+	 * @return The rejected requests
+	 */
+	public long getRateLimited() {
+		return rateLimited;
+	}
+	
+	/**
+	 * Gets the number of requests rejected by the open circuit breaker.
+	 * 
+	 * @return The rejected requests
+	 */
+	public long getCircuitRejected() {
+		return circuitRejected;
+	}
+	
+	/**
+	 * Gets the decode time histogram.
+	 * 
+	 * @return The decode time histogram
+	 */
+	public IMDbHistogramSnapshot getDecode() {
+		return decode;
+	}
+	
+	/**
+	 * Gets the number of body bytes received from the server (after decompression).
+	 * 
+	 * @return The bytes received
+	 */
+	public long getBytesReceived() {
+		return bytes;
+	}
+	
+	/**
+	 * Gets the number of compressed body bytes received on the wire.
+	 * 
+	 * @return The compressed bytes
+	 */
+	public long getCompressedBytes() {
+		return compressedBytes;
+	}
+	
+	/**
+	 * Gets the number of bytes the compressed bodies decompressed to.
+	 * 
+	 * @return The decompressed bytes
+	 */
+	public long getDecompressedBytes() {
+		return decompressedBytes;
+	}
+	
+	/**
+	 * Gets the number of requests in flight when the snapshot was taken.
+	 * 
+	 * @return The requests in flight
+	 */
+	public long getInFlight() {
+		return inFlight;
+	}
+	
+	/**
+	 * Gets the number of calls served by the cache without contacting the server.
+	 * 
+	 * @return The cached calls
+	 */
+	public long getCachedCalls() {
+		return cachedCalls;
+	}
+	
+	/**
+	 * Gets the number of expired cache entries revalidated by the server (304 Not Modified).
+	 * 
+	 * @return The revalidated entries
+	 */
+	public long getNotModified() {
+		return notModified;
+	}
+	
+	//endregion
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("IMDbMetrics[inFlight=").append(inFlight)
+				.append(", bytes=").append(bytes)
+				.append(", cached=").append(cachedCalls);
+		
+		if (notModified > 0) sb.append(", notModified=").append(notModified);
+		if (compressedBytes > 0) sb.append(", compressed=").append(compressedBytes).append("->").append(decompressedBytes);
+		
+		for (IMDbOperation operation : IMDbOperation.values()) {
+			IMDbHistogramSnapshot latency = latencies.get(operation);
+			if (latency.getCount() > 0) sb.append(", ").append(operation).append("={").append(latency)
+										  .append(", retries=").append(retries.get(operation)).append("}");
+		}
+		
+		if (rejectedRetries > 0) sb.append(", rejectedRetries=").append(rejectedRetries);
+		if (permitWait.getCount() > 0) sb.append(", permitWait={").append(permitWait).append("}");
+		if (rateLimited > 0) sb.append(", rateLimited=").append(rateLimited);
+		if (circuitRejected > 0) sb.append(", circuitRejected=").append(circuitRejected);
+		if (decode.getCount() > 0) sb.append(", decode={").append(decode).append("}");
+		return sb.append("]").toString();
+	}
+	
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.metrics;
+
+import java.net.URL;
+
+import mk.imdb.core.IMDbConstants;
+
+/**
+ * Enumeration of the measured operations.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public enum IMDbOperation {
+
+	/**
+	 * A request of a search by id.
+	 */
+	BY_ID,
+	
+	/**
+	 * A request of a search by title (a single result page).
+	 */
+	BY_TITLE,
+	
+	/**
+	 * A full search by title, from the first page to the last one.
+	 */
+	FULL_SEARCH,
+	
+	/**
+	 * Any other request.
+	 */
+	OTHER;
+	
+	/**
+	 * Gets the operation of the given query URL.
+	 * 
+	 * @param url The query URL
+	 * @return The operation
+	 */
+	public static IMDbOperation of(URL url) {
+		String query = url.getQuery();
+		if (query == null) return OTHER;
+		if (query.startsWith(IMDbConstants.ID + "=")) return BY_ID;
+		if (query.startsWith(IMDbConstants.TITLE + "=")) return BY_TITLE;
+		return OTHER;
+	}
+	
+}
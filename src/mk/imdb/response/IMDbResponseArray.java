@@ -40,6 +40,11 @@ public class IMDbResponseArray extends IMDbResponse {
 	 */
 	private int results = 0;
 	
+	/**
+	 * The offsets of the result pages that could not be retrieved.
+	 */
+	private List<Integer> failedOffsets = Collections.synchronizedList(new LinkedList<Integer>());
+	
 	/**
 	 * Creates a new ResponseArray instance based on the given JSON object.
 	 * 
@@ -103,6 +108,33 @@ public class IMDbResponseArray extends IMDbResponse {
 		return data.add(json);
 	}
 
+	/**
+	 * Marks the result page starting at the given offset as not retrieved.
+	 * 
+	 * @param offset The page offset
+	 */
+	public void addFailedOffset(int offset) {
+		failedOffsets.add(offset);
+	}
+	
+	/**
+	 * Gets the offsets of the result pages that could not be retrieved.
+	 * 
+	 * @return The list of failed offsets
+	 */
+	public List<Integer> getFailedOffsets() {
+		return failedOffsets;
+	}
+	
+	/**
+	 * Gets whether some result pages could not be retrieved.
+	 * 
+	 * @return Whether the data is partial
+	 */
+	public boolean isPartial() {
+		return !failedOffsets.isEmpty();
+	}
+	
 	/**
 	 * Gets the total number of the retrieved results.
 	 * 
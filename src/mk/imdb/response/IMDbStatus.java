@@ -43,6 +43,26 @@ public enum IMDbStatus {
 	 */
 	INVALID_PARAMETER (501, "Parameter was invalid."),
 	
+	/**
+	 * Code 94: Some result pages could not be retrieved (see {@link mk.imdb.exception.IMDbPartialResultException}).
+	 */
+	PARTIAL_RESULTS(94, "Some result pages could not be retrieved."),
+	
+	/**
+	 * Code 95: Request rejected by the server with an HTTP client error (4xx, except 429 Too Many Requests).
+	 */
+	CLIENT_ERROR(95, "Request rejected by the server. See the log for more information."),
+	
+	/**
+	 * Code 96: Request rejected by the client rate limiter.
+	 */
+	RATE_LIMITED(96, "Request rejected by the client rate limiter."),
+	
+	/**
+	 * Code 97: Request rejected by the open circuit breaker.
+	 */
+	CIRCUIT_OPEN(97, "Request rejected by the open circuit breaker."),
+	
 	/**
 	 * Code 98: Malformed URL.
 	 */
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that counts the bytes read from the underlying one.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class CountingInputStream extends FilterInputStream {
+
+	/**
+	 * The bytes read so far.
+	 */
+	private long count = 0;
+	
+	/**
+	 * Creates a new counting stream.
+	 * 
+	 * @param in The underlying stream
+	 */
+	public CountingInputStream(InputStream in) {
+		super(in);
+	}
+	
+	/**
+	 * Gets the number of bytes read (or skipped) so far.
+	 * 
+	 * @return The bytes read
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	@Override
+	public int read() throws IOException {
+		int b = in.read();
+		if (b != -1) count++;
+		return b;
+	}
+	
+	@Override
+	public int read(byte[] bytes, int off, int len) throws IOException {
+		int n = in.read(bytes, off, len);
+		if (n > 0) count += n;
+		return n;
+	}
+	
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = in.skip(n);
+		count += skipped;
+		return skipped;
+	}
+	
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+	
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.utils;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Compact, immutable list backed by an array: a single object plus the array, without per-list locks.
+ * 
+ * @author Mirko Polato
+ *
+ * @param <E> The type of the elements
+ */
+public final class ImmutableArrayList<E> extends AbstractList<E> implements RandomAccess {
+
+	/**
+	 * The elements.
+	 */
+	private final Object[] elements;
+	
+	private ImmutableArrayList(Object[] elements) {
+		this.elements = elements;
+	}
+	
+	/**
+	 * Creates an immutable copy of the given collection. Empty collections share the same empty list.
+	 * 
+	 * @param collection The collection to copy (may be null)
+	 * @return The immutable list
+	 */
+	public static <E> List<E> copyOf(Collection<? extends E> collection) {
+		if (collection == null || collection.isEmpty()) return Collections.emptyList();
+		if (collection instanceof ImmutableArrayList) {
+			@SuppressWarnings("unchecked")
+			List<E> list = (List<E>) collection;
+			return list;
+		}
+		return new ImmutableArrayList<E>(collection.toArray());
+	}
+	
+	/**
+	 * Creates an immutable list over the given array, which must not be modified afterwards.
+	 * 
+	 * @param elements The elements (may be null)
+	 * @return The immutable list
+	 */
+	public static <E> List<E> wrap(E[] elements) {
+		if (elements == null || elements.length == 0) return Collections.emptyList();
+		return new ImmutableArrayList<E>(elements);
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public E get(int index) {
+		return (E) elements[index];
+	}
+
+	@Override
+	public int size() {
+		return elements.length;
+	}
+	
+}
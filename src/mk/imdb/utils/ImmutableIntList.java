@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.utils;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list view over an array of primitive ints. The values are boxed only when read.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class ImmutableIntList extends AbstractList<Integer> implements RandomAccess {
+
+	/**
+	 * The values.
+	 */
+	private final int[] values;
+	
+	/**
+	 * Creates a view over the given array, which must not be modified afterwards.
+	 * 
+	 * @param values The values
+	 */
+	public ImmutableIntList(int[] values) {
+		this.values = values;
+	}
+	
+	/**
+	 * Gets the value at the given position, without boxing.
+	 * 
+	 * @param index The position
+	 * @return The value
+	 */
+	public int getInt(int index) {
+		return values[index];
+	}
+	
+	@Override
+	public Integer get(int index) {
+		return values[index];
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+	
+}
@@ -0,0 +1,468 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Pull-based JSON parser that reads the tokens straight from a character stream,
+ * without building the whole document in memory.
+ * <p>
+ * Instances are not thread safe.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class JSONPullParser implements Closeable {
+
+	/**
+	 * Enumeration of the JSON tokens.
+	 */
+	public enum Token {
+		BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+	}
+	
+	//region Scopes
+	
+	private static final int EMPTY_DOCUMENT = 0;
+	private static final int NONEMPTY_DOCUMENT = 1;
+	private static final int EMPTY_ARRAY = 2;
+	private static final int NONEMPTY_ARRAY = 3;
+	private static final int EMPTY_OBJECT = 4;
+	private static final int DANGLING_NAME = 5;
+	private static final int NONEMPTY_OBJECT = 6;
+	
+	//endregion
+	
+	//region Fields
+	
+	/**
+	 * The source stream.
+	 */
+	private final Reader reader;
+	
+	/**
+	 * The read buffer.
+	 */
+	private final char[] buffer = new char[1024];
+	
+	/**
+	 * The position of the next character in the buffer.
+	 */
+	private int pos = 0;
+	
+	/**
+	 * The number of valid characters in the buffer.
+	 */
+	private int limit = 0;
+	
+	/**
+	 * The stack of the nested scopes.
+	 */
+	private int[] stack = new int[32];
+	
+	/**
+	 * The stack size.
+	 */
+	private int size = 0;
+	
+	/**
+	 * The already peeked token, or null.
+	 */
+	private Token peeked = null;
+	
+	/**
+	 * Reusable builder for the string values.
+	 */
+	private final StringBuilder text = new StringBuilder();
+	
+	//endregion
+	
+	/**
+	 * Creates a new parser that reads from the given stream.
+	 * 
+	 * @param reader The source stream
+	 */
+	public JSONPullParser(Reader reader) {
+		this.reader = reader;
+		stack[size++] = EMPTY_DOCUMENT;
+	}
+	
+	//region Structure
+	
+	/**
+	 * Gets the type of the next token without consuming it.
+	 * 
+	 * @return The next token
+	 * @throws IOException Throws if the stream cannot be read or it is malformed
+	 */
+	public Token peek() throws IOException {
+		if (peeked != null) return peeked;
+		
+		int scope = stack[size - 1];
+		int c;
+		
+		switch (scope) {
+		case EMPTY_ARRAY:
+			stack[size - 1] = NONEMPTY_ARRAY;
+			c = nextNonWhitespace();
+			if (c == ']') return peeked = Token.END_ARRAY;
+			if (c == -1) throw syntaxError("Unterminated array");
+			pos--;
+			break;
+			
+		case NONEMPTY_ARRAY:
+			c = nextNonWhitespace();
+			if (c == ']') return peeked = Token.END_ARRAY;
+			if (c != ',') throw syntaxError("Expected ',' or ']'");
+			break;
+			
+		case EMPTY_OBJECT:
+		case NONEMPTY_OBJECT:
+			stack[size - 1] = DANGLING_NAME;
+			c = nextNonWhitespace();
+			if (c == '}') return peeked = Token.END_OBJECT;
+			if (scope == NONEMPTY_OBJECT) {
+				if (c != ',') throw syntaxError("Expected ',' or '}'");
+				c = nextNonWhitespace();
+			}
+			if (c != '"') throw syntaxError("Expected name");
+			return peeked = Token.NAME;
+			
+		case DANGLING_NAME:
+			stack[size - 1] = NONEMPTY_OBJECT;
+			if (nextNonWhitespace() != ':') throw syntaxError("Expected ':'");
+			break;
+			
+		case EMPTY_DOCUMENT:
+			stack[size - 1] = NONEMPTY_DOCUMENT;
+			break;
+			
+		default:
+			if (nextNonWhitespace() == -1) return peeked = Token.END_DOCUMENT;
+			throw syntaxError("Expected end of document");
+		}
+		
+		c = nextNonWhitespace();
+		switch (c) {
+		case '{': return peeked = Token.BEGIN_OBJECT;
+		case '[': return peeked = Token.BEGIN_ARRAY;
+		case '"': return peeked = Token.STRING;
+		case 't':
+		case 'f': pos--; return peeked = Token.BOOLEAN;
+		case 'n': pos--; return peeked = Token.NULL;
+		case -1: throw syntaxError("Unexpected end of document");
+		default:
+			if (c == '-' || (c >= '0' && c <= '9')) {
+				pos--;
+				return peeked = Token.NUMBER;
+			}
+			throw syntaxError("Unexpected character '" + (char) c + "'");
+		}
+	}
+	
+	/**
+	 * Consumes the beginning of an object.
+	 * 
+	 * @throws IOException Throws if the next token is not the beginning of an object
+	 */
+	public void beginObject() throws IOException {
+		expect(Token.BEGIN_OBJECT);
+		push(EMPTY_OBJECT);
+	}
+	
+	/**
+	 * Consumes the end of an object.
+	 * 
+	 * @throws IOException Throws if the next token is not the end of an object
+	 */
+	public void endObject() throws IOException {
+		expect(Token.END_OBJECT);
+		size--;
+	}
+	
+	/**
+	 * Consumes the beginning of an array.
+	 * 
+	 * @throws IOException Throws if the next token is not the beginning of an array
+	 */
+	public void beginArray() throws IOException {
+		expect(Token.BEGIN_ARRAY);
+		push(EMPTY_ARRAY);
+	}
+	
+	/**
+	 * Consumes the end of an array.
+	 * 
+	 * @throws IOException Throws if the next token is not the end of an array
+	 */
+	public void endArray() throws IOException {
+		expect(Token.END_ARRAY);
+		size--;
+	}
+	
+	/**
+	 * Gets whether the current object or array has another element.
+	 * 
+	 * @return Whether the current object or array has another element
+	 * @throws IOException Throws if the stream cannot be read or it is malformed
+	 */
+	public boolean hasNext() throws IOException {
+		Token token = peek();
+		return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+	}
+	
+	//endregion
+	
+	//region Values
+	
+	/**
+	 * Consumes the next property name.
+	 * 
+	 * @return The property name
+	 * @throws IOException Throws if the next token is not a name
+	 */
+	public String nextName() throws IOException {
+		expect(Token.NAME);
+		return readString();
+	}
+	
+	/**
+	 * Consumes the next scalar value and returns it as a string.
+	 * 
+	 * @return The string value
+	 * @throws IOException Throws if the next token is not a string, a number or a boolean
+	 */
+	public String nextString() throws IOException {
+		Token token = peek();
+		peeked = null;
+		
+		switch (token) {
+		case STRING: return readString();
+		case NUMBER:
+		case BOOLEAN: return readLiteral();
+		default:
+			peeked = token;
+			throw syntaxError("Expected a string but was " + token);
+		}
+	}
+	
+	/**
+	 * Consumes the next value and returns it as a double.
+	 * 
+	 * @return The double value
+	 * @throws IOException Throws if the next token is not a number
+	 */
+	public double nextDouble() throws IOException {
+		String value = nextString();
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			throw syntaxError("Expected a number but was " + value);
+		}
+	}
+	
+	/**
+	 * Consumes the next value and returns it as an int.
+	 * 
+	 * @return The int value
+	 * @throws IOException Throws if the next token is not an integer number
+	 */
+	public int nextInt() throws IOException {
+		String value = nextString();
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			double d = nextDoubleOf(value);
+			if (d != (int) d) throw syntaxError("Expected an int but was " + value);
+			return (int) d;
+		}
+	}
+	
+	/**
+	 * Consumes the next boolean value.
+	 * 
+	 * @return The boolean value
+	 * @throws IOException Throws if the next token is not a boolean
+	 */
+	public boolean nextBoolean() throws IOException {
+		expect(Token.BOOLEAN);
+		String value = readLiteral();
+		if (value.equals("true")) return true;
+		if (value.equals("false")) return false;
+		throw syntaxError("Expected a boolean but was " + value);
+	}
+	
+	/**
+	 * Consumes the next null value.
+	 * 
+	 * @throws IOException Throws if the next token is not null
+	 */
+	public void nextNull() throws IOException {
+		expect(Token.NULL);
+		if (!readLiteral().equals("null")) throw syntaxError("Expected null");
+	}
+	
+	/**
+	 * Skips the next value, recursively skipping nested objects and arrays.
+	 * 
+	 * @throws IOException Throws if the stream cannot be read or it is malformed
+	 */
+	public void skipValue() throws IOException {
+		int depth = 0;
+		do {
+			switch (peek()) {
+			case BEGIN_OBJECT: beginObject(); depth++; break;
+			case BEGIN_ARRAY: beginArray(); depth++; break;
+			case END_OBJECT: endObject(); depth--; break;
+			case END_ARRAY: endArray(); depth--; break;
+			case NAME: nextName(); break;
+			case NULL: nextNull(); break;
+			case END_DOCUMENT: throw syntaxError("Unexpected end of document");
+			default: nextString();
+			}
+		} while (depth > 0);
+	}
+	
+	//endregion
+	
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+	
+	//region Utilities
+	
+	private void expect(Token token) throws IOException {
+		if (peek() != token) throw syntaxError("Expected " + token + " but was " + peeked);
+		peeked = null;
+	}
+	
+	private void push(int scope) {
+		if (size == stack.length) stack = Arrays.copyOf(stack, size * 2);
+		stack[size++] = scope;
+	}
+	
+	private double nextDoubleOf(String value) throws IOException {
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			throw syntaxError("Expected a number but was " + value);
+		}
+	}
+	
+	private boolean fill() throws IOException {
+		int read = reader.read(buffer, 0, buffer.length);
+		if (read <= 0) return false;
+		pos = 0;
+		limit = read;
+		return true;
+	}
+	
+	private int nextChar() throws IOException {
+		if (pos == limit && !fill()) return -1;
+		return buffer[pos++];
+	}
+	
+	private int nextNonWhitespace() throws IOException {
+		for (;;) {
+			if (pos == limit && !fill()) return -1;
+			char c = buffer[pos++];
+			if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+		}
+	}
+	
+	/**
+	 * Reads a string whose opening quote has already been consumed.
+	 */
+	private String readString() throws IOException {
+		// Fast path: the whole string lies in the buffer and has no escapes.
+		for (int i = pos; i < limit; i++) {
+			char c = buffer[i];
+			if (c == '"') {
+				String result = new String(buffer, pos, i - pos);
+				pos = i + 1;
+				return result;
+			}
+			if (c == '\\') break;
+		}
+		
+		text.setLength(0);
+		for (;;) {
+			int c = nextChar();
+			if (c == -1) throw syntaxError("Unterminated string");
+			if (c == '"') return text.toString();
+			if (c == '\\') {
+				c = nextChar();
+				switch (c) {
+				case 'b': text.append('\b'); break;
+				case 'f': text.append('\f'); break;
+				case 'n': text.append('\n'); break;
+				case 'r': text.append('\r'); break;
+				case 't': text.append('\t'); break;
+				case 'u':
+					int code = 0;
+					for (int i = 0; i < 4; i++) {
+						int digit = Character.digit(nextChar(), 16);
+						if (digit < 0) throw syntaxError("Malformed unicode escape");
+						code = (code << 4) | digit;
+					}
+					text.append((char) code);
+					break;
+				case -1: throw syntaxError("Unterminated string");
+				default: text.append((char) c);
+				}
+			} else {
+				text.append((char) c);
+			}
+		}
+	}
+	
+	/**
+	 * Reads an unquoted literal (number, boolean or null).
+	 */
+	private String readLiteral() throws IOException {
+		text.setLength(0);
+		for (;;) {
+			int c = nextChar();
+			switch (c) {
+			case -1:
+				return text.toString();
+			case ',': case ']': case '}': case ':':
+			case ' ': case '\n': case '\r': case '\t':
+				pos--;
+				return text.toString();
+			default:
+				text.append((char) c);
+			}
+		}
+	}
+	
+	private IOException syntaxError(String message) {
+		return new IOException("Malformed JSON: " + message);
+	}
+	
+	//endregion
+	
+}
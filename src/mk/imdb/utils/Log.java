@@ -18,18 +18,33 @@
  * 
  ******************************************************************************/
 
-
 package mk.imdb.utils;
 
 import java.io.PrintStream;
 import java.text.DateFormat;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
 /**
  * This class provides static methods to print to the log.
  * To deactivate the log call the {@link #setActive(boolean)} method with false as parameter.
  * In the same way you can reactivate the log, it's enough calling 
  * the {@link #setActive(boolean)} method with true as parameter
+ * <p>
+ * The calls never block: the records below the current {@link Level} are dropped before any work, 
+ * the others are put in a bounded lock-free ring buffer and written by a background daemon thread. 
+ * When the buffer is full the records are dropped and counted (see {@link #getDroppedRecords()}).
+ * The header timestamp is formatted once per second. The repeated exceptions (same class, message 
+ * and throwing frame) are printed in full once per {@link #setRepeatWindow(long) window}; the 
+ * following ones are counted and the count is reported with the next full print.
+ * Call {@link #flush()} to wait for the pending records; it is also done at JVM shutdown.
  * 
  * @author Mirko Polato
  *
@@ -38,74 +53,192 @@ public final class Log {
 
 	private Log(){}
 	
+	/**
+	 * The log levels.
+	 */
+	public enum Level {
+		/** Diagnostic details, e.g. the expected fallbacks. */
+		DEBUG, 
+		/** Informative messages (default level of the text records). */
+		INFO, 
+		/** Recoverable problems, e.g. timeouts. */
+		WARN, 
+		/** Errors (default level of the throwable records). */
+		ERROR
+	}
+	
+	//region Fields
+	
+	/**
+	 * Capacity of the ring buffer (power of two).
+	 */
+	private static final int CAPACITY = 1 << 13;
+	
+	/**
+	 * Default window of the repeated exceptions in milliseconds.
+	 */
+	public static final long DEFAULT_REPEAT_WINDOW = 10000;
+	
 	/**
 	 * Default stream, initially sets to the system console.
 	 */
-	private static PrintStream defaultStream = System.out;
+	private static volatile PrintStream defaultStream = System.out;
 	
 	/**
 	 * Whether the logger is active or not.
 	 */
-	private static boolean active = true;
+	private static volatile boolean active = true;
 	
 	/**
-	 * Prints the log header. Each log line starts with this header that has the form
-	 * "dd/mm/yy MM:HH:SS THREAD: Thread_Name :". 
-	 * 
-	 * @return The header string
+	 * The minimum level of the printed records.
 	 */
-	private static String header() {
-		Date d = new Date();
-		return DateFormat.getDateInstance(DateFormat.SHORT).format(d)
-				+ " "
-				+ DateFormat.getTimeInstance(DateFormat.LONG).format(d)
-				+ " THREAD: "
-				+ Thread.currentThread().getName()
-				+ " : ";
+	private static volatile Level level = Level.INFO;
+	
+	/**
+	 * The window of the repeated exceptions in milliseconds (0 prints all of them).
+	 */
+	private static volatile long repeatWindow = DEFAULT_REPEAT_WINDOW;
+	
+	/**
+	 * The ring buffer.
+	 */
+	private static final AtomicReferenceArray<Record> ring = new AtomicReferenceArray<Record>(CAPACITY);
+	
+	/**
+	 * Sequence of the next slot to claim (producers).
+	 */
+	private static final AtomicLong tail = new AtomicLong();
+	
+	/**
+	 * Sequence of the next slot to write (writer thread only).
+	 */
+	private static volatile long head = 0;
+	
+	/**
+	 * Whether the writer thread is parked.
+	 */
+	private static volatile boolean parked = false;
+	
+	private static final LongAdder dropped = new LongAdder();
+	
+	/**
+	 * The background writer.
+	 */
+	private static final Thread writer;
+	
+	static {
+		writer = new Thread(new Writer(), "mkimdb-log");
+		writer.setDaemon(true);
+		writer.start();
+		
+		try {
+			Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "mkimdb-log-flush"));
+		} catch (IllegalStateException e) {
+			// First used by a shutdown hook: the hooks flush the log themselves.
+		}
 	}
+	
+	//endregion
 
+	//region Print
+	
 	/**
-	 * Prints the given text appended to the header to the default stream.
+	 * Prints the given text appended to the header to the default stream, at INFO level.
 	 * 
 	 * @param text The text to print.
 	 */
-	public static synchronized void print(String text) {
-		print(text, defaultStream);
+	public static void print(String text) {
+		print(Level.INFO, text);
 	}
 
 	/**
-	 * Prints the given text appended to the header to the specified stream.
+	 * Prints the given text appended to the header to the specified stream, at INFO level.
 	 * 
 	 * @param text The text to print
 	 * @param stream The stream where to print
 	 */
-	public static synchronized void print(String text, PrintStream stream) {
-		if (active)
-			stream.println(header() + text);
+	public static void print(String text, PrintStream stream) {
+		if (isLoggable(Level.INFO)) offer(new Record(Level.INFO, text, null, stream));
 	}
 
 	/**
-	 * Prints the given throwable object information to the default stream.
+	 * Prints the given throwable object information to the default stream, at ERROR level.
 	 * 
 	 * @param throwable The throwable object
 	 */
-	public static synchronized void print(Throwable throwable) {
-		print(throwable, defaultStream);
+	public static void print(Throwable throwable) {
+		print(Level.ERROR, throwable);
 	}
 
 	/**
-	 * Prints the given throwable object information to the given stream.
+	 * Prints the given throwable object information to the given stream, at ERROR level.
 	 * 
 	 * @param throwable The throwable object
 	 * @param stream The stream where to print
 	 */
-	public static synchronized void print(Throwable throwable, PrintStream stream) {
-		if (active) {
-			stream.print(header());
-			throwable.printStackTrace(stream);
+	public static void print(Throwable throwable, PrintStream stream) {
+		if (isLoggable(Level.ERROR)) offer(new Record(Level.ERROR, null, throwable, stream));
+	}
+	
+	/**
+	 * Prints the given text appended to the header to the default stream.
+	 * 
+	 * @param lvl The record level
+	 * @param text The text to print
+	 */
+	public static void print(Level lvl, String text) {
+		if (isLoggable(lvl)) offer(new Record(lvl, text, null, null));
+	}
+	
+	/**
+	 * Prints the supplied text appended to the header to the default stream. The supplier is called,
+	 * on the calling thread, only if the level is enabled.
+	 * 
+	 * @param lvl The record level
+	 * @param text The supplier of the text to print
+	 */
+	public static void print(Level lvl, Supplier<String> text) {
+		if (isLoggable(lvl)) offer(new Record(lvl, text.get(), null, null));
+	}
+	
+	/**
+	 * Prints the given throwable object information to the default stream.
+	 * 
+	 * @param lvl The record level
+	 * @param throwable The throwable object
+	 */
+	public static void print(Level lvl, Throwable throwable) {
+		if (isLoggable(lvl)) offer(new Record(lvl, null, throwable, null));
+	}
+	
+	/**
+	 * Gets whether the records of the given level are printed.
+	 * 
+	 * @param lvl The level
+	 * @return Whether the logger is active and the level enabled
+	 */
+	public static boolean isLoggable(Level lvl) {
+		return active && lvl.compareTo(level) >= 0;
+	}
+	
+	/**
+	 * Waits (at most 5 seconds) until the records logged so far are written and the streams flushed.
+	 */
+	public static void flush() {
+		long target = tail.get();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		
+		// The writer flushes the streams before parking.
+		while ((head < target || !parked) && System.nanoTime() < deadline && writer.isAlive()) {
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
 		}
 	}
 	
+	//endregion
+	
+	//region Getters/Setters
+	
 	/**
 	 * Gets the default stream.
 	 * 
@@ -116,7 +249,7 @@ public final class Log {
 	}
 	
 	/**
-	 * Sets the default stream.
+	 * Sets the default stream. The records already logged may still be written to the previous one.
 	 * 
 	 * @param stream The new stream
 	 */
@@ -142,4 +275,219 @@ public final class Log {
 		Log.active = active;
 	}
 	
+	/**
+	 * Gets the minimum level of the printed records.
+	 * 
+	 * @return The level
+	 */
+	public static Level getLevel() {
+		return level;
+	}
+	
+	/**
+	 * Sets the minimum level of the printed records (INFO by default).
+	 * 
+	 * @param lvl The new level
+	 */
+	public static void setLevel(Level lvl) {
+		level = lvl;
+	}
+	
+	/**
+	 * Gets the window of the repeated exceptions.
+	 * 
+	 * @return The window in milliseconds
+	 */
+	public static long getRepeatWindow() {
+		return repeatWindow;
+	}
+	
+	/**
+	 * Sets the window of the repeated exceptions: an exception equal to one printed less than the 
+	 * window ago is only counted. 
+	 * 
+	 * @param millis The new window in milliseconds (0 prints all the exceptions)
+	 */
+	public static void setRepeatWindow(long millis) {
+		repeatWindow = Math.max(0, millis);
+	}
+	
+	/**
+	 * Gets the number of records dropped because the buffer was full.
+	 * 
+	 * @return The number of dropped records
+	 */
+	public static long getDroppedRecords() {
+		return dropped.sum();
+	}
+	
+	//endregion
+	
+	//region Utilities
+	
+	/**
+	 * Puts the record in the ring buffer, or drops it if full.
+	 */
+	private static void offer(Record record) {
+		long t;
+		do {
+			t = tail.get();
+			if (t - head >= CAPACITY) {
+				dropped.increment();
+				return;
+			}
+		} while (!tail.compareAndSet(t, t + 1));
+		
+		ring.set((int) t & (CAPACITY - 1), record);
+		if (parked) LockSupport.unpark(writer);
+	}
+	
+	/**
+	 * A log record.
+	 */
+	private static final class Record {
+		
+		private final long time = System.currentTimeMillis();
+		private final String thread = Thread.currentThread().getName();
+		private final Level level;
+		private final String text;
+		private final Throwable throwable;
+		private final PrintStream stream;
+		
+		private Record(Level level, String text, Throwable throwable, PrintStream stream) {
+			this.level = level;
+			this.text = text;
+			this.throwable = throwable;
+			this.stream = (stream != null) ? stream : defaultStream;
+		}
+	}
+	
+	/**
+	 * The background writer: drains the ring buffer and writes the records.
+	 */
+	private static final class Writer implements Runnable {
+		
+		/**
+		 * Maximum number of tracked exceptions.
+		 */
+		private static final int MAX_REPEATS = 1024;
+		
+		private final DateFormat dateFormat = DateFormat.getDateInstance(DateFormat.SHORT);
+		private final DateFormat timeFormat = DateFormat.getTimeInstance(DateFormat.LONG);
+		private final StringBuilder line = new StringBuilder(256);
+		
+		/**
+		 * The repeated exceptions: key to {window start, suppressed count}.
+		 */
+		private final Map<String, long[]> repeats = new HashMap<String, long[]>();
+		
+		private long second = Long.MIN_VALUE;
+		private String timestamp;
+		private PrintStream last;
+		
+		@Override
+		public void run() {
+			while (true) {
+				int idx = (int) head & (CAPACITY - 1);
+				Record record = ring.get(idx);
+				
+				if (record == null) {
+					if (tail.get() == head) {
+						idle();
+					} else {
+						// A producer claimed the slot but has not filled it yet.
+						Thread.onSpinWait();
+					}
+					continue;
+				}
+				
+				ring.set(idx, null);
+				try {
+					write(record);
+				} catch (RuntimeException e) {
+					// A failing stream must not stop the writer.
+				}
+				head = head + 1;
+			}
+		}
+		
+		/**
+		 * Flushes the last stream and parks until a new record arrives.
+		 */
+		private void idle() {
+			if (last != null) {
+				last.flush();
+				last = null;
+			}
+			
+			parked = true;
+			if (tail.get() == head) LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+			parked = false;
+		}
+		
+		private void write(Record record) {
+			if (last != null && last != record.stream) last.flush();
+			last = record.stream;
+			
+			if (record.throwable == null) {
+				record.stream.println(header(record).append(record.text).toString());
+				return;
+			}
+			
+			long suppressed = 0;
+			long window = repeatWindow;
+			if (window > 0) {
+				String key = key(record.throwable);
+				long[] state = repeats.get(key);
+				
+				if (state != null && record.time - state[0] < window) {
+					state[1]++;
+					return;
+				}
+				
+				if (state == null) {
+					if (repeats.size() >= MAX_REPEATS) repeats.clear();
+					repeats.put(key, new long[] { record.time, 0 });
+				} else {
+					suppressed = state[1];
+					state[0] = record.time;
+					state[1] = 0;
+				}
+			}
+			
+			StringBuilder prefix = header(record);
+			if (suppressed > 0) prefix.append("(").append(suppressed).append(" similar suppressed) ");
+			record.stream.print(prefix.toString());
+			record.throwable.printStackTrace(record.stream);
+		}
+		
+		/**
+		 * Builds the log header. Each log line starts with this header that has the form
+		 * "dd/mm/yy MM:HH:SS LEVEL THREAD: Thread_Name :". 
+		 */
+		private StringBuilder header(Record record) {
+			long sec = record.time / 1000;
+			if (sec != second) {
+				Date d = new Date(sec * 1000);
+				timestamp = dateFormat.format(d) + " " + timeFormat.format(d) + " ";
+				second = sec;
+			}
+			
+			line.setLength(0);
+			return line.append(timestamp)
+					   .append(record.level)
+					   .append(" THREAD: ")
+					   .append(record.thread)
+					   .append(" : ");
+		}
+		
+		private static String key(Throwable throwable) {
+			StackTraceElement[] trace = throwable.getStackTrace();
+			return throwable.getClass().getName() + ": " + throwable.getMessage() + 
+					((trace.length > 0) ? " at " + trace[0] : "");
+		}
+	}
+	
+	//endregion
+	
 }
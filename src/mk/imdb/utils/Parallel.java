@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.utils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs indexed tasks concurrently on an executor, with the calling thread taking part.
+ * <p>
+ * The tasks are claimed from a shared counter by the calling thread and by at most <code>parallelism - 1</code> 
+ * workers submitted to the executor. The caller never waits for a free executor thread: if the executor is 
+ * saturated, bounded, shut down or is the one running the caller, the caller runs the tasks the workers did 
+ * not claim, and waits only for the tasks already running. So the calls cannot deadlock on a bounded executor.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class Parallel {
+
+	private Parallel() {}
+	
+	/**
+	 * Runs the tasks from 0 to <code>count - 1</code>, at most <code>parallelism</code> at a time, and waits for all of them. 
+	 * A task that throws an unchecked exception is logged and counted as done.
+	 * 
+	 * @param count The number of tasks
+	 * @param parallelism The maximum number of tasks running at the same time (at least 1)
+	 * @param executor The executor of the workers
+	 * @param task The task, called with its index
+	 */
+	public static void forEach(final int count, int parallelism, Executor executor, final IntConsumer task) {
+		if (count <= 0) return;
+		
+		final AtomicInteger next = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(count);
+		Runnable worker = () -> {
+			for (int i; (i = next.getAndIncrement()) < count;) {
+				try {
+					task.accept(i);
+				} catch (RuntimeException e) {
+					Log.print(e);
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+		
+		int workers = Math.min(parallelism, count) - 1;
+		for (int w = 0; w < workers; w++) {
+			try {
+				executor.execute(worker);
+			} catch (RejectedExecutionException e) {
+				break;
+			}
+		}
+		worker.run();
+		
+		boolean interrupted = false;
+		while (true) {
+			try {
+				done.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+	
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.utils;
+
+/**
+ * Splits a bound over the lock-striped segments of a bounded map, so that the segments together
+ * never hold more than the bound.
+ * <p>
+ * The number of segments is a power of two, at most the requested one and at most the bound (so that
+ * no segment is left without room); each segment gets the bound divided by the number of segments,
+ * and the first ones one more unit each until the remainder is used up.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public final class Segments {
+
+	private Segments() {}
+	
+	/**
+	 * Gets the number of segments for the given bound.
+	 * 
+	 * @param bound The bound (at least 1 is assumed)
+	 * @param maxSegments The maximum number of segments (power of two)
+	 * @return The number of segments, a power of two
+	 */
+	public static int count(long bound, int maxSegments) {
+		return Integer.highestOneBit((int) Math.max(1, Math.min(bound, maxSegments)));
+	}
+	
+	/**
+	 * Gets the share of a bound of the given segment.
+	 * 
+	 * @param bound The bound
+	 * @param segments The number of segments
+	 * @param index The index of the segment
+	 * @return The share of the segment
+	 */
+	public static long share(long bound, int segments, int index) {
+		bound = Math.max(0, bound);
+		return bound / segments + ((index < bound % segments) ? 1 : 0);
+	}
+	
+	/**
+	 * Gets the index of the segment of a key.
+	 * 
+	 * @param hash The hash code of the key
+	 * @param segments The number of segments (power of two)
+	 * @return The index of the segment
+	 */
+	public static int index(int hash, int segments) {
+		return (hash ^ (hash >>> 16)) & (segments - 1);
+	}
+	
+}
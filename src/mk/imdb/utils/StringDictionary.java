@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent, bounded dictionary of shared strings, used to make the repeated values of many objects
+ * (genres, countries, languages, names...) point to the same instance.
+ * <p>
+ * The strings are spread over up to 16 lock-striped segments (fewer for small bounds), each one an access ordered map
+ * that evicts its least recently used strings when it exceeds its share of the bound: the values seen
+ * only once are soon dropped, while the frequent ones stay. Strings longer than the given maximum length
+ * are never stored. The bytes saved are estimated as the size of every duplicate that has been replaced
+ * by the shared instance (string header, array header and characters).
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class StringDictionary {
+
+	//region Fields
+	
+	/**
+	 * Maximum number of segments (power of two).
+	 */
+	private static final int SEGMENTS = 16;
+	
+	/**
+	 * Estimated overhead of a string in bytes (string and array headers).
+	 */
+	private static final int STRING_OVERHEAD = 40;
+	
+	/**
+	 * Default maximum length of the stored strings.
+	 */
+	public static final int DEFAULT_MAX_LENGTH = 64;
+	
+	/**
+	 * The segments.
+	 */
+	private final Segment[] segments;
+	
+	/**
+	 * The maximum length of the stored strings.
+	 */
+	private final int maxLength;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder bytesSaved = new LongAdder();
+	
+	//endregion
+	
+	/**
+	 * Creates a new dictionary bounded by the number of strings.
+	 * 
+	 * @param maxEntries The maximum number of strings
+	 */
+	public StringDictionary(int maxEntries) {
+		this(maxEntries, DEFAULT_MAX_LENGTH);
+	}
+	
+	/**
+	 * Creates a new dictionary bounded by the number of strings and by their length.
+	 * 
+	 * @param maxEntries The maximum number of strings
+	 * @param maxLength The maximum length of the stored strings
+	 */
+	public StringDictionary(int maxEntries, int maxLength) {
+		this.maxLength = maxLength;
+		
+		maxEntries = Math.max(1, maxEntries);
+		segments = new Segment[Segments.count(maxEntries, SEGMENTS)];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = new Segment((int) Segments.share(maxEntries, segments.length, i));
+		}
+	}
+	
+	/**
+	 * Gets the shared instance of the given string, storing it if it is not in the dictionary yet.
+	 * 
+	 * @param value The string (may be null)
+	 * @return The shared instance, or the string itself if it is null or too long
+	 */
+	public String intern(String value) {
+		if (value == null || value.length() > maxLength) return value;
+		
+		String shared = segment(value).putIfAbsent(value);
+		if (shared == null) {
+			misses.increment();
+			return value;
+		}
+		
+		hits.increment();
+		if (shared != value) bytesSaved.add(size(value));
+		return shared;
+	}
+	
+	/**
+	 * Removes all the strings. The statistics are kept.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+	
+	//region Statistics
+	
+	/**
+	 * Gets the number of stored strings.
+	 * 
+	 * @return The number of strings
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.map.size();
+			}
+		}
+		return size;
+	}
+	
+	/**
+	 * Gets the number of lookups that returned a shared instance.
+	 * 
+	 * @return The number of hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	/**
+	 * Gets the number of lookups that stored a new string.
+	 * 
+	 * @return The number of misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	/**
+	 * Gets the number of strings evicted to respect the bound.
+	 * 
+	 * @return The number of evictions
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+	
+	/**
+	 * Gets the estimated number of bytes saved by replacing the duplicates with the shared instances.
+	 * 
+	 * @return The bytes saved
+	 */
+	public long getBytesSaved() {
+		return bytesSaved.sum();
+	}
+	
+	@Override
+	public String toString() {
+		return "StringDictionary[entries=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + 
+				", evictions=" + getEvictions() + ", bytesSaved=" + getBytesSaved() + "]";
+	}
+	
+	//endregion
+	
+	//region Utilities
+	
+	private Segment segment(String value) {
+		return segments[Segments.index(value.hashCode(), segments.length)];
+	}
+	
+	/**
+	 * Estimated size of a string, rounded to 8 bytes (Latin-1 strings take a byte per character).
+	 */
+	private static long size(String value) {
+		return (STRING_OVERHEAD + value.length() + 7) & ~7L;
+	}
+	
+	/**
+	 * A lock-protected LRU map.
+	 */
+	private final class Segment {
+		
+		private final LinkedHashMap<String, String> map;
+		
+		private Segment(final int maxEntries) {
+			this.map = new LinkedHashMap<String, String>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+					if (size() <= maxEntries) return false;
+					evictions.increment();
+					return true;
+				}
+			};
+		}
+		
+		/**
+		 * Returns the stored instance, or null after storing the given one.
+		 */
+		private synchronized String putIfAbsent(String value) {
+			String shared = map.get(value);
+			if (shared == null) map.put(value, value);
+			return shared;
+		}
+		
+		private synchronized void clear() {
+			map.clear();
+		}
+	}
+	
+	//endregion
+	
+}
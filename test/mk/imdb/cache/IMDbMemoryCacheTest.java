@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link IMDbMemoryCache}.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbMemoryCacheTest {
+
+	private static int size(IMDbCache cache) {
+		AtomicInteger size = new AtomicInteger();
+		cache.forEach((key, entry) -> size.incrementAndGet());
+		return size.get();
+	}
+	
+	private static IMDbCacheEntry entry() {
+		long now = System.currentTimeMillis();
+		return new IMDbCacheEntry(new byte[] { '{', '}' }, now, now + 60000);
+	}
+	
+	@Test
+	public void neverHoldsMoreThanTheMaximumEntries() {
+		for (int max : new int[] { 1, 2, 10, 16, 17, 33, 100 }) {
+			IMDbMemoryCache cache = new IMDbMemoryCache(max, 60000);
+			for (int i = 0; i < 10 * max + 100; i++) {
+				cache.put("http://example.com/?i=" + i, entry());
+			}
+			int size = size(cache);
+			assertTrue(max + " entries allowed, " + size + " held", size <= max);
+			assertTrue(size > 0);
+		}
+	}
+	
+	@Test
+	public void singleEntryCacheKeepsTheLastPut() {
+		IMDbMemoryCache cache = new IMDbMemoryCache(1, 60000);
+		cache.put("a", entry());
+		cache.put("b", entry());
+		assertEquals(1, size(cache));
+		assertNotNull(cache.get("b"));
+	}
+	
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import mk.imdb.core.IMDbCircuitBreaker.State;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link IMDbCircuitBreaker}.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbCircuitBreakerTest {
+
+	/**
+	 * Creates a breaker that opens after two failures out of two calls and turns half-open at once.
+	 */
+	private static IMDbCircuitBreaker breaker() {
+		return new IMDbCircuitBreaker(2, 2, 0.5, 0, 1);
+	}
+	
+	private static void open(IMDbCircuitBreaker breaker) {
+		breaker.onFailure(breaker.tryAcquire());
+		breaker.onFailure(breaker.tryAcquire());
+		assertEquals(State.OPEN, breaker.getState());
+	}
+	
+	@Test
+	public void closedAdmittedSuccessDuringHalfOpenDoesNotClose() {
+		IMDbCircuitBreaker breaker = breaker();
+		long straggler = breaker.tryAcquire();
+		open(breaker);
+		
+		long probe = breaker.tryAcquire();
+		assertNotEquals(IMDbCircuitBreaker.REJECTED, probe);
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		
+		breaker.onSuccess(straggler);
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		assertEquals(IMDbCircuitBreaker.REJECTED, breaker.tryAcquire());
+		
+		breaker.onSuccess(probe);
+		assertEquals(State.CLOSED, breaker.getState());
+	}
+	
+	@Test
+	public void closedAdmittedFailureDuringHalfOpenDoesNotReopen() {
+		IMDbCircuitBreaker breaker = breaker();
+		long straggler = breaker.tryAcquire();
+		open(breaker);
+		
+		long probe = breaker.tryAcquire();
+		breaker.onFailure(straggler);
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		
+		breaker.onFailure(probe);
+		assertEquals(State.OPEN, breaker.getState());
+	}
+	
+	@Test
+	public void staleReleaseDoesNotFreeAProbe() {
+		IMDbCircuitBreaker breaker = breaker();
+		long straggler = breaker.tryAcquire();
+		open(breaker);
+		
+		breaker.tryAcquire();
+		breaker.release(straggler);
+		assertEquals(IMDbCircuitBreaker.REJECTED, breaker.tryAcquire());
+	}
+	
+	@Test
+	public void probeOfAnEarlierHalfOpenIsIgnored() {
+		IMDbCircuitBreaker breaker = breaker();
+		open(breaker);
+		
+		long first = breaker.tryAcquire();
+		breaker.reset();
+		open(breaker);
+		long second = breaker.tryAcquire();
+		
+		breaker.onSuccess(first);
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		breaker.onSuccess(second);
+		assertEquals(State.CLOSED, breaker.getState());
+	}
+	
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.entity;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+
+import mk.imdb.utils.Pair;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link IMDbMovieDecoder} and {@link IMDbMovie#IMDbMovie(JSONObject)} decode the same payloads alike.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbMovieDecoderTest {
+
+	private static final String DETAILED = "{\"imdb_id\":\"tt0133093\",\"title\":\"The Matrix\",\"type\":\"M\",\"rating\":8.7,"
+			+ "\"rating_count\":1000,\"rated\":\"R\",\"genres\":[\"Action\",\"Sci-Fi\"],\"country\":[\"USA\",\"Australia\"],"
+			+ "\"runtime\":[\"136 min\",\"unknown\"],"
+			+ "\"also_known_as\":[{\"country\":\"Italy\",\"title\":\"Matrix\"},{\"title\":\"No country\"},"
+			+ "{\"country\":\"Spain\"},{\"country\":\"Germany\",\"title\":\"Matrix\",\"remarks\":[\"working title\"]}],"
+			+ "\"release_date\":[{\"country\":\"USA\",\"year\":1999,\"month\":2,\"day\":31},{\"year\":1999,\"month\":3,\"day\":1},"
+			+ "{\"country\":\"Italy\",\"year\":1999},{\"country\":\"Japan\",\"year\":1999,\"month\":8,\"day\":11,\"remarks\":[\"premiere\"]}]}";
+	
+	private static final String SIMPLE = "{\"imdb_id\":\"tt0133093\",\"title\":\"The Matrix\","
+			+ "\"also_known_as\":[\"Matrix\",\"The Matrix (alt)\"],\"release_date\":\"19990331\"}";
+	
+	private static IMDbMovie stream(String json) throws Exception {
+		return IMDbMovieDecoder.MOVIE.handle(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+	}
+	
+	private static IMDbMovie tree(String json) {
+		return new IMDbMovie((JSONObject) JSONSerializer.toJSON(json));
+	}
+	
+	private static <L, R> List<L> firsts(List<Pair<L, R>> pairs) {
+		List<L> firsts = new ArrayList<L>();
+		for (Pair<L, R> pair : pairs) {
+			firsts.add(pair.getFirst());
+		}
+		return firsts;
+	}
+	
+	@Test
+	public void detailedPayloadDecodesAlike() throws Exception {
+		IMDbMovie streamed = stream(DETAILED);
+		IMDbMovie parsed = tree(DETAILED);
+		
+		assertEquals(parsed, streamed);
+		assertEquals(Arrays.asList("Italy", "Germany"), firsts(streamed.getAKA()));
+		assertEquals(Arrays.asList("USA", "Japan"), firsts(streamed.getReleases()));
+	}
+	
+	@Test
+	public void simplePayloadDecodesAlike() throws Exception {
+		IMDbMovie streamed = stream(SIMPLE);
+		IMDbMovie parsed = tree(SIMPLE);
+		
+		assertEquals(parsed, streamed);
+		assertEquals(Arrays.asList(new Pair<String, String>("USA", "Matrix")), streamed.getAKA());
+		assertEquals(Arrays.asList("USA"), firsts(streamed.getReleases()));
+	}
+	
+}
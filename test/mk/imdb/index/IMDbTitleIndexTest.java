@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import mk.imdb.entity.IMDbMovie;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link IMDbTitleIndex}.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbTitleIndexTest {
+
+	private static IMDbMovie movie(String id, String title) {
+		IMDbMovie movie = new IMDbMovie();
+		movie.setId(id);
+		movie.setTitle(title);
+		return movie;
+	}
+	
+	@Test
+	public void prefixMatchIsNotPrunedAboveTheDefaultMinScore() {
+		IMDbTitleIndex index = new IMDbTitleIndex();
+		index.add(movie("tt1", "abc"));
+		
+		List<IMDbTitleMatch> matches = index.search("ab", 10, 0.8);
+		assertEquals(1, matches.size());
+		assertEquals("tt1", matches.get(0).getMovie().getId());
+		assertTrue(matches.get(0).getScore() >= 0.8);
+	}
+	
+	@Test
+	public void prefixMatchOfSeveralWords() {
+		IMDbTitleIndex index = new IMDbTitleIndex();
+		index.add(movie("tt1", "The Godfather"));
+		index.add(movie("tt2", "The Good, the Bad and the Ugly"));
+		
+		List<IMDbTitleMatch> matches = index.search("the godf", 10, 0.9);
+		assertEquals(1, matches.size());
+		assertEquals("tt1", matches.get(0).getMovie().getId());
+	}
+	
+	@Test
+	public void typoRanksTheRightMovieFirst() {
+		IMDbTitleIndex index = new IMDbTitleIndex();
+		index.add(movie("tt1", "Inglourious Basterds"));
+		index.add(movie("tt2", "Basterds"));
+		
+		List<IMDbTitleMatch> matches = index.search("inglorious basterds", 1);
+		assertEquals("tt1", matches.get(0).getMovie().getId());
+	}
+	
+	@Test
+	public void addingAgainReplacesTheMovie() {
+		IMDbTitleIndex index = new IMDbTitleIndex();
+		index.add(movie("tt1", "Old Title"));
+		index.add(movie("tt1", "New Title"));
+		
+		assertEquals(1, index.size());
+		assertEquals(0, index.search("old title", 10, 0.9).size());
+		assertEquals("New Title", index.get("tt1").getTitle());
+	}
+	
+}
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import mk.imdb.entity.IMDbMovie;
+import mk.imdb.entity.IMDbMovieType;
+import mk.imdb.utils.Pair;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link IMDbMovieWriter} and {@link IMDbMovieReader}.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class IMDbMovieReaderTest {
+
+	private static IMDbMovie movie(String id, String title) throws IOException {
+		IMDbMovie movie = new IMDbMovie();
+		movie.setId(id);
+		movie.setTitle(title);
+		movie.setRating(7.5);
+		movie.setMPAARating("PG-13");
+		movie.setLocation("Los Angeles");
+		movie.setPlot("A plot.");
+		movie.setPoster(new URL("http://example.com/" + id + ".jpg"));
+		movie.setLink(new URL("http://www.imdb.com/title/" + id + "/"));
+		movie.setCount(1234);
+		movie.setType(IMDbMovieType.MOVIE);
+		movie.setActors(Arrays.asList("Actor One", "Actor Two"));
+		movie.setCountries(Arrays.asList("USA"));
+		movie.setDirectors(Arrays.asList("Director"));
+		movie.setGenres(Arrays.asList("Drama", "Comedy"));
+		movie.setLanguages(Arrays.asList("English"));
+		movie.setWriters(Arrays.asList("Writer"));
+		movie.setRuntimes(Arrays.asList(120, 95));
+		movie.setAKA(Arrays.asList(new Pair<String, String>("Italy", title + " (it)")));
+		movie.setReleases(Arrays.asList(new Pair<String, Date>("USA", new Date(946728000000L))));
+		return movie;
+	}
+	
+	private static byte[] write(IMDbMovie... movies) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (IMDbMovieWriter writer = new IMDbMovieWriter(bytes)) {
+			writer.writeAll(Arrays.asList(movies));
+		}
+		return bytes.toByteArray();
+	}
+	
+	private static void assertSameFields(IMDbMovie expected, IMDbMovie actual) {
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getTitle(), actual.getTitle());
+		assertEquals(expected.getRating(), actual.getRating(), 0);
+		assertEquals(expected.getMPAARating(), actual.getMPAARating());
+		assertEquals(expected.getLocation(), actual.getLocation());
+		assertEquals(expected.getPlot(), actual.getPlot());
+		assertEquals(expected.getPoster(), actual.getPoster());
+		assertEquals(expected.getLink(), actual.getLink());
+		assertEquals(expected.getCount(), actual.getCount());
+		assertEquals(expected.getType(), actual.getType());
+		assertEquals(expected.getActors(), actual.getActors());
+		assertEquals(expected.getCountries(), actual.getCountries());
+		assertEquals(expected.getDirectors(), actual.getDirectors());
+		assertEquals(expected.getGenres(), actual.getGenres());
+		assertEquals(expected.getLanguages(), actual.getLanguages());
+		assertEquals(expected.getWriters(), actual.getWriters());
+		assertEquals(expected.getRuntimes(), actual.getRuntimes());
+		assertEquals(expected.getAKA(), actual.getAKA());
+		assertEquals(expected.getReleases(), actual.getReleases());
+		assertEquals(expected, actual);
+	}
+	
+	@Test
+	public void streamRoundTripKeepsTheFields() throws IOException {
+		IMDbMovie first = movie("tt0000001", "First");
+		IMDbMovie second = movie("tt0000002", "Second");
+		
+		try (IMDbMovieReader reader = new IMDbMovieReader(new ByteArrayInputStream(write(first, second)))) {
+			assertEquals(IMDbMovieWriter.VERSION, reader.getVersion());
+			List<IMDbMovie> movies = reader.readAll();
+			assertEquals(2, movies.size());
+			assertSameFields(first, movies.get(0));
+			assertSameFields(second, movies.get(1));
+		}
+	}
+	
+	@Test
+	public void recordRoundTripKeepsTheFields() throws IOException {
+		IMDbMovie movie = movie("tt0000001", "First");
+		assertSameFields(movie, IMDbMovieReader.decode(ByteBuffer.wrap(IMDbMovieWriter.encode(movie))));
+	}
+	
+	@Test
+	public void emptyMovieRoundTrip() throws IOException {
+		IMDbMovie movie = new IMDbMovie();
+		assertSameFields(movie, IMDbMovieReader.decode(ByteBuffer.wrap(IMDbMovieWriter.encode(movie))));
+	}
+	
+	@Test
+	public void truncatedStreamIsReadUpToItsLastCompleteRecord() throws IOException {
+		IMDbMovie first = movie("tt0000001", "First");
+		byte[] full = write(first, movie("tt0000002", "Second"));
+		byte[] single = write(first);
+		
+		// Every cut after the first record (but before the end mark) drops the second record only,
+		// including the cuts in the middle of its length prefix.
+		for (int cut = single.length - 1; cut < full.length - 1; cut++) {
+			try (IMDbMovieReader reader = new IMDbMovieReader(new ByteArrayInputStream(Arrays.copyOf(full, cut)))) {
+				assertSameFields(first, reader.read());
+				assertNull(reader.read());
+				assertNull(reader.read());
+			}
+		}
+	}
+	
+}
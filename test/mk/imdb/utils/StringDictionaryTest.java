@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Mirko Polato
+ * 
+ * This file is part of MKimdb.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ******************************************************************************/
+
+package mk.imdb.utils;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link StringDictionary}.
+ * 
+ * @author Mirko Polato
+ *
+ */
+public class StringDictionaryTest {
+
+	@Test
+	public void neverHoldsMoreThanTheMaximumEntries() {
+		for (int max : new int[] { 1, 2, 10, 16, 17, 33, 100 }) {
+			StringDictionary dictionary = new StringDictionary(max);
+			for (int i = 0; i < 10 * max + 100; i++) {
+				dictionary.intern("value" + i);
+			}
+			assertTrue(max + " strings allowed, " + dictionary.size() + " held", dictionary.size() <= max);
+			assertTrue(dictionary.size() > 0);
+		}
+	}
+	
+	@Test
+	public void internReturnsTheSharedInstance() {
+		StringDictionary dictionary = new StringDictionary(10);
+		String first = new String("Drama");
+		dictionary.intern(first);
+		assertSame(first, dictionary.intern(new String("Drama")));
+	}
+	
+}